@@ -1,11 +1,16 @@
 package enigma;
 
+import java.util.Arrays;
+import java.util.HashMap;
+
 import static enigma.EnigmaException.*;
 import static enigma.TestUtils.*;
 import static java.lang.Character.*;
 
 /** An alphabet of encodable characters.  Provides a mapping from characters
- *  to and from indices into the alphabet.
+ *  to and from indices into the alphabet.  Characters are Unicode code
+ *  points, so an alphabet may include supplementary characters, which
+ *  occupy two chars of a String.
  *  @author Henry Chiong
  */
 class Alphabet {
@@ -13,8 +18,33 @@ class Alphabet {
     /** A new alphabet containing CHARS.  Character number #k has index
      *  K (numbering from 0). No character may be duplicated. */
     Alphabet(String chars) {
-        checkAlphabet(chars);
         alpha = chars;
+        _codePoints = chars.codePoints().toArray();
+        int max = -1;
+        for (int c : _codePoints) {
+            checkInvalidChar(c);
+            max = Math.max(max, c);
+        }
+        if (max < DENSE_LIMIT) {
+            _dense = new int[max + 1];
+            Arrays.fill(_dense, -1);
+            _sparse = null;
+        } else {
+            _dense = null;
+            _sparse = new HashMap<>(2 * _codePoints.length);
+        }
+        for (int k = 0; k < _codePoints.length; k += 1) {
+            int c = _codePoints[k];
+            if (indexOf(c) >= 0) {
+                throw error(show(c)
+                            + " is repeated in the alphabet.");
+            }
+            if (_dense != null) {
+                _dense[c] = k;
+            } else {
+                _sparse.put(c, k);
+            }
+        }
     }
 
     /** A default alphabet of all upper-case characters. */
@@ -24,62 +54,116 @@ class Alphabet {
 
     /** Returns the size of the alphabet. */
     int size() {
-        return alpha.length();
+        return _codePoints.length;
     }
 
-    /** Returns true if CH is in this alphabet. */
-    boolean contains(char ch) {
-        return alpha.indexOf(ch) >= 0;
+    /** Returns true if CH, a character or code point, is in this
+     *  alphabet. */
+    boolean contains(int ch) {
+        return indexOf(ch) >= 0;
     }
 
     /** Returns character number INDEX in the alphabet, where
-     *  0 <= INDEX < size(). */
+     *  0 <= INDEX < size(). The character must not be a supplementary
+     *  character; use toCodePoint for those. */
     char toChar(int index) {
+        int c = toCodePoint(index);
+        if (!isBmpCodePoint(c)) {
+            throw error("Character " + index + " of the alphabet is not"
+                    + " a single char.");
+        }
+        return (char) c;
+    }
+
+    /** Returns the code point of character number INDEX in the alphabet,
+     *  where 0 <= INDEX < size(). */
+    int toCodePoint(int index) {
         if (index < 0 || index >= size()) {
             throw error(index
-                    + "is an invalid index to access in the alphabet.");
+                    + " is an invalid index to access in the alphabet.");
         }
-        return alpha.charAt(index);
+        return _codePoints[index];
     }
 
-    /** Returns the index of character CH which must be in
-     *  the alphabet. This is the inverse of toChar(). */
-    int toInt(char ch) {
-        if (!contains(ch)) {
-            throw error(ch + " must be in the alphabet.");
+    /** Returns the index of CH, a character or code point, which must be
+     *  in the alphabet. This is the inverse of toChar() and
+     *  toCodePoint(). */
+    int toInt(int ch) {
+        int result = indexOf(ch);
+        if (result < 0) {
+            throw error(show(ch)
+                        + " must be in the alphabet.");
         }
-        return alpha.indexOf(ch);
+        return result;
     }
 
-    /** Checks if CHARS is a valid alphabet, which is achieved by containing
-     *  valid characters and not containing repeated characters. If CHARS is an
-     *  invalid alphabet, throw an EnigmaException. */
-    private static void checkAlphabet(String chars) {
-        for (int i = 0; i < chars.length(); i += 1) {
-            char c1 = chars.charAt(i);
-            checkInvalidChar(c1);
-            for (int j = i + 1; j < chars.length(); j += 1) {
-                char c2 = chars.charAt(j);
-                checkEqualChars(c1, c2);
-            }
+    /** Returns the string of the characters whose indices are the first
+     *  LEN entries of INDICES, each of which must be a valid index. */
+    String toString(int[] indices, int len) {
+        StringBuilder result = new StringBuilder(len);
+        for (int i = 0; i < len; i += 1) {
+            result.appendCodePoint(_codePoints[indices[i]]);
         }
+        return result.toString();
+    }
+
+    /** Returns the characters of this alphabet, in order. */
+    String chars() {
+        return alpha;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof Alphabet && ((Alphabet) obj).alpha.equals(alpha);
+    }
+
+    @Override
+    public int hashCode() {
+        return alpha.hashCode();
+    }
+
+    /** Return code point C as a string, or as a number if it is not a
+     *  valid code point. */
+    static String show(int c) {
+        if (isValidCodePoint(c)) {
+            return new String(toChars(c));
+        }
+        return Integer.toString(c);
+    }
+
+    /** Return the index of code point C, or -1 if it is not in this
+     *  alphabet. */
+    int indexOf(int c) {
+        if (_dense != null) {
+            return c >= 0 && c < _dense.length ? _dense[c] : -1;
+        }
+        Integer result = _sparse.get(c);
+        return result == null ? -1 : result;
     }
 
     /** Throws an EnigmaException if C is either
      *  a whitespace character, '*', '(', or ')'. */
-    private static void checkInvalidChar(char c) {
+    private static void checkInvalidChar(int c) {
         if (isWhitespace(c) || c == '*' || c == '(' || c  == ')') {
-            throw error(c + " is an invalid character in the alphabet.");
+            throw error(show(c)
+                        + " is an invalid character in the alphabet.");
         }
     }
 
-    /** Throws an EnigmaException if C1 is the same character as C2. */
-    private static void checkEqualChars(char c1, char c2) {
-        if (c1 == c2) {
-            throw error(c1 + "is repeated in the alphabet.");
-        }
-    }
+    /** Largest code point for which the index is kept in an array rather
+     *  than a hash table, which covers the Basic Multilingual Plane. */
+    private static final int DENSE_LIMIT = 0x10000;
 
     /** Characters that represent this Alphabet. */
     private String alpha;
+
+    /** The code points of my characters, in order. */
+    private final int[] _codePoints;
+
+    /** Index of each code point C in the alphabet at entry C, or -1, if
+     *  all of my code points are below DENSE_LIMIT; otherwise null. */
+    private final int[] _dense;
+
+    /** Index of each of my code points, if _dense is null. */
+    private final HashMap<Integer, Integer> _sparse;
 }
@@ -31,6 +31,14 @@ public class AlphabetTest {
         assertEquals(6, a2.size());
     }
 
+    @Test
+    public void testEquals() {
+        assertEquals(new Alphabet(), upperCaseAlphabet);
+        assertEquals(new Alphabet().hashCode(), upperCaseAlphabet.hashCode());
+        assertFalse(a2.equals(new Alphabet("3BbcD")));
+        assertFalse(a1.equals("!"));
+    }
+
     @Test
     public void testContains() {
         assertTrue(upperCaseAlphabet.contains('K'));
@@ -56,6 +64,32 @@ public class AlphabetTest {
         assertEquals(3, a2.toInt('c'));
     }
 
+    @Test
+    public void testSupplementary() {
+        String chars = "A\uD83D\uDE00B\uD800\uDF48";
+        Alphabet a = new Alphabet(chars);
+        assertEquals(4, a.size());
+        assertEquals(0x1F600, a.toCodePoint(1));
+        assertEquals(3, a.toInt(0x10348));
+        assertTrue(a.contains(0x1F600));
+        assertFalse(a.contains('\uD83D'));
+        assertEquals('B', a.toChar(2));
+        assertEquals(chars, a.chars());
+    }
+
+    @Test
+    public void testLargeAlphabet() {
+        StringBuilder chars = new StringBuilder();
+        for (int c = 0x4E00; c < 0x4E00 + 20000; c += 1) {
+            chars.append((char) c);
+        }
+        chars.appendCodePoint(0x20000);
+        Alphabet a = new Alphabet(chars.toString());
+        assertEquals(20001, a.size());
+        assertEquals(12345, a.toInt(0x4E00 + 12345));
+        assertEquals(20000, a.toInt(0x20000));
+    }
+
     @Test(expected = EnigmaException.class)
     public void testInvalidIndex1() {
         a1.toChar(-1);
@@ -100,4 +134,14 @@ public class AlphabetTest {
     public void testRepeatedCharsAlphabet() {
         new Alphabet("QqQ");
     }
+
+    @Test(expected = EnigmaException.class)
+    public void testRepeatedSupplementary() {
+        new Alphabet("\uD83D\uDE00A\uD83D\uDE00");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testSupplementaryToChar() {
+        new Alphabet("\uD83D\uDE00").toChar(0);
+    }
 }
@@ -0,0 +1,199 @@
+package enigma;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** Converts many messages, each under its own settings, in one call.
+ *  Requests are checked in full first, so that a bad one converts
+ *  nothing. Requests with the same rotors, ring settings, and plugboard
+ *  share one CompiledKey, compiled once, and every result is written into
+ *  a single buffer allocated up front, each at its own offset. The
+ *  conversions may be spread over a ForkJoinPool, since a CompiledKey
+ *  keeps no rotor positions of its own.
+ *  @author Henry Chiong
+ */
+final class BatchConverter {
+
+    /** A converter for the rotors of MACHINE. MACHINE's own settings are
+     *  neither used nor changed. */
+    BatchConverter(Machine machine) {
+        _machine = machine;
+        _alphabet = machine.alphabet();
+        int widest = 1;
+        for (int k = 0; k < _alphabet.size(); k += 1) {
+            widest = Math.max(widest,
+                              Character.charCount(_alphabet.toCodePoint(k)));
+        }
+        _widest = widest;
+    }
+
+    /** One message and the settings under which to convert it. */
+    static final class Request {
+
+        /** A request to convert MESSAGE with the rotors named ROTORS
+         *  (ROTORS[0] names the reflector) at the positions SETTING, with
+         *  the ring settings RINGS and the plugboard cycles PLUGBOARD.
+         *  RINGS and PLUGBOARD may be null for all-zero rings and no
+         *  plugboard. */
+        Request(String[] rotors, String setting, String rings,
+                String plugboard, String message) {
+            _rotors = rotors.clone();
+            _setting = setting;
+            _rings = rings;
+            _plugboard = plugboard == null ? "" : plugboard;
+            _message = message;
+        }
+
+        /** Return a string identifying my rotors, rings, and plugboard. */
+        private String keyName() {
+            return String.join(" ", _rotors) + " " + _rings + " "
+                + _plugboard;
+        }
+
+        /** Names of my rotors. */
+        private final String[] _rotors;
+
+        /** Rotor positions, ring settings, and plugboard cycles. */
+        private final String _setting, _rings, _plugboard;
+
+        /** The message to convert. */
+        private final String _message;
+    }
+
+    /** The results of a batch: the conversion of request I occupies
+     *  chars()[start(I)] .. chars()[end(I) - 1]. */
+    static final class Results {
+
+        /** Results in CHARS with the bounds STARTS and ENDS. */
+        private Results(char[] chars, int[] starts, int[] ends) {
+            _chars = chars;
+            _starts = starts;
+            _ends = ends;
+        }
+
+        /** Return the number of results. */
+        int size() {
+            return _starts.length;
+        }
+
+        /** Return the buffer holding every result. */
+        char[] chars() {
+            return _chars;
+        }
+
+        /** Return the offset in chars() of result I. */
+        int start(int i) {
+            return _starts[i];
+        }
+
+        /** Return the offset in chars() just past result I. */
+        int end(int i) {
+            return _ends[i];
+        }
+
+        /** Return result I as a string. */
+        String get(int i) {
+            return new String(_chars, _starts[i], _ends[i] - _starts[i]);
+        }
+
+        /** The buffer holding every result. */
+        private final char[] _chars;
+
+        /** Bounds of each result in _chars. */
+        private final int[] _starts, _ends;
+    }
+
+    /** Return the conversions of REQUESTS, converted one at a time. */
+    Results convert(List<Request> requests) {
+        return convert(requests, null);
+    }
+
+    /** Return the conversions of REQUESTS, converted in parallel in POOL,
+     *  or one at a time if POOL is null. */
+    Results convert(List<Request> requests, ForkJoinPool pool) {
+        int n = requests.size();
+        CompiledKey[] keys = new CompiledKey[n];
+        int[][] posns = new int[n][];
+        int[][] texts = new int[n][];
+        int[] starts = new int[n];
+        int[] ends = new int[n];
+        HashMap<String, CompiledKey> compiled = new HashMap<>();
+        long total = 0;
+        for (int i = 0; i < n; i += 1) {
+            Request request = requests.get(i);
+            String name = request.keyName();
+            keys[i] = compiled.get(name);
+            if (keys[i] == null) {
+                keys[i] = compile(request);
+                compiled.put(name, keys[i]);
+            }
+            posns[i] = settings(request._setting);
+            texts[i] = Machine.indices(request._message, _alphabet);
+            starts[i] = (int) total;
+            total += (long) _widest * texts[i].length;
+            if (total > Integer.MAX_VALUE) {
+                throw error("Batch is too large.");
+            }
+        }
+        char[] chars = new char[(int) total];
+        if (pool == null) {
+            for (int i = 0; i < n; i += 1) {
+                ends[i] = convert(keys[i], posns[i], texts[i], chars,
+                                  starts[i]);
+            }
+        } else {
+            pool.invoke(new RangeTask(0, n,
+                i -> ends[i] = convert(keys[i], posns[i], texts[i], chars,
+                                       starts[i])));
+        }
+        return new Results(chars, starts, ends);
+    }
+
+    /** Convert TEXT with KEY from the positions POSNS, writing the result
+     *  into CHARS from START. Return the offset just past the result. */
+    private int convert(CompiledKey key, int[] posns, int[] text,
+                        char[] chars, int start) {
+        key.convert(text, text, text.length, posns);
+        int end = start;
+        for (int c : text) {
+            end += Character.toChars(_alphabet.toCodePoint(c), chars, end);
+        }
+        return end;
+    }
+
+    /** Return the key for the rotors, rings, and plugboard of REQUEST. */
+    private CompiledKey compile(Request request) {
+        CompiledKey key = _machine.compile(request._rotors);
+        if (request._rings != null) {
+            key = key.withRings(settings(request._rings));
+        }
+        Permutation plugboard =
+            new Permutation(request._plugboard, _alphabet);
+        return key.withPlugboard(CompiledRotor.table(plugboard));
+    }
+
+    /** Return SETTING, a string of numRotors()-1 characters of my
+     *  alphabet, as indices with 0 for the reflector first. */
+    private int[] settings(String setting) {
+        int[] indices = Machine.indices(setting, _alphabet);
+        if (indices.length != _machine.numRotors() - 1) {
+            throw error("Setting length must be one less than the"
+                        + " number of rotors to be used.");
+        }
+        int[] result = new int[indices.length + 1];
+        System.arraycopy(indices, 0, result, 1, indices.length);
+        return result;
+    }
+
+    /** The machine whose rotors I use. */
+    private final Machine _machine;
+
+    /** The alphabet of _machine. */
+    private final Alphabet _alphabet;
+
+    /** Largest number of chars taken by a character of _alphabet. */
+    private final int _widest;
+}
@@ -0,0 +1,134 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the BatchConverter class.
+ *  @author Henry Chiong
+ */
+public class BatchConverterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Rotor orders used by the tests. */
+    private static final String[][] ORDERS = {
+        {"B", "Beta", "III", "IV", "I"},
+        {"C", "Gamma", "V", "II", "IV"},
+    };
+
+    /** Return random requests for the naval machine from RANDOM. */
+    private static List<BatchConverter.Request> requests(Random random) {
+        List<BatchConverter.Request> result = new ArrayList<>();
+        for (int i = 0; i < 40; i += 1) {
+            result.add(new BatchConverter.Request(
+                ORDERS[i % 2], CompiledKeyTest.randomString(random, 4),
+                i % 3 == 0 ? null : "AAB" + (char) ('A' + i % 4),
+                i % 4 == 0 ? null : "(AQ) (EX) (IP)",
+                CompiledKeyTest.randomString(random, random.nextInt(60))));
+        }
+        return result;
+    }
+
+    /** Return the conversion of MESSAGE by a machine set up in full with
+     *  ROTORS, SETTING, RINGS, and PLUGBOARD. */
+    private static String expected(String[] rotors, String setting,
+                                   String rings, String plugboard,
+                                   String message) {
+        Machine m = CompiledKeyTest.navalMachine();
+        m.insertRotors(rotors);
+        m.setRotors(setting);
+        if (rings != null) {
+            m.setRingRotors(rings);
+        }
+        m.setPlugboard(new Permutation(plugboard == null ? "" : plugboard,
+                                       UPPER));
+        return m.convert(message);
+    }
+
+    /** Check that BATCH converts requests generated from the seed SEED
+     *  as a machine would, in POOL. */
+    private static void check(BatchConverter batch, long seed,
+                              ForkJoinPool pool) {
+        Random random = new Random(seed);
+        List<BatchConverter.Request> requests = requests(random);
+        BatchConverter.Results results = batch.convert(requests, pool);
+        assertEquals(requests.size(), results.size());
+        random = new Random(seed);
+        for (int i = 0; i < requests.size(); i += 1) {
+            String setting = CompiledKeyTest.randomString(random, 4);
+            String message =
+                CompiledKeyTest.randomString(random, random.nextInt(60));
+            String rings = i % 3 == 0 ? null : "AAB" + (char) ('A' + i % 4);
+            String plugboard = i % 4 == 0 ? null : "(AQ) (EX) (IP)";
+            assertEquals(expected(ORDERS[i % 2], setting,
+                                  rings, plugboard, message),
+                         results.get(i));
+        }
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSequential() {
+        check(new BatchConverter(CompiledKeyTest.navalMachine()), 61, null);
+    }
+
+    @Test
+    public void testParallel() {
+        check(new BatchConverter(CompiledKeyTest.navalMachine()), 62,
+              ForkJoinPool.commonPool());
+    }
+
+    @Test
+    public void testOffsets() {
+        BatchConverter batch =
+            new BatchConverter(CompiledKeyTest.navalMachine());
+        List<BatchConverter.Request> requests = new ArrayList<>();
+        requests.add(new BatchConverter.Request(ORDERS[0], "AXLE", null,
+                                                null, "HELLO"));
+        requests.add(new BatchConverter.Request(ORDERS[0], "AXLE", null,
+                                                null, ""));
+        requests.add(new BatchConverter.Request(ORDERS[0], "AXLE", null,
+                                                null, "HEL"));
+        BatchConverter.Results results = batch.convert(requests);
+        assertEquals(8, results.chars().length);
+        assertEquals(5, results.start(1));
+        assertEquals(5, results.end(1));
+        assertEquals("", results.get(1));
+        assertEquals(results.get(0).substring(0, 3), results.get(2));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadSetting() {
+        BatchConverter batch =
+            new BatchConverter(CompiledKeyTest.navalMachine());
+        List<BatchConverter.Request> requests = new ArrayList<>();
+        requests.add(new BatchConverter.Request(ORDERS[0], "AXLE", null,
+                                                null, "HELLO"));
+        requests.add(new BatchConverter.Request(ORDERS[0], "AXL", null,
+                                                null, "HELLO"));
+        batch.convert(requests);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadMessage() {
+        List<BatchConverter.Request> requests = new ArrayList<>();
+        requests.add(new BatchConverter.Request(ORDERS[0], "AXLE", null,
+                                                null, "hello"));
+        new BatchConverter(CompiledKeyTest.navalMachine()).convert(requests);
+    }
+}
@@ -0,0 +1,242 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** Runs one compiled key in many independent states ("lanes") at once,
+ *  for encrypting the same text under thousands of rotor positions. The
+ *  state is kept as a structure of arrays: for each rotor slot there is an
+ *  int array holding that rotor's position in every lane, so stepping and
+ *  converting are simple loops over the lanes of one slot at a time, each
+ *  looking up the same shared table.
+ *
+ *  Each rotor's conversions under every shift are expanded into a single
+ *  table indexed by shift * size + input, so the conversion loops have no
+ *  wrapping or branches in them. The lanes are independent, and each
+ *  gives exactly the results of CompiledKey run on that lane's positions.
+ *  The expanded tables are IndexTables, normally as narrow as the alphabet
+ *  allows: for 26 characters, the ten tables of a five-rotor key take
+ *  under 7KB as bytes, whereas as ints they would crowd a typical 32KB L1
+ *  data cache.
+ *
+ *  The lane loops are plain Java, without the jdk.incubator.vector API:
+ *  that module must be added with --add-modules, and then both javac and
+ *  java warn that an incubating module is in use, which would break the
+ *  warning-clean build.
+ *  @author Henry Chiong
+ */
+final class BatchEngine {
+
+    /** An engine running KEY in LANES lanes, all at positions 0. */
+    BatchEngine(CompiledKey key, int lanes) {
+        this(key, lanes, IndexTable.widthFor(key.size()));
+    }
+
+    /** An engine running KEY in LANES lanes, all at positions 0, whose
+     *  expanded rotor tables store WIDTH bytes per entry. */
+    BatchEngine(CompiledKey key, int lanes, int width) {
+        if (lanes <= 0) {
+            throw error("A batch must have at least one lane.");
+        } else if ((long) key.size() * key.size() > Integer.MAX_VALUE) {
+            throw error("Alphabet too large for a batch engine.");
+        }
+        int n = key.numRotors();
+        _key = key;
+        _size = key.size();
+        _lanes = lanes;
+        _posns = new int[n][lanes];
+        _offsets = new int[n][lanes];
+        _forward = new IndexTable[n];
+        _backward = new IndexTable[n];
+        _notches = new boolean[n][_size];
+        int[] forward = new int[_size * _size];
+        int[] backward = new int[_size * _size];
+        for (int k = 0; k < n; k += 1) {
+            CompiledRotor rotor = key.rotor(k);
+            for (int shift = 0; shift < _size; shift += 1) {
+                for (int p = 0; p < _size; p += 1) {
+                    forward[shift * _size + p] = rotor.forward(p, shift);
+                    backward[shift * _size + p] = rotor.backward(p, shift);
+                }
+            }
+            _forward[k] = new IndexTable(forward, _size, width);
+            _backward[k] = new IndexTable(backward, _size, width);
+            for (int p = 0; p < _size; p += 1) {
+                _notches[k][p] = rotor.atNotch(p);
+            }
+            setOffsets(k);
+        }
+        _plugboard = new int[_size];
+        _plugboardInverse = new int[_size];
+        for (int c = 0; c < _size; c += 1) {
+            _plugboard[c] = key.plugboard(c);
+            _plugboardInverse[key.plugboard(c)] = c;
+        }
+        _carry = new boolean[lanes];
+        _current = new int[lanes];
+    }
+
+    /** Return the approximate number of bytes of memory used by the
+     *  rotor tables of an engine over an alphabet of SIZE characters with
+     *  NUMROTORS rotors, which grow with the square of SIZE. */
+    static long tableBytes(int size, int numRotors) {
+        return 2 * numRotors * IndexTable.tableBytes((long) size * size, size)
+            + CompiledKey.tableBytes(size, numRotors);
+    }
+
+    /** Return my key. */
+    CompiledKey key() {
+        return _key;
+    }
+
+    /** Return the number of my lanes. */
+    int lanes() {
+        return _lanes;
+    }
+
+    /** Set the rotor positions of LANE to POSNS, as for CompiledKey. */
+    void setPositions(int lane, int[] posns) {
+        if (posns.length != _posns.length) {
+            throw error("Positions must match the rotors.");
+        }
+        for (int k = 0; k < posns.length; k += 1) {
+            if (posns[k] < 0 || posns[k] >= _size) {
+                throw error("Position out of range.");
+            }
+            _posns[k][lane] = posns[k];
+            _offsets[k][lane] = offset(k, posns[k]);
+        }
+    }
+
+    /** Return the rotor positions of LANE, as for CompiledKey. */
+    int[] positions(int lane) {
+        int[] result = new int[_posns.length];
+        for (int k = 0; k < result.length; k += 1) {
+            result[k] = _posns[k][lane];
+        }
+        return result;
+    }
+
+    /** Advance the rotors of every lane as CompiledKey.step does. */
+    void step() {
+        int last = _posns.length - 1;
+        int pawls = _key.numPawls();
+        for (int i = 1; i <= pawls; i += 1) {
+            int k = last - i + 1;
+            int[] posns = _posns[k];
+            boolean[] notches = _notches[k];
+            boolean rotates = _key.rotor(k).rotates();
+            boolean first = i == 1, ownNotch = i != pawls;
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                boolean notch = notches[posns[lane]];
+                boolean advance = first || _carry[lane]
+                    || (notch && ownNotch);
+                _carry[lane] = advance && notch;
+                if (advance && rotates) {
+                    posns[lane] = posns[lane] + 1 == _size
+                        ? 0 : posns[lane] + 1;
+                }
+            }
+            if (rotates) {
+                setOffsets(k);
+            }
+        }
+    }
+
+    /** Store in OUT[L] the conversion of IN[L] by lane L, for every lane
+     *  L, without advancing the rotors. IN and OUT may be the same
+     *  array. */
+    void convertAt(int[] in, int[] out) {
+        int[] cur = _current;
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            cur[lane] = _plugboard[in[lane]];
+        }
+        for (int k = _posns.length - 1; k >= 0; k -= 1) {
+            lookup(_forward[k], _offsets[k], cur);
+        }
+        for (int k = 1; k < _posns.length; k += 1) {
+            lookup(_backward[k], _offsets[k], cur);
+        }
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            out[lane] = _plugboardInverse[cur[lane]];
+        }
+    }
+
+    /** Advance the rotors of every lane, then store in OUT[L] the
+     *  conversion of IN[L] by lane L. IN and OUT may be the same array. */
+    void convert(int[] in, int[] out) {
+        step();
+        convertAt(in, out);
+    }
+
+    /** Convert the first LEN indices of TEXT in every lane, advancing the
+     *  rotors before each one, and store the conversion by lane L in
+     *  OUT[L]. */
+    void convert(int[] text, int len, int[][] out) {
+        if (out.length < _lanes) {
+            throw error("Output must have a row for every lane.");
+        }
+        int[] column = new int[_lanes];
+        for (int t = 0; t < len; t += 1) {
+            Arrays.fill(column, text[t]);
+            convert(column, column);
+            for (int lane = 0; lane < _lanes; lane += 1) {
+                out[lane][t] = column[lane];
+            }
+        }
+    }
+
+    /** Replace each CUR[L] by entry OFFSETS[L] + CUR[L] of TABLE. */
+    private void lookup(IndexTable table, int[] offsets, int[] cur) {
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            cur[lane] = table.get(offsets[lane] + cur[lane]);
+        }
+    }
+
+    /** Recompute the table offsets of slot K in every lane. */
+    private void setOffsets(int k) {
+        int[] posns = _posns[k], offsets = _offsets[k];
+        for (int lane = 0; lane < _lanes; lane += 1) {
+            offsets[lane] = offset(k, posns[lane]);
+        }
+    }
+
+    /** Return the table offset of slot K at position POSN. */
+    private int offset(int k, int posn) {
+        int shift = posn - _key.ring(k);
+        return (shift < 0 ? shift + _size : shift) * _size;
+    }
+
+    /** The key I run. */
+    private final CompiledKey _key;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Number of lanes. */
+    private final int _lanes;
+
+    /** _posns[K][L] is the position of slot K in lane L. */
+    private final int[][] _posns;
+
+    /** _offsets[K][L] is the offset of the current shift of slot K in lane
+     *  L into the tables of that slot. */
+    private final int[][] _offsets;
+
+    /** Entry SHIFT * size + P of _forward[K] is the conversion of P by
+     *  slot K at shift SHIFT; _backward is the same for the inverse. */
+    private final IndexTable[] _forward, _backward;
+
+    /** _notches[K][P] is true iff slot K has a notch at position P. */
+    private final boolean[][] _notches;
+
+    /** The plugboard and its inverse. */
+    private final int[] _plugboard, _plugboardInverse;
+
+    /** Carry of each lane while stepping. */
+    private final boolean[] _carry;
+
+    /** Characters of each lane while converting. */
+    private final int[] _current;
+}
@@ -0,0 +1,91 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the BatchEngine class.
+ *  @author Henry Chiong
+ */
+public class BatchEngineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMatchesCompiledKey() {
+        Random random = new Random(61);
+        Machine m = CompiledKeyTest.navalMachine();
+        m.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+        m.setRingRotors(CompiledKeyTest.randomString(random, 4));
+        m.setPlugboard(new Permutation("(AQ) (EX) (IP) (TR) (BY)", UPPER));
+        CompiledKey key = m.compile();
+        int lanes = 37;
+        BatchEngine engine = new BatchEngine(key, lanes);
+        int[][] starts = new int[lanes][];
+        for (int lane = 0; lane < lanes; lane += 1) {
+            starts[lane] = positions(key,
+                CompiledKeyTest.randomString(random, 4), UPPER);
+            engine.setPositions(lane, starts[lane]);
+        }
+        int[] text = CiphertextAttack.indices(
+            CompiledKeyTest.randomString(random, 1000), UPPER);
+        int[][] out = new int[lanes][text.length];
+        engine.convert(text, text.length, out);
+        for (int lane = 0; lane < lanes; lane += 1) {
+            int[] expected = new int[text.length];
+            key.convert(text, expected, text.length, starts[lane]);
+            assertArrayEquals(expected, out[lane]);
+            assertArrayEquals(starts[lane], engine.positions(lane));
+        }
+    }
+
+    @Test
+    public void testTableWidths() {
+        Machine m = CompiledKeyTest.navalMachine();
+        CompiledKey key = m.compile(new String[] {"B", "Beta", "I", "II",
+                                                  "III"});
+        int[] text = CiphertextAttack.indices("HELLOWORLDHELLOWORLD", UPPER);
+        int[][] expected = new int[3][text.length];
+        new BatchEngine(key, 3).convert(text, text.length, expected);
+        for (int width : new int[] {2, 4}) {
+            int[][] out = new int[3][text.length];
+            new BatchEngine(key, 3, width).convert(text, text.length, out);
+            for (int lane = 0; lane < 3; lane += 1) {
+                assertArrayEquals(expected[lane], out[lane]);
+            }
+        }
+    }
+
+    @Test
+    public void testDoubleStep() {
+        Machine m = CompiledKeyTest.navalMachine();
+        CompiledKey key = m.compile(new String[] {"B", "Beta", "I", "II",
+                                                  "III"});
+        BatchEngine engine = new BatchEngine(key, 2);
+        engine.setPositions(0, positions(key, "AADU", UPPER));
+        engine.setPositions(1, positions(key, "AAAA", UPPER));
+        engine.step();
+        engine.step();
+        engine.step();
+        assertArrayEquals(positions(key, "ABFX", UPPER), engine.positions(0));
+        assertArrayEquals(positions(key, "AAAD", UPPER), engine.positions(1));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadPositions() {
+        Machine m = CompiledKeyTest.navalMachine();
+        CompiledKey key = m.compile(new String[] {"B", "Beta", "I", "II",
+                                                  "III"});
+        new BatchEngine(key, 4).setPositions(0, new int[] {0, 0, 0});
+    }
+}
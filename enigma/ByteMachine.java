@@ -0,0 +1,543 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Scanner;
+
+import static enigma.EnigmaException.*;
+
+/** An enigma machine over the 256 byte values, for enciphering arbitrary
+ *  binary data. Its rotors are CompiledRotors whose wirings are byte
+ *  tables, either listed in a configuration file or generated from a
+ *  seed, and it converts byte arrays, streams, and channels in bulk with
+ *  no character decoding.
+ *
+ *  Each rotor's conversions under every shift are expanded into tables.
+ *  Between steps of the rotors to the left of the rightmost one, which
+ *  occur only about once every SIZE bytes, those rotors and the reflector
+ *  act as a fixed permutation. It is kept in a table, built from a
+ *  table for each further rotor to the left that is rebuilt only when
+ *  that rotor moves, so each byte needs three lookups besides the
+ *  plugboard, and the full stepping logic runs only at notches.
+ *
+ *  A configuration file has the form
+ *
+ *      <number of rotor slots> <number of pawls>
+ *      <name> <type and notches> <wiring>
+ *      ...
+ *
+ *  where the type is M (moving), N (fixed), or R (reflector), followed
+ *  for a moving rotor by its notches as two-digit hexadecimal numbers,
+ *  and the wiring is either the 256 images of 0..255 as two-digit
+ *  hexadecimal numbers, or seed=N to generate a wiring from the number N.
+ *  @author Henry Chiong
+ */
+final class ByteMachine {
+
+    /** Number of symbols. */
+    static final int SIZE = 256;
+
+    /** Encipher the file ARGS[2] into the file ARGS[3] with the machine
+     *  configured by the file ARGS[0] at the settings ARGS[1]: the rotor
+     *  names, the start positions as hexadecimal digit pairs, and
+     *  optionally the ring settings in the same form and the plugboard as
+     *  comma-separated pairs such as 0A1B,FF00. With the arguments
+     *  "generate SEED OUT", write a configuration with generated wirings
+     *  to OUT instead. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length == 3 && args[0].equals("generate")) {
+                Files.write(Paths.get(args[2]),
+                            generateConfig(Long.parseLong(args[1]))
+                            .getBytes());
+                return;
+            }
+            if (args.length != 4) {
+                throw error("Usage: CONFIG SETTINGS INPUT OUTPUT"
+                            + " | generate SEED OUT");
+            }
+            ByteMachine machine = readConfig(args[0]);
+            machine.setUp(args[1]);
+            try (FileChannel in = FileChannel.open(Paths.get(args[2]));
+                 FileChannel out = FileChannel.open(Paths.get(args[3]),
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE,
+                        StandardOpenOption.TRUNCATE_EXISTING)) {
+                machine.convert(in, out);
+            }
+            return;
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad seed%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A new byte machine with NUMROTORS slots and PAWLS pawls, using the
+     *  rotors in ALLROTORS. */
+    ByteMachine(int numRotors, int pawls,
+                Collection<CompiledRotor> allRotors) {
+        if (numRotors <= 1 || pawls < 0 || pawls >= numRotors) {
+            throw error("Number of rotors must be greater than 1, and"
+                    + " number of pawls must be between 0 and the number"
+                    + " of rotors.");
+        }
+        _numRotors = numRotors;
+        _pawls = pawls;
+        for (CompiledRotor rotor : allRotors) {
+            if (rotor.size() != SIZE) {
+                throw error("Rotor %s must have 256 positions.",
+                            rotor.name());
+            }
+            if (_allRotors.put(rotor.name(), rotor) != null) {
+                throw error("There must not be repeated rotors.");
+            }
+        }
+        _posns = new int[numRotors];
+        _cached = new int[numRotors];
+        _forward = new int[numRotors][SIZE * SIZE];
+        _backward = new int[numRotors][SIZE * SIZE];
+        _levels = new int[numRotors - 1][SIZE];
+        _plugboard = CompiledKey.identity(SIZE);
+    }
+
+    /** Return the number of rotor slots I have. */
+    int numRotors() {
+        return _numRotors;
+    }
+
+    /** Return the number of pawls I have. */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Set my rotor slots to the rotors named ROTORS from my set of
+     *  available rotors (ROTORS[0] names the reflector), with all rings and
+     *  positions at 0 and no plugboard. */
+    void insertRotors(String[] rotors) {
+        if (rotors.length != _numRotors) {
+            throw error("There must be " + _numRotors
+                        + " rotors to insert.");
+        }
+        CompiledRotor[] slots = new CompiledRotor[rotors.length];
+        for (int i = 0; i < rotors.length; i += 1) {
+            slots[i] = _allRotors.get(rotors[i]);
+            if (slots[i] == null) {
+                throw error("Only valid rotors may be inserted.");
+            }
+            for (int j = 0; j < i; j += 1) {
+                if (rotors[i].equals(rotors[j])) {
+                    throw error("There must not be repeated rotors.");
+                }
+            }
+            boolean moving = i >= _numRotors - _pawls;
+            if ((i == 0) != slots[i].reflecting()) {
+                throw error("Only the first rotor may be a reflector.");
+            } else if (i > 0 && moving != slots[i].rotates()) {
+                throw error("The rightmost " + _pawls
+                            + " rotors must be the moving rotors.");
+            }
+        }
+        _key = new CompiledKey(slots, _pawls);
+        for (int k = 0; k < _numRotors; k += 1) {
+            for (int shift = 0; shift < SIZE; shift += 1) {
+                for (int c = 0; c < SIZE; c += 1) {
+                    _forward[k][shift * SIZE + c] =
+                        slots[k].forward(c, shift);
+                    _backward[k][shift * SIZE + c] =
+                        slots[k].backward(c, shift);
+                }
+            }
+        }
+        _posns = new int[_numRotors];
+        _plugboard = CompiledKey.identity(SIZE);
+        invalidate();
+    }
+
+    /** Set my rotors according to SETTINGS: the rotor names, the start
+     *  positions and optionally the ring settings as hexadecimal digit
+     *  pairs, and optionally the plugboard as comma-separated pairs of
+     *  hexadecimal digit pairs. */
+    void setUp(String settings) {
+        String[] fields = settings.trim().split("\\s+");
+        if (fields.length < _numRotors + 1
+            || fields.length > _numRotors + 3) {
+            throw error("Bad settings: %s", settings);
+        }
+        String[] rotors = new String[_numRotors];
+        System.arraycopy(fields, 0, rotors, 0, _numRotors);
+        insertRotors(rotors);
+        int[] posns = hexBytes(fields[_numRotors]);
+        int[] rings = new int[_numRotors - 1];
+        if (fields.length > _numRotors + 1) {
+            rings = hexBytes(fields[_numRotors + 1]);
+        }
+        int[] plugboard = CompiledKey.identity(SIZE);
+        if (fields.length > _numRotors + 2) {
+            for (String pair : fields[_numRotors + 2].split(",")) {
+                int[] ab = hexBytes(pair);
+                if (ab.length != 2 || plugboard[ab[0]] != ab[0]
+                    || plugboard[ab[1]] != ab[1] || ab[0] == ab[1]) {
+                    throw error("Bad plugboard pair: %s", pair);
+                }
+                plugboard[ab[0]] = ab[1];
+                plugboard[ab[1]] = ab[0];
+            }
+        }
+        setRings(rings);
+        setPlugboard(plugboard);
+        setRotors(posns);
+    }
+
+    /** Set the positions of my rotors, other than the reflector, to
+     *  POSNS. */
+    void setRotors(int[] posns) {
+        checkSetting(posns);
+        for (int k = 1; k < _numRotors; k += 1) {
+            _posns[k] = posns[k - 1];
+        }
+        invalidate();
+    }
+
+    /** Set the ring settings of my rotors, other than the reflector, to
+     *  RINGS. */
+    void setRings(int[] rings) {
+        checkSetting(rings);
+        int[] all = new int[_numRotors];
+        System.arraycopy(rings, 0, all, 1, rings.length);
+        _key = key().withRings(all);
+        invalidate();
+    }
+
+    /** Set my plugboard to map byte K to PLUGBOARD[K], which must be its
+     *  own inverse. */
+    void setPlugboard(int[] plugboard) {
+        for (int k = 0; k < plugboard.length; k += 1) {
+            if (plugboard[k] < 0 || plugboard[k] >= plugboard.length
+                || plugboard[plugboard[k]] != k) {
+                throw error("Plugboard must consist of swapped pairs.");
+            }
+        }
+        _key = key().withPlugboard(plugboard);
+        _plugboard = plugboard.clone();
+    }
+
+    /** Return a copy of my rotor positions, as for CompiledKey. */
+    int[] positions() {
+        return _posns.clone();
+    }
+
+    /** Convert the LEN bytes of BUF starting at OFF in place, advancing
+     *  my rotors before each one. */
+    void convert(byte[] buf, int off, int len) {
+        CompiledKey key = key();
+        int last = _numRotors - 1;
+        CompiledRotor right = key.rotor(last);
+        boolean rotates = right.rotates();
+        int ring = key.ring(last);
+        int[] plug = _plugboard, middle = _levels[last - 1];
+        int[] forward = _forward[last], backward = _backward[last];
+        updateLevels();
+        int posn = _posns[last];
+        for (int i = off; i < off + len; i += 1) {
+            if (!rotates || _selfStep || right.atNotch(posn)) {
+                _posns[last] = posn;
+                key.step(_posns);
+                posn = _posns[last];
+                updateLevels();
+            } else {
+                posn = posn + 1 == SIZE ? 0 : posn + 1;
+            }
+            int base = ((posn - ring) & BYTE_MASK) * SIZE;
+            int c = plug[buf[i] & BYTE_MASK];
+            c = backward[base + middle[forward[base + c]]];
+            buf[i] = (byte) plug[c];
+        }
+        _posns[last] = posn;
+    }
+
+    /** Convert all of IN into OUT, advancing my rotors before each byte,
+     *  and return the number of bytes converted. */
+    long convert(InputStream in, OutputStream out) throws IOException {
+        byte[] buf = new byte[BUFFER_SIZE];
+        long total = 0;
+        int n;
+        while ((n = in.read(buf)) > 0) {
+            convert(buf, 0, n);
+            out.write(buf, 0, n);
+            total += n;
+        }
+        out.flush();
+        return total;
+    }
+
+    /** Convert all of IN into OUT, advancing my rotors before each byte,
+     *  and return the number of bytes converted. */
+    long convert(ReadableByteChannel in, WritableByteChannel out)
+        throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        long total = 0;
+        while (in.read(buffer) >= 0 || buffer.position() > 0) {
+            buffer.flip();
+            convert(buffer.array(), buffer.arrayOffset(), buffer.limit());
+            total += buffer.limit();
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            buffer.clear();
+        }
+        return total;
+    }
+
+    /** Return a byte machine configured from the contents of the file
+     *  named NAME, decoded as UTF-8. */
+    static ByteMachine readConfig(String name) {
+        try {
+            return parseConfig(new String(Files.readAllBytes(
+                Paths.get(name)), StandardCharsets.UTF_8));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a byte machine configured from CONFIG, the contents of a
+     *  configuration file. */
+    static ByteMachine parseConfig(String config) {
+        Scanner scanner = new Scanner(config);
+        try {
+            int numRotors = scanner.nextInt();
+            int pawls = scanner.nextInt();
+            ArrayList<CompiledRotor> rotors = new ArrayList<>();
+            while (scanner.hasNext()) {
+                rotors.add(readRotor(scanner.next(), scanner.next(),
+                                     scanner.next()));
+            }
+            return new ByteMachine(numRotors, pawls, rotors);
+        } catch (NoSuchElementException excp) {
+            throw error("Configuration file truncated.");
+        }
+    }
+
+    /** Return a configuration with two reflectors B and C, two fixed rotors
+     *  Beta and Gamma, and five moving rotors I through V, all generated
+     *  from seeds derived from SEED, for 5 slots and 3 pawls. */
+    static String generateConfig(long seed) {
+        Random random = new Random(seed);
+        StringBuilder result = new StringBuilder("5 3\n");
+        String[] names = {"B", "C", "Beta", "Gamma", "I", "II", "III", "IV",
+                          "V"};
+        for (int i = 0; i < names.length; i += 1) {
+            String type = i < 2 ? "R" : i < 4 ? "N" : "M";
+            if (type.equals("M")) {
+                type += String.format("%02X", random.nextInt(SIZE));
+            }
+            result.append(String.format("%s %s seed=%d%n", names[i], type,
+                                        random.nextLong()));
+        }
+        return result.toString();
+    }
+
+    /** Return a rotor named NAME of type and notches TYPE, wired as given
+     *  by WIRING, as in a configuration file. */
+    static CompiledRotor readRotor(String name, String type, String wiring) {
+        char kind = type.charAt(0);
+        if ((kind != 'M' && type.length() > 1) || "MNR".indexOf(kind) < 0) {
+            throw error("Bad type of rotor %s: %s", name, type);
+        }
+        boolean[] notches = new boolean[SIZE];
+        for (int n : hexBytes(type.substring(1))) {
+            notches[n] = true;
+        }
+        int[] forward;
+        if (wiring.startsWith("seed=")) {
+            long seed;
+            try {
+                seed = Long.parseLong(wiring.substring(5));
+            } catch (NumberFormatException excp) {
+                throw error("Bad seed for rotor %s", name);
+            }
+            forward = kind == 'R' ? randomReflection(new Random(seed))
+                : randomPermutation(new Random(seed));
+        } else {
+            forward = hexBytes(wiring);
+            if (forward.length != SIZE) {
+                throw error("Wiring of %s must have 256 entries.", name);
+            }
+        }
+        if (kind == 'R') {
+            for (int k = 0; k < SIZE; k += 1) {
+                if (forward[k] == k || forward[forward[k]] != k) {
+                    throw error("Reflector's permutation must be a"
+                                + " derangement of swapped pairs.");
+                }
+            }
+        }
+        return new CompiledRotor(name, forward, notches, kind == 'M',
+                                 kind == 'R');
+    }
+
+    /** Return a random permutation of 0..SIZE-1 drawn from RANDOM. */
+    static int[] randomPermutation(Random random) {
+        int[] result = CompiledKey.identity(SIZE);
+        for (int i = SIZE - 1; i > 0; i -= 1) {
+            int j = random.nextInt(i + 1);
+            int x = result[i];
+            result[i] = result[j];
+            result[j] = x;
+        }
+        return result;
+    }
+
+    /** Return a random pairing of 0..SIZE-1 drawn from RANDOM, which maps
+     *  each value to its partner. */
+    static int[] randomReflection(Random random) {
+        int[] order = randomPermutation(random);
+        int[] result = new int[SIZE];
+        for (int i = 0; i < SIZE; i += 2) {
+            result[order[i]] = order[i + 1];
+            result[order[i + 1]] = order[i];
+        }
+        return result;
+    }
+
+    /** Return the values of the hexadecimal digit pairs in S. */
+    static int[] hexBytes(String s) {
+        if (s.length() % 2 != 0) {
+            throw error("Hexadecimal values must be digit pairs: %s", s);
+        }
+        int[] result = new int[s.length() / 2];
+        for (int i = 0; i < result.length; i += 1) {
+            int hi = Character.digit(s.charAt(2 * i), HEX);
+            int lo = Character.digit(s.charAt(2 * i + 1), HEX);
+            if (hi < 0 || lo < 0) {
+                throw error("Bad hexadecimal value: %s", s);
+            }
+            result[i] = hi * HEX + lo;
+        }
+        return result;
+    }
+
+    /** Throw an EnigmaException unless SETTING has one byte value for each
+     *  rotor other than the reflector. */
+    private void checkSetting(int[] setting) {
+        if (setting.length != _numRotors - 1) {
+            throw error("Setting length must be one less than the number"
+                        + " of rotors to be used.");
+        }
+        for (int s : setting) {
+            if (s < 0 || s >= SIZE) {
+                throw error("Setting out of range.");
+            }
+        }
+    }
+
+    /** Return my current key, which must exist. */
+    private CompiledKey key() {
+        if (_key == null) {
+            throw error("Rotors must be inserted first.");
+        }
+        return _key;
+    }
+
+    /** Note that all of _levels must be recomputed. */
+    private void invalidate() {
+        _validLevels = 0;
+    }
+
+    /** Recompute the entries of _levels that do not reflect the current
+     *  rotor positions, and _selfStep. */
+    private void updateLevels() {
+        int last = _numRotors - 1;
+        int k = 0;
+        while (k < _validLevels && _cached[k] == _posns[k]) {
+            k += 1;
+        }
+        if (k == last) {
+            return;
+        }
+        for (; k < last; k += 1) {
+            int base = ((_posns[k] - _key.ring(k)) & BYTE_MASK) * SIZE;
+            int[] level = _levels[k], forward = _forward[k];
+            if (k == 0) {
+                System.arraycopy(forward, base, level, 0, SIZE);
+            } else {
+                int[] inner = _levels[k - 1], backward = _backward[k];
+                for (int x = 0; x < SIZE; x += 1) {
+                    level[x] = backward[base + inner[forward[base + x]]];
+                }
+            }
+            _cached[k] = _posns[k];
+        }
+        _validLevels = last;
+        _selfStep = false;
+        for (k = last - _pawls + 2; k < last; k += 1) {
+            _selfStep |= _key.rotor(k).atNotch(_posns[k]);
+        }
+    }
+
+    /** Bytes converted at a time by the streaming conversions. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Mask selecting the low byte of an int. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** Radix of hexadecimal numbers. */
+    private static final int HEX = 16;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** Number of pawls. */
+    private final int _pawls;
+
+    /** Available rotors, by name. */
+    private final Map<String, CompiledRotor> _allRotors =
+        new LinkedHashMap<>();
+
+    /** Current key, or null if no rotors are inserted. */
+    private CompiledKey _key;
+
+    /** Current rotor positions. */
+    private int[] _posns;
+
+    /** Entry SHIFT * SIZE + C of _forward[K] is the conversion of C by
+     *  the rotor in slot K at shift SHIFT; _backward is the same for the
+     *  inverse. */
+    private final int[][] _forward, _backward;
+
+    /** _levels[K] is the permutation made by the rotors in slots 0..K
+     *  together, entering and leaving through slot K. The last of these is
+     *  the permutation made by all but the rightmost rotor. */
+    private final int[][] _levels;
+
+    /** The positions of the rotors for which _levels was computed. */
+    private final int[] _cached;
+
+    /** Number of entries of _levels that are valid for _cached. */
+    private int _validLevels;
+
+    /** True iff a moving rotor other than the leftmost and rightmost is at
+     *  a notch, so that it will step along with the rightmost rotor. */
+    private boolean _selfStep;
+
+    /** Current plugboard. */
+    private int[] _plugboard;
+}
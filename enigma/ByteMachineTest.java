@@ -0,0 +1,151 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the ByteMachine class.
+ *  @author Henry Chiong
+ */
+public class ByteMachineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Settings used by the tests. */
+    private static final String SETTINGS =
+        "B Beta III IV I 00FF7F10 01020304 0A1B,FF00";
+
+    /** Return a machine with generated rotors set up with SETTINGS. */
+    private ByteMachine machine() {
+        ByteMachine result =
+            ByteMachine.parseConfig(ByteMachine.generateConfig(61));
+        result.setUp(SETTINGS);
+        return result;
+    }
+
+    /** Return LEN random bytes. */
+    private byte[] randomBytes(int len) {
+        byte[] result = new byte[len];
+        new Random(61).nextBytes(result);
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMatchesCompiledKey() {
+        ByteMachine m = machine();
+        String[] names = {"B", "Beta", "III", "IV", "I"};
+        CompiledRotor[] rotors = new CompiledRotor[names.length];
+        String config = ByteMachine.generateConfig(61);
+        for (String line : config.split("\n")) {
+            String[] fields = line.trim().split(" ");
+            for (int k = 0; k < names.length; k += 1) {
+                if (fields.length == 3 && fields[0].equals(names[k])) {
+                    rotors[k] = ByteMachine.readRotor(fields[0], fields[1],
+                                                      fields[2]);
+                }
+            }
+        }
+        int[] plugboard = CompiledKey.identity(256);
+        plugboard[0x0A] = 0x1B;
+        plugboard[0x1B] = 0x0A;
+        plugboard[0xFF] = 0x00;
+        plugboard[0x00] = 0xFF;
+        CompiledKey key = new CompiledKey(rotors, 3,
+                                          new int[] {0, 1, 2, 3, 4},
+                                          plugboard);
+        int[] posns = {0, 0x00, 0xFF, 0x7F, 0x10};
+        assertArrayEquals(posns, m.positions());
+
+        byte[] data = randomBytes(70000);
+        byte[] converted = data.clone();
+        m.convert(converted, 0, converted.length);
+        for (int i = 0; i < data.length; i += 1) {
+            assertEquals(key.convert(data[i] & 0xFF, posns),
+                         converted[i] & 0xFF);
+        }
+        assertArrayEquals(posns, m.positions());
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        byte[] data = randomBytes(200000);
+        ByteArrayOutputStream encrypted = new ByteArrayOutputStream();
+        assertEquals(data.length,
+                     machine().convert(new ByteArrayInputStream(data),
+                                       encrypted));
+        assertFalse(Arrays.equals(data, encrypted.toByteArray()));
+        byte[] decrypted = encrypted.toByteArray();
+        machine().convert(decrypted, 0, decrypted.length);
+        assertArrayEquals(data, decrypted);
+    }
+
+    @Test
+    public void testChannels() throws IOException {
+        byte[] data = randomBytes(150001);
+        File in = File.createTempFile("bytes", ".in");
+        File out = File.createTempFile("bytes", ".out");
+        in.deleteOnExit();
+        out.deleteOnExit();
+        Files.write(in.toPath(), data);
+        try (FileChannel input = FileChannel.open(in.toPath());
+             FileChannel output = FileChannel.open(out.toPath(),
+                 StandardOpenOption.WRITE)) {
+            assertEquals(data.length, machine().convert(input, output));
+        }
+        byte[] expected = data.clone();
+        machine().convert(expected, 0, expected.length);
+        assertArrayEquals(expected, Files.readAllBytes(out.toPath()));
+    }
+
+    @Test
+    public void testListedWiring() {
+        StringBuilder wiring = new StringBuilder();
+        for (int k = 0; k < 256; k += 1) {
+            wiring.append(String.format("%02x", k ^ 1));
+        }
+        CompiledRotor reflector =
+            ByteMachine.readRotor("R1", "R", wiring.toString());
+        assertEquals(0x33, reflector.forward(0x32, 0));
+        assertTrue(reflector.reflecting());
+        CompiledRotor rotor = ByteMachine.readRotor("M1", "M0080",
+                                                    wiring.toString());
+        assertTrue(rotor.atNotch(0x80));
+        assertTrue(rotor.atNotch(0x00));
+        assertFalse(rotor.atNotch(0x01));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadReflector() {
+        ByteMachine.readRotor("R1", "R", "00".repeat(256));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadOrder() {
+        ByteMachine.parseConfig(ByteMachine.generateConfig(61))
+            .setUp("B Beta III IV Gamma 00000000");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadPlugboard() {
+        ByteMachine.parseConfig(ByteMachine.generateConfig(61))
+            .setUp("B Beta III IV I 00000000 00000000 0A0B,0B0C");
+    }
+}
@@ -0,0 +1,93 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/** A Reader whose source is read ahead on a thread of its own, into the
+ *  chunks of a ChunkRing. Reading from a slow file or pipe then overlaps
+ *  with whatever the reading thread does with the characters, and the
+ *  read-ahead is limited to the chunks of the ring.
+ *  @author Henry Chiong
+ */
+final class ChunkReader extends Reader {
+
+    /** A reader of SOURCE, reading ahead into COUNT chunks of SIZE
+     *  characters. */
+    ChunkReader(Reader source, int count, int size) {
+        _source = source;
+        _ring = new ChunkRing(count, size);
+        _filler = new Thread(this::fill, "reader");
+        _filler.setDaemon(true);
+        _filler.start();
+    }
+
+    @Override
+    public int read(char[] cbuf, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        while (_current == null || _pos == _current.length) {
+            if (_current != null) {
+                if (_current.last) {
+                    _ring.check();
+                    return -1;
+                }
+                _ring.release(_current);
+            }
+            _current = _ring.take();
+            _pos = 0;
+        }
+        int n = Math.min(len, _current.length - _pos);
+        System.arraycopy(_current.chars, _pos, cbuf, off, n);
+        _pos += n;
+        return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+        _filler.interrupt();
+        _source.close();
+    }
+
+    /** Read my source into chunks until it ends or fails, publishing a
+     *  last, empty chunk after it. */
+    private void fill() {
+        try {
+            while (true) {
+                ChunkRing.Chunk chunk = _ring.claim();
+                int n = _source.read(chunk.chars, 0, chunk.chars.length);
+                if (n < 0) {
+                    chunk.last = true;
+                    _ring.publish(chunk);
+                    return;
+                }
+                chunk.length = n;
+                _ring.publish(chunk);
+            }
+        } catch (IOException excp) {
+            _ring.fail(excp);
+            try {
+                ChunkRing.Chunk chunk = _ring.claim();
+                chunk.last = true;
+                _ring.publish(chunk);
+            } catch (IOException excp2) {
+                /* Interrupted by close(): no one is reading. */
+            }
+        }
+    }
+
+    /** The reader I read ahead. */
+    private final Reader _source;
+
+    /** Chunks passed from the filling thread to readers. */
+    private final ChunkRing _ring;
+
+    /** Thread reading my source. */
+    private final Thread _filler;
+
+    /** Chunk being read, or null. */
+    private ChunkRing.Chunk _current;
+
+    /** Position of the next character to read in _current. */
+    private int _pos;
+}
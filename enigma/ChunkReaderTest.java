@@ -0,0 +1,67 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the ChunkReader class.
+ *  @author Henry Chiong
+ */
+public class ChunkReaderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testReadsEverything() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i += 1) {
+            text.append((char) ('A' + i % 26));
+        }
+        Reader reader = new ChunkReader(new StringReader(text.toString()),
+                                        2, 7);
+        StringBuilder result = new StringBuilder();
+        char[] buf = new char[5];
+        int n;
+        while ((n = reader.read(buf, 0, buf.length)) >= 0) {
+            result.append(buf, 0, n);
+        }
+        assertEquals(text.toString(), result.toString());
+        assertEquals(-1, reader.read());
+        reader.close();
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        Reader reader = new ChunkReader(new StringReader(""), 1, 1);
+        assertEquals(-1, reader.read());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSourceFails() throws IOException {
+        Reader failing = new Reader() {
+            @Override
+            public int read(char[] cbuf, int off, int len)
+                throws IOException {
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Reader reader = new ChunkReader(failing, 2, 16);
+        while (reader.read() >= 0) {
+            continue;
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+
+import static enigma.EnigmaException.*;
+
+/** A fixed set of preallocated char chunks passed between a producing and a
+ *  consuming thread. The producer claims an empty chunk, fills it, and
+ *  publishes it; the consumer takes the published chunks in order and
+ *  releases each back once done with it. Since no chunk is ever allocated
+ *  after construction, a producer that gets ahead of its consumer blocks
+ *  in claim() until a chunk is released, so the memory used stays fixed
+ *  however fast either side runs.
+ *  @author Henry Chiong
+ */
+final class ChunkRing {
+
+    /** A buffer of characters passed through a ChunkRing. */
+    static final class Chunk {
+
+        /** A chunk holding up to SIZE characters. */
+        Chunk(int size) {
+            chars = new char[size];
+        }
+
+        /** The characters of this chunk. */
+        final char[] chars;
+
+        /** Number of valid characters at the start of chars. */
+        int length;
+
+        /** True iff this is the last chunk the producer will publish. */
+        boolean last;
+    }
+
+    /** A ring of COUNT chunks of SIZE characters each. */
+    ChunkRing(int count, int size) {
+        if (count <= 0 || size <= 0) {
+            throw error("Chunks must have positive size.");
+        }
+        _empty = new ArrayBlockingQueue<>(count);
+        _full = new ArrayBlockingQueue<>(count);
+        for (int i = 0; i < count; i += 1) {
+            _empty.add(new Chunk(size));
+        }
+    }
+
+    /** Return an empty chunk, waiting until one is released if need
+     *  be. */
+    Chunk claim() throws IOException {
+        Chunk chunk = await(_empty);
+        chunk.length = 0;
+        chunk.last = false;
+        return chunk;
+    }
+
+    /** Pass CHUNK, which was claimed and filled, to the consumer. */
+    void publish(Chunk chunk) throws IOException {
+        try {
+            _full.put(chunk);
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /** Return the next published chunk, waiting for one if need be. */
+    Chunk take() throws IOException {
+        return await(_full);
+    }
+
+    /** Return CHUNK, which was taken, for the producer to claim again. */
+    void release(Chunk chunk) {
+        _empty.add(chunk);
+    }
+
+    /** Return true iff some published chunk has not been taken. */
+    boolean pending() {
+        return !_full.isEmpty();
+    }
+
+    /** Record that one side failed with EXCP, which check() then throws
+     *  to the other. */
+    void fail(IOException excp) {
+        _failure = excp;
+    }
+
+    /** Throw the failure recorded by fail(), if any. */
+    void check() throws IOException {
+        if (_failure != null) {
+            throw _failure;
+        }
+    }
+
+    /** Return the head of QUEUE, waiting for one if need be. */
+    private static Chunk await(ArrayBlockingQueue<Chunk> queue)
+        throws IOException {
+        try {
+            return queue.take();
+        } catch (InterruptedException excp) {
+            throw new InterruptedIOException();
+        }
+    }
+
+    /** Chunks free to be claimed. */
+    private final ArrayBlockingQueue<Chunk> _empty;
+
+    /** Chunks published and not yet taken. */
+    private final ArrayBlockingQueue<Chunk> _full;
+
+    /** The producer's failure, or null. */
+    private volatile IOException _failure;
+}
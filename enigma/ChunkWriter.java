@@ -0,0 +1,163 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+
+/** A Writer whose destination is written on a thread of its own, from the
+ *  chunks of a ChunkRing. Writing to a slow file or pipe then overlaps with
+ *  whatever the writing thread does next, and a writer that gets more than
+ *  the ring's chunks ahead of its destination waits for it.
+ *  @author Henry Chiong
+ */
+final class ChunkWriter extends Writer {
+
+    /** A writer to DESTINATION, writing behind through COUNT chunks of SIZE
+     *  characters. */
+    ChunkWriter(Writer destination, int count, int size) {
+        _destination = destination;
+        _ring = new ChunkRing(count, size);
+        _drainer = new Thread(this::drain, "writer");
+        _drainer.setDaemon(true);
+        _drainer.start();
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) throws IOException {
+        while (len > 0) {
+            if (_current == null) {
+                _ring.check();
+                _current = _ring.claim();
+            }
+            int n = Math.min(len, _current.chars.length - _current.length);
+            System.arraycopy(cbuf, off, _current.chars, _current.length, n);
+            _current.length += n;
+            off += n;
+            len -= n;
+            if (_current.length == _current.chars.length) {
+                publishCurrent();
+            }
+        }
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+        if (_current == null) {
+            _ring.check();
+            _current = _ring.claim();
+        }
+        _current.chars[_current.length] = (char) c;
+        _current.length += 1;
+        if (_current.length == _current.chars.length) {
+            publishCurrent();
+        }
+    }
+
+    /** Pass on everything written so far, and wait until it has been
+     *  written to and flushed from my destination. */
+    @Override
+    public void flush() throws IOException {
+        if (_current != null && _current.length > 0) {
+            publishCurrent();
+        }
+        synchronized (_progress) {
+            while (_written < _published) {
+                try {
+                    _progress.wait();
+                } catch (InterruptedException excp) {
+                    throw new InterruptedIOException();
+                }
+            }
+        }
+        _ring.check();
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (_closed) {
+            return;
+        }
+        _closed = true;
+        try {
+            flush();
+        } finally {
+            if (_current == null) {
+                _current = _ring.claim();
+            }
+            _current.last = true;
+            publishCurrent();
+            try {
+                _drainer.join();
+            } catch (InterruptedException excp) {
+                throw new InterruptedIOException();
+            }
+            _destination.close();
+        }
+    }
+
+    /** Pass _current on to be written. */
+    private void publishCurrent() throws IOException {
+        synchronized (_progress) {
+            _published += 1;
+        }
+        _ring.publish(_current);
+        _current = null;
+    }
+
+    /** Write chunks to my destination until the last one, flushing it
+     *  whenever no more chunks are waiting. After a failure, chunks are
+     *  still taken but discarded, so that writers never wait forever. */
+    private void drain() {
+        boolean failed = false;
+        while (true) {
+            ChunkRing.Chunk chunk;
+            try {
+                chunk = _ring.take();
+            } catch (IOException excp) {
+                return;
+            }
+            boolean last = chunk.last;
+            if (!failed) {
+                try {
+                    _destination.write(chunk.chars, 0, chunk.length);
+                    if (!_ring.pending()) {
+                        _destination.flush();
+                    }
+                } catch (IOException excp) {
+                    _ring.fail(excp);
+                    failed = true;
+                }
+            }
+            _ring.release(chunk);
+            synchronized (_progress) {
+                _written += 1;
+                _progress.notifyAll();
+            }
+            if (last) {
+                return;
+            }
+        }
+    }
+
+    /** The writer I write behind. */
+    private final Writer _destination;
+
+    /** Chunks passed from writers to the draining thread. */
+    private final ChunkRing _ring;
+
+    /** Thread writing my destination. */
+    private final Thread _drainer;
+
+    /** Chunk being filled, or null. */
+    private ChunkRing.Chunk _current;
+
+    /** Guards _published and _written. This is not the lock of Writer,
+     *  which a writer may hold while waiting for the draining thread. */
+    private final Object _progress = new Object();
+
+    /** Numbers of chunks published and written. */
+    private long _published, _written;
+
+    /** True iff I have been closed. */
+    private boolean _closed;
+}
@@ -0,0 +1,65 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the ChunkWriter class.
+ *  @author Henry Chiong
+ */
+public class ChunkWriterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testWritesEverything() throws IOException {
+        StringWriter destination = new StringWriter();
+        Writer writer = new ChunkWriter(destination, 2, 7);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i += 1) {
+            String word = "WORD" + i + " ";
+            writer.write(word);
+            writer.write('.');
+            expected.append(word).append('.');
+        }
+        writer.flush();
+        assertEquals(expected.toString(), destination.toString());
+        writer.write("END");
+        writer.close();
+        assertEquals(expected + "END", destination.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testDestinationFails() throws IOException {
+        Writer failing = new Writer() {
+            @Override
+            public void write(char[] cbuf, int off, int len)
+                throws IOException {
+                throw new IOException("broken");
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+        Writer writer = new ChunkWriter(failing, 2, 4);
+        for (int i = 0; i < 100; i += 1) {
+            writer.write("ABCDEFG");
+        }
+        writer.close();
+    }
+}
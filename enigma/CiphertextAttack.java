@@ -0,0 +1,389 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A ciphertext-only attack on messages enciphered by a configured enigma
+ *  machine. The attack works in two phases. The first tries every rotor
+ *  order and every combination of start positions (with all rings at
+ *  their 0 settings and no plugboard) and keeps the candidates whose
+ *  decryptions have the highest index of coincidence. The second
+ *  hill-climbs a plugboard for each of those candidates, scoring
+ *  decryptions with an n-gram table.
+ *
+ *  Both phases run on a work-stealing ForkJoinPool. Each worker thread
+ *  has its own Workspace of preallocated buffers, so that trying a
+ *  candidate key allocates nothing. Plugboard changes are scored
+ *  incrementally by a PlugboardScorer.
+ *  @author Henry Chiong
+ */
+final class CiphertextAttack {
+
+    /** A candidate key found by the attack. */
+    static final class Candidate implements Comparable<Candidate> {
+
+        /** A candidate using rotor order ROTORS, with start positions
+         *  POSNS (as for CompiledKey) and the plugboard PLUGBOARD (as a
+         *  table of indices), whose decryption scores SCORE. */
+        Candidate(String[] rotors, int[] posns, int[] plugboard,
+                  double score) {
+            _rotors = rotors;
+            _posns = posns;
+            _plugboard = plugboard;
+            _score = score;
+        }
+
+        /** Return my rotor order. */
+        String[] rotors() {
+            return _rotors;
+        }
+
+        /** Return my start positions. */
+        int[] positions() {
+            return _posns.clone();
+        }
+
+        /** Return my plugboard. */
+        int[] plugboard() {
+            return _plugboard.clone();
+        }
+
+        /** Return my score. */
+        double score() {
+            return _score;
+        }
+
+        /** Return my settings in the form of a settings line of the input
+         *  to Main, using the characters of ALPHABET. */
+        String settings(Alphabet alphabet) {
+            StringBuilder result = new StringBuilder("*");
+            for (String rotor : _rotors) {
+                result.append(' ').append(rotor);
+            }
+            result.append(' ');
+            for (int k = 1; k < _posns.length; k += 1) {
+                result.appendCodePoint(alphabet.toCodePoint(_posns[k]));
+            }
+            result.append(' ');
+            for (int k = 1; k < _posns.length; k += 1) {
+                result.appendCodePoint(alphabet.toCodePoint(0));
+            }
+            for (int k = 0; k < _plugboard.length; k += 1) {
+                if (k < _plugboard[k]) {
+                    result.append(" (")
+                        .appendCodePoint(alphabet.toCodePoint(k))
+                        .appendCodePoint(alphabet.toCodePoint(_plugboard[k]))
+                        .append(')');
+                }
+            }
+            return result.toString();
+        }
+
+        @Override
+        public int compareTo(Candidate other) {
+            return Double.compare(_score, other._score);
+        }
+
+        /** Rotor order. */
+        private final String[] _rotors;
+
+        /** Start positions. */
+        private final int[] _posns;
+
+        /** Plugboard. */
+        private final int[] _plugboard;
+
+        /** Score of the decryption. */
+        private final double _score;
+    }
+
+    /** Attack the ciphertext in a file, as specified by ARGS, where
+     *  3 <= ARGS.length <= 4. ARGS[0] names a configuration file, ARGS[1]
+     *  names an n-gram file (as for NGrams.load), and ARGS[2] names the
+     *  ciphertext file, whose characters outside the alphabet are ignored.
+     *  ARGS[3] is optional; when present, it is the number of candidates
+     *  kept from the rotor search (default 10). Prints the best candidates
+     *  as settings lines. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 3 || args.length > 4) {
+                throw error("Only 3 or 4 command-line arguments allowed");
+            }
+            Machine machine = Main.readConfig(args[0]);
+            Alphabet alphabet = machine.alphabet();
+            NGrams model = NGrams.load(args[1], alphabet);
+            int[] ciphertext = indices(readFile(args[2]), alphabet);
+            int keep = DEFAULT_KEEP;
+            if (args.length > 3) {
+                keep = Integer.parseInt(args[3]);
+            }
+            CiphertextAttack attack =
+                new CiphertextAttack(machine, ciphertext,
+                                     ForkJoinPool.commonPool());
+            List<Candidate> found =
+                attack.recoverPlugboards(attack.searchRotors(keep), model);
+            for (Candidate candidate : found) {
+                System.out.printf("%.2f %s%n", candidate.score(),
+                                  candidate.settings(alphabet));
+            }
+            return;
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad number of candidates%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** An attack on CIPHERTEXT (as alphabet indices) enciphered by one of
+     *  the rotor orders available to MACHINE, running on POOL. */
+    CiphertextAttack(Machine machine, int[] ciphertext, ForkJoinPool pool) {
+        if (ciphertext.length < 2) {
+            throw error("Ciphertext is too short to attack.");
+        }
+        _machine = machine;
+        _ciphertext = ciphertext.clone();
+        _pool = pool;
+        _orders = machine.rotorOrders();
+        _size = machine.alphabet().size();
+        if (_orders.isEmpty()) {
+            throw error("No rotor orders are available.");
+        }
+    }
+
+    /** Return the KEEP candidates (rotor order and start positions, with
+     *  no plugboard) whose decryptions have the highest index of
+     *  coincidence, best first. */
+    List<Candidate> searchRotors(int keep) {
+        if (keep < 1) {
+            throw error("Must keep at least one candidate.");
+        }
+        ConcurrentLinkedQueue<Workspace> all = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Workspace> workspaces = ThreadLocal.withInitial(() -> {
+            Workspace workspace = new Workspace(keep, null);
+            all.add(workspace);
+            return workspace;
+        });
+        _pool.invoke(new RangeTask(0, _orders.size() * _size,
+            unit -> searchUnit(unit, workspaces.get())));
+        PriorityQueue<Candidate> best = new PriorityQueue<>();
+        for (Workspace workspace : all) {
+            for (Candidate candidate : workspace._top) {
+                offer(best, candidate, keep);
+            }
+        }
+        List<Candidate> result = new ArrayList<>(best);
+        result.sort(Collections.reverseOrder());
+        return result;
+    }
+
+    /** Return the result of hill-climbing a plugboard for each of
+     *  CANDIDATES, scored by the n-gram table MODEL, best first. */
+    List<Candidate> recoverPlugboards(List<Candidate> candidates,
+                                      NGrams model) {
+        if (model.alphabet().size() != _size) {
+            throw error("N-gram table does not match the alphabet.");
+        }
+        Candidate[] result = new Candidate[candidates.size()];
+        ThreadLocal<Workspace> workspaces =
+            ThreadLocal.withInitial(() -> new Workspace(1, model));
+        _pool.invoke(new RangeTask(0, result.length,
+            i -> result[i] = climb(candidates.get(i), workspaces.get())));
+        List<Candidate> list = new ArrayList<>(Arrays.asList(result));
+        list.sort(Collections.reverseOrder());
+        return list;
+    }
+
+    /** Return the decryption of my ciphertext under CANDIDATE, as
+     *  alphabet indices. */
+    int[] decrypt(Candidate candidate) {
+        CompiledKey key = _machine.compile(candidate.rotors())
+            .withPlugboard(candidate.plugboard());
+        int[] result = new int[_ciphertext.length];
+        key.convert(_ciphertext, result, result.length,
+                    candidate.positions());
+        return result;
+    }
+
+    /** Try every start position of rotor order UNIT / size() whose
+     *  leftmost rotor is at position UNIT % size(), recording the best in
+     *  WORKSPACE. */
+    private void searchUnit(int unit, Workspace workspace) {
+        String[] order = _orders.get(unit / _size);
+        CompiledKey key = _machine.compile(order);
+        int[] start = workspace._start;
+        Arrays.fill(start, 0);
+        start[1] = unit % _size;
+        do {
+            double score = indexOfCoincidence(key, start, workspace);
+            PriorityQueue<Candidate> top = workspace._top;
+            if (top.size() < workspace._keep
+                || score > top.peek().score()) {
+                offer(top, new Candidate(order, start.clone(),
+                                         CompiledKey.identity(_size), score),
+                      workspace._keep);
+            }
+        } while (nextPositions(start));
+    }
+
+    /** Advance START to the next combination of positions that leaves the
+     *  reflector and leftmost rotor alone, returning false if there is
+     *  none. */
+    private boolean nextPositions(int[] start) {
+        for (int k = start.length - 1; k >= 2; k -= 1) {
+            start[k] += 1;
+            if (start[k] < _size) {
+                return true;
+            }
+            start[k] = 0;
+        }
+        return false;
+    }
+
+    /** Return the index of coincidence of the decryption of my ciphertext
+     *  by KEY from positions START, using the buffers in WORKSPACE. */
+    private double indexOfCoincidence(CompiledKey key, int[] start,
+                                      Workspace workspace) {
+        int[] posns = workspace._posns;
+        int[] counts = workspace._counts;
+        System.arraycopy(start, 0, posns, 0, posns.length);
+        Arrays.fill(counts, 0);
+        for (int c : _ciphertext) {
+            key.step(posns);
+            counts[key.convertAt(c, posns)] += 1;
+        }
+        long sum = 0;
+        for (int count : counts) {
+            sum += (long) count * (count - 1);
+        }
+        long n = _ciphertext.length;
+        return (double) sum / (n * (n - 1));
+    }
+
+    /** Return the result of hill-climbing a plugboard for START, using
+     *  the scorer in WORKSPACE. Starting from an empty plugboard,
+     *  repeatedly makes every single change of one pair that improves the
+     *  score, until there is none. */
+    private Candidate climb(Candidate start, Workspace workspace) {
+        PlugboardScorer scorer = workspace._scorer;
+        scorer.setKey(_machine.compile(start.rotors()), start._posns);
+        double best = scorer.score();
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            for (int a = 0; a < _size; a += 1) {
+                for (int b = a + 1; b < _size; b += 1) {
+                    double score = scorer.swap(a, b);
+                    if (score > best + EPSILON) {
+                        best = score;
+                        improved = true;
+                    } else {
+                        scorer.undo();
+                    }
+                }
+            }
+            best = scorer.rescore();
+        }
+        return new Candidate(start.rotors(), start.positions(),
+                             scorer.plugboard(), best);
+    }
+
+    /** Add CANDIDATE to the min-heap TOP, keeping only the KEEP best. */
+    private static void offer(PriorityQueue<Candidate> top,
+                              Candidate candidate, int keep) {
+        top.add(candidate);
+        if (top.size() > keep) {
+            top.poll();
+        }
+    }
+
+    /** Return the indices in ALPHABET of the characters of TEXT that are
+     *  in ALPHABET. */
+    static int[] indices(String text, Alphabet alphabet) {
+        int[] result = text.codePoints().toArray();
+        int n = 0;
+        for (int c : result) {
+            int k = alphabet.indexOf(c);
+            if (k >= 0) {
+                result[n] = k;
+                n += 1;
+            }
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /** Return the contents of the file named NAME, decoded as UTF-8. */
+    static String readFile(String name) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(name)),
+                              StandardCharsets.UTF_8);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Buffers belonging to one worker thread. */
+    private final class Workspace {
+
+        /** A workspace recording the KEEP best candidates, and scoring
+         *  plugboards with MODEL if it is not null. */
+        Workspace(int keep, NGrams model) {
+            _keep = keep;
+            if (model != null) {
+                _scorer = new PlugboardScorer(_ciphertext, model);
+            } else {
+                _scorer = null;
+            }
+        }
+
+        /** Number of candidates to keep. */
+        private final int _keep;
+
+        /** Best candidates found by this worker. */
+        private final PriorityQueue<Candidate> _top = new PriorityQueue<>();
+
+        /** Start positions being tried. */
+        private final int[] _start = new int[_orders.get(0).length];
+
+        /** Positions during a decryption. */
+        private final int[] _posns = new int[_start.length];
+
+        /** Counts of each character of a decryption. */
+        private final int[] _counts = new int[_size];
+
+        /** Scorer of plugboards, or null if none are climbed. */
+        private final PlugboardScorer _scorer;
+    }
+
+    /** Smallest improvement in score accepted while climbing. */
+    private static final double EPSILON = 1e-9;
+
+    /** Number of candidates kept from the rotor search by default. */
+    private static final int DEFAULT_KEEP = 10;
+
+    /** The machine whose rotors are searched. */
+    private final Machine _machine;
+
+    /** The ciphertext, as alphabet indices. */
+    private final int[] _ciphertext;
+
+    /** Pool on which the attack runs. */
+    private final ForkJoinPool _pool;
+
+    /** All rotor orders to try. */
+    private final List<String[]> _orders;
+
+    /** Size of the alphabet. */
+    private final int _size;
+}
@@ -0,0 +1,85 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CiphertextAttack class.
+ *  @author Henry Chiong
+ */
+public class CiphertextAttackTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** English plaintext used to test the attack. */
+    static final String PLAINTEXT =
+        "ITWASTHEBESTOFTIMESITWASTHEWORSTOFTIMESITWASTHEAGEOFWISDOMITWAS"
+        + "THEAGEOFFOOLISHNESSITWASTHEEPOCHOFBELIEFITWASTHEEPOCHOFINCREDUL"
+        + "ITYITWASTHESEASONOFLIGHTITWASTHESEASONOFDARKNESSITWASTHESPRINGOF"
+        + "HOPEITWASTHEWINTEROFDESPAIRWEHADEVERYTHINGBEFOREUSWEHADNOTHING"
+        + "BEFOREUSWEWEREALLGOINGDIRECTTOHEAVENWEWEREALLGOINGDIRECTTHEOTHER"
+        + "WAYINSHORTTHEPERIODWASSOFARLIKETHEPRESENTPERIOD";
+
+    /** Return a small machine with reflector B and moving rotors I, II,
+     *  and III, with 3 slots and 2 pawls. */
+    private Machine smallMachine() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"),
+                                                      UPPER)));
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        return new Machine(UPPER, 3, 2, rotors);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRotorOrders() {
+        assertEquals(6, smallMachine().rotorOrders().size());
+        assertEquals(2 * 2 * 5 * 4 * 3,
+                     CompiledKeyTest.navalMachine().rotorOrders().size());
+    }
+
+    @Test
+    public void testSearchRotors() {
+        Machine m = smallMachine();
+        m.insertRotors(new String[] {"B", "III", "I"});
+        m.setRotors("KD");
+        String ciphertext = m.convert(PLAINTEXT);
+        CiphertextAttack attack =
+            new CiphertextAttack(m, CiphertextAttack.indices(ciphertext,
+                                                             UPPER),
+                                 ForkJoinPool.commonPool());
+        List<CiphertextAttack.Candidate> found = attack.searchRotors(3);
+        assertEquals(3, found.size());
+        assertEquals("* B III I KD AA", found.get(0).settings(UPPER));
+        assertTrue(found.get(0).score() >= found.get(1).score());
+        String decrypted = "";
+        for (int c : attack.decrypt(found.get(0))) {
+            decrypted += UPPER.toChar(c);
+        }
+        assertEquals(PLAINTEXT, decrypted);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testTooShort() {
+        new CiphertextAttack(smallMachine(), new int[1],
+                             ForkJoinPool.commonPool());
+    }
+}
@@ -0,0 +1,201 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** An immutable, table-driven form of a rotor order together with its
+ *  ring settings and plugboard: everything about an enigma key except the
+ *  rotor positions. The positions are kept by the caller in an array of
+ *  numRotors() settings (entry 0 belongs to the reflector and is always 0),
+ *  so that one CompiledKey can be shared by any number of threads or
+ *  message streams, each stepping its own positions.
+ *  @author Henry Chiong
+ */
+final class CompiledKey {
+
+    /** A key using ROTORS (ROTORS[0] is the reflector) with PAWLS pawls,
+     *  all rings at their 0 settings, and no plugboard. */
+    CompiledKey(CompiledRotor[] rotors, int pawls) {
+        this(rotors, pawls, new int[rotors.length], identity(size(rotors)));
+    }
+
+    /** A key using ROTORS (ROTORS[0] is the reflector) with PAWLS pawls,
+     *  ring settings RINGS (RINGS[0] must be 0), and a plugboard that maps
+     *  index K to PLUGBOARD[K]. */
+    CompiledKey(CompiledRotor[] rotors, int pawls, int[] rings,
+                int[] plugboard) {
+        int size = size(rotors);
+        if (rings.length != rotors.length || plugboard.length != size) {
+            throw error("Key tables must match the rotors.");
+        }
+        _rotors = rotors.clone();
+        _pawls = pawls;
+        _size = size;
+        _rings = rings.clone();
+        _plugboard = plugboard.clone();
+        _plugboardInverse = new int[size];
+        Arrays.fill(_plugboardInverse, -1);
+        for (int k = 0; k < size; k += 1) {
+            int e = _plugboard[k];
+            if (e < 0 || e >= size || _plugboardInverse[e] >= 0) {
+                throw error("Plugboard must be a permutation.");
+            }
+            _plugboardInverse[e] = k;
+        }
+    }
+
+    /** Return a key like me, but with ring settings RINGS. */
+    CompiledKey withRings(int[] rings) {
+        return new CompiledKey(_rotors, _pawls, rings, _plugboard);
+    }
+
+    /** Return a key like me, but whose plugboard maps index K to
+     *  PLUGBOARD[K]. */
+    CompiledKey withPlugboard(int[] plugboard) {
+        return new CompiledKey(_rotors, _pawls, _rings, plugboard);
+    }
+
+    /** Return the number of rotor slots I use. */
+    int numRotors() {
+        return _rotors.length;
+    }
+
+    /** Return the number of pawls I use. */
+    int numPawls() {
+        return _pawls;
+    }
+
+    /** Return the size of my alphabet. */
+    int size() {
+        return _size;
+    }
+
+    /** Return my rotor in slot K (slot 0 is the reflector). */
+    CompiledRotor rotor(int k) {
+        return _rotors[k];
+    }
+
+    /** Return the ring setting of my rotor in slot K. */
+    int ring(int k) {
+        return _rings[k];
+    }
+
+    /** Return the index my plugboard maps K to. */
+    int plugboard(int k) {
+        return _plugboard[k];
+    }
+
+    /** Advance the rotor positions POSNS as Machine does before converting
+     *  each character: the rightmost rotor always advances, and each other
+     *  moving rotor advances if the rotor to its right was at a notch, or
+     *  if it is itself at a notch and is not the leftmost moving rotor. */
+    void step(int[] posns) {
+        int last = _rotors.length - 1;
+        boolean carry = false;
+        for (int i = 1; i <= _pawls; i += 1) {
+            int k = last - i + 1;
+            CompiledRotor rotor = _rotors[k];
+            boolean notch = rotor.atNotch(posns[k]);
+            boolean advance = i == 1 || carry || (notch && i != _pawls);
+            carry = advance && notch;
+            if (advance && rotor.rotates()) {
+                posns[k] = posns[k] + 1 == _size ? 0 : posns[k] + 1;
+            }
+        }
+    }
+
+    /** Return the conversion of C (an index in the range 0..size()-1)
+     *  with my rotors at positions POSNS, without advancing them. */
+    int convertAt(int c, int[] posns) {
+        int result = _plugboard[c];
+        for (int k = _rotors.length - 1; k >= 0; k -= 1) {
+            result = _rotors[k].forward(result, posns[k] - _rings[k]);
+        }
+        for (int k = 1; k < _rotors.length; k += 1) {
+            result = _rotors[k].backward(result, posns[k] - _rings[k]);
+        }
+        return _plugboardInverse[result];
+    }
+
+    /** Return the conversion of C (an index in the range 0..size()-1),
+     *  after first advancing the rotor positions POSNS. */
+    int convert(int c, int[] posns) {
+        step(posns);
+        return convertAt(c, posns);
+    }
+
+    /** Convert the first LEN indices of IN into OUT, advancing the rotor
+     *  positions POSNS before each one. IN and OUT may be the same
+     *  array. */
+    void convert(int[] in, int[] out, int len, int[] posns) {
+        for (int i = 0; i < len; i += 1) {
+            step(posns);
+            out[i] = convertAt(in[i], posns);
+        }
+    }
+
+    /** Return the approximate number of bytes of memory used by my tables,
+     *  including those of my rotors. */
+    long tableBytes() {
+        return tableBytes(_size, _rotors.length);
+    }
+
+    /** Return the approximate number of bytes of memory used by the tables
+     *  of a key over an alphabet of SIZE characters with NUMROTORS
+     *  rotors. */
+    static long tableBytes(int size, int numRotors) {
+        return numRotors * CompiledRotor.tableBytes(size)
+            + 2 * CompiledRotor.arrayBytes(size, Integer.BYTES)
+            + CompiledRotor.arrayBytes(numRotors, Integer.BYTES);
+    }
+
+    /** Return the identity mapping of SIZE indices. */
+    static int[] identity(int size) {
+        int[] result = new int[size];
+        for (int k = 0; k < size; k += 1) {
+            result[k] = k;
+        }
+        return result;
+    }
+
+    /** Return the common alphabet size of ROTORS. */
+    private static int size(CompiledRotor[] rotors) {
+        if (rotors.length == 0) {
+            throw error("A key must have rotors.");
+        }
+        for (CompiledRotor rotor : rotors) {
+            if (rotor.size() != rotors[0].size()) {
+                throw error("Rotors must have a common alphabet.");
+            }
+        }
+        return rotors[0].size();
+    }
+
+    @Override
+    public String toString() {
+        String[] names = new String[_rotors.length];
+        for (int k = 0; k < names.length; k += 1) {
+            names[k] = _rotors[k].name();
+        }
+        return "Key " + Arrays.toString(names);
+    }
+
+    /** My rotors, from the reflector rightward. */
+    private final CompiledRotor[] _rotors;
+
+    /** Number of pawls, which drive my rightmost _pawls rotors. */
+    private final int _pawls;
+
+    /** Size of my alphabet. */
+    private final int _size;
+
+    /** Ring settings of my rotors. */
+    private final int[] _rings;
+
+    /** My plugboard. */
+    private final int[] _plugboard;
+
+    /** The inverse of my plugboard. */
+    private final int[] _plugboardInverse;
+}
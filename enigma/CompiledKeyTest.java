@@ -0,0 +1,130 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CompiledKey class.
+ *  @author Henry Chiong
+ */
+public class CompiledKeyTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a machine with the naval rotors, 5 slots, and 3 pawls. */
+    static Machine navalMachine() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"),
+                                                      UPPER)));
+        rotors.add(new Reflector("C", new Permutation(NAVALA.get("C"),
+                                                      UPPER)));
+        rotors.add(new FixedRotor("Beta",
+                new Permutation(NAVALA.get("Beta"), UPPER)));
+        rotors.add(new FixedRotor("Gamma",
+                new Permutation(NAVALA.get("Gamma"), UPPER)));
+        String[] moving = {"I", "II", "III", "IV", "V"};
+        String[] notches = {"Q", "E", "V", "J", "Z"};
+        for (int i = 0; i < moving.length; i += 1) {
+            rotors.add(new MovingRotor(moving[i],
+                    new Permutation(NAVALA.get(moving[i]), UPPER),
+                    notches[i]));
+        }
+        return new Machine(UPPER, 5, 3, rotors);
+    }
+
+    /** Return a random string of LEN upper-case letters from RANDOM. */
+    static String randomString(Random random, int len) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < len; i += 1) {
+            result.append(UPPER_STRING.charAt(random.nextInt(26)));
+        }
+        return result.toString();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMatchesMachine() {
+        Random random = new Random(61);
+        Machine m = navalMachine();
+        for (int trial = 0; trial < 20; trial += 1) {
+            m.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+            m.setRotors(randomString(random, 4));
+            m.setRingRotors(randomString(random, 4));
+            m.setPlugboard(new Permutation("(AQ) (EX) (IP) (TR) (BY)",
+                                           UPPER));
+            CompiledKey key = m.compile();
+            int[] posns = m.positions();
+            String msg = randomString(random, 800);
+            String expected = m.convert(msg);
+            for (int i = 0; i < msg.length(); i += 1) {
+                int c = key.convert(UPPER.toInt(msg.charAt(i)), posns);
+                assertEquals(expected.charAt(i), UPPER.toChar(c));
+            }
+            assertArrayEquals(m.positions(), posns);
+        }
+    }
+
+    @Test
+    public void testDoubleStep() {
+        Machine m = navalMachine();
+        m.insertRotors(new String[] {"B", "Beta", "I", "II", "III"});
+        m.setRotors("AADU");
+        CompiledKey key = m.compile();
+        int[] posns = positions(key, "AADU", UPPER);
+        key.step(posns);
+        assertArrayEquals(positions(key, "AADV", UPPER), posns);
+        key.step(posns);
+        assertArrayEquals(positions(key, "AAEW", UPPER), posns);
+        key.step(posns);
+        assertArrayEquals(positions(key, "ABFX", UPPER), posns);
+    }
+
+    @Test
+    public void testBulkConvert() {
+        Machine m = navalMachine();
+        m.insertRotors(new String[] {"C", "Gamma", "V", "II", "IV"});
+        m.setRotors("QZEJ");
+        CompiledKey key = m.compile();
+        int[] posns = m.positions();
+        String msg = "HELLOWORLDTHISISATEST";
+        String expected = m.convert(msg);
+        int[] text = CiphertextAttack.indices(msg, UPPER);
+        key.convert(text, text, text.length, posns);
+        for (int i = 0; i < text.length; i += 1) {
+            assertEquals(expected.charAt(i), UPPER.toChar(text[i]));
+        }
+    }
+
+    @Test
+    public void testTableBytes() {
+        CompiledKey key = navalMachine().compile(new String[] {"B", "Beta",
+                                                 "I", "II", "III"});
+        assertEquals(CompiledKey.tableBytes(26, 5), key.tableBytes());
+        assertEquals(2 * 48 + 48, key.rotor(1).tableBytes());
+        assertTrue(BatchEngine.tableBytes(26, 5) > 10 * 26 * 26);
+        assertEquals(2 * (16 + 20000) + 10016,
+                     CompiledRotor.tableBytes(10000));
+        assertEquals(2 * (16 + 280000) + 70016,
+                     CompiledRotor.tableBytes(70000));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadPlugboard() {
+        Machine m = navalMachine();
+        int[] plugboard = new int[26];
+        m.compile(new String[] {"B", "Beta", "I", "II", "III"})
+            .withPlugboard(plugboard);
+    }
+}
@@ -0,0 +1,202 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** An immutable, table-driven form of a rotor, suitable for converting
+ *  many characters under many settings without touching the mutable state
+ *  of a Rotor. The setting and ring setting of the rotor are supplied by
+ *  the caller on every conversion.
+ *  @author Henry Chiong
+ */
+final class CompiledRotor {
+
+    /** The compiled form of ROTOR, which is unaffected by ROTOR's current
+     *  setting and ring setting. */
+    CompiledRotor(Rotor rotor) {
+        this(rotor.name(), table(rotor.permutation()),
+             notchTable(rotor), rotor.rotates(), rotor.reflecting());
+    }
+
+    /** A rotor named NAME whose permutation in its 0 setting maps index K
+     *  to FORWARD[K]. NOTCHES[K] is true iff the rotor has a notch at
+     *  setting K. The rotor rotates iff ROTATES and reflects iff
+     *  REFLECTING. */
+    CompiledRotor(String name, int[] forward, boolean[] notches,
+                  boolean rotates, boolean reflecting) {
+        if (notches.length != forward.length) {
+            throw error("Notch table of %s must match its wiring.", name);
+        }
+        _name = name;
+        _size = forward.length;
+        int[] backward = new int[_size];
+        Arrays.fill(backward, -1);
+        for (int k = 0; k < _size; k += 1) {
+            int e = forward[k];
+            if (e < 0 || e >= _size || backward[e] >= 0) {
+                throw error("Wiring of %s must be a permutation.", name);
+            }
+            backward[e] = k;
+        }
+        _forward = new IndexTable(forward, _size);
+        _backward = new IndexTable(backward, _size);
+        _notches = notches.clone();
+        _rotates = rotates;
+        _reflecting = reflecting;
+    }
+
+    /** Return my name. */
+    String name() {
+        return _name;
+    }
+
+    /** Return the size of my alphabet. */
+    int size() {
+        return _size;
+    }
+
+    /** Return true iff I have a ratchet and can move. */
+    boolean rotates() {
+        return _rotates;
+    }
+
+    /** Return true iff I reflect. */
+    boolean reflecting() {
+        return _reflecting;
+    }
+
+    /** Return true iff I allow the rotor to my left to advance when I am
+     *  at setting POSN. */
+    boolean atNotch(int posn) {
+        return _notches[posn];
+    }
+
+    /** Return the conversion of P (an integer in the range 0..size()-1)
+     *  when my setting minus my ring setting is SHIFT, where
+     *  -size() < SHIFT < size(). */
+    int forward(int p, int shift) {
+        return wrap(_forward.get(wrap(p + shift)) - shift);
+    }
+
+    /** Return the conversion of E (an integer in the range 0..size()-1)
+     *  by my inverse when my setting minus my ring setting is SHIFT, where
+     *  -size() < SHIFT < size(). */
+    int backward(int e, int shift) {
+        return wrap(_backward.get(wrap(e + shift)) - shift);
+    }
+
+    /** Return the approximate number of bytes of memory used by my
+     *  tables. */
+    long tableBytes() {
+        return tableBytes(_size);
+    }
+
+    /** Return the approximate number of bytes of memory used by the tables
+     *  of a rotor over an alphabet of SIZE characters, whose wiring is
+     *  stored in IndexTables as narrow as SIZE allows. */
+    static long tableBytes(int size) {
+        return 2 * IndexTable.tableBytes(size, size) + arrayBytes(size, 1);
+    }
+
+    /** Return the approximate number of bytes of memory used by an array
+     *  of LENGTH elements of ELEMENT bytes each, including its header and
+     *  padding. */
+    static long arrayBytes(long length, int element) {
+        long bytes = ARRAY_HEADER + length * element;
+        return (bytes + OBJECT_ALIGNMENT - 1) / OBJECT_ALIGNMENT
+            * OBJECT_ALIGNMENT;
+    }
+
+    /** Print the approximate memory used by the compiled tables of the
+     *  rotors of the machine configured by the file ARGS[0], and by the
+     *  compiled keys and batch engines made from them. Exits with code 1
+     *  on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length != 1) {
+                throw error("Usage: CONFIG");
+            }
+            Machine machine = Main.readConfig(args[0]);
+            int size = machine.alphabet().size();
+            System.out.printf("alphabet: %d characters%n", size);
+            System.out.printf("rotor tables: %d bytes each%n",
+                              tableBytes(size));
+            System.out.printf("compiled key: %d bytes%n",
+                              CompiledKey.tableBytes(size,
+                                                     machine.numRotors()));
+            System.out.printf("batch engine tables: %d bytes%n",
+                              BatchEngine.tableBytes(size,
+                                                     machine.numRotors()));
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Return the index my permutation maps K to in my 0 setting. */
+    int wiring(int k) {
+        return _forward.get(k);
+    }
+
+    /** Return X modulo size(), where -size() <= X < 2 * size(). */
+    private int wrap(int x) {
+        if (x >= _size) {
+            return x - _size;
+        } else if (x < 0) {
+            return x + _size;
+        }
+        return x;
+    }
+
+    /** Return the mapping of each index of PERM's alphabet by PERM. */
+    static int[] table(Permutation perm) {
+        int[] result = new int[perm.size()];
+        for (int k = 0; k < result.length; k += 1) {
+            result[k] = perm.permute(k);
+        }
+        return result;
+    }
+
+    /** Return a table whose Kth entry is true iff ROTOR has a notch at
+     *  setting K. */
+    private static boolean[] notchTable(Rotor rotor) {
+        boolean[] result = new boolean[rotor.size()];
+        rotor.notches().codePoints()
+            .forEach(notch -> result[rotor.alphabet().toInt(notch)] = true);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "Compiled rotor " + _name;
+    }
+
+    /** Approximate size in bytes of the header of an array. */
+    private static final int ARRAY_HEADER = 16;
+
+    /** Alignment in bytes of objects in memory. */
+    private static final int OBJECT_ALIGNMENT = 8;
+
+    /** My name. */
+    private final String _name;
+
+    /** The size of my alphabet. */
+    private final int _size;
+
+    /** My permutation in its 0 setting. */
+    private final IndexTable _forward;
+
+    /** The inverse of my permutation in its 0 setting. */
+    private final IndexTable _backward;
+
+    /** Entry K is true iff I have a notch at setting K. */
+    private final boolean[] _notches;
+
+    /** True iff I rotate. */
+    private final boolean _rotates;
+
+    /** True iff I reflect. */
+    private final boolean _reflecting;
+}
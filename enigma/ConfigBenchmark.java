@@ -0,0 +1,103 @@
+package enigma;
+
+import java.util.Random;
+
+import static enigma.EnigmaException.*;
+
+/** Times the parsing of generated configuration files with many rotors
+ *  and long lists of cycles, as read by Main.
+ *  @author Henry Chiong
+ */
+final class ConfigBenchmark {
+
+    /** Time the parsing of a configuration of ARGS[0] rotors (default
+     *  2000) over an alphabet of ARGS[1] characters (default 1000), each
+     *  rotor's wiring written as cycles of two characters, printing the
+     *  size of the configuration and the milliseconds taken per parse.
+     *  Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length > 2) {
+                throw error("Usage: [ROTORS [SIZE]]");
+            }
+            int rotors =
+                args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_ROTORS;
+            int size =
+                args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_SIZE;
+            String config = generate(rotors, size, new Random(SEED));
+            System.out.printf("%d rotors, %d characters, %d chars of"
+                              + " configuration%n", rotors, size,
+                              config.length());
+            for (int trial = 0; trial < TRIALS; trial += 1) {
+                long start = System.nanoTime();
+                Main.parseConfig(config);
+                System.out.printf("parse %d: %.1f ms%n", trial,
+                                  (System.nanoTime() - start) / 1e6);
+            }
+            return;
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad number%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Return a configuration of ROTORS rotors over SIZE characters (an
+     *  even number), whose first is a reflector and the rest moving and
+     *  fixed rotors in turn, generated from RANDOM. */
+    static String generate(int rotors, int size, Random random) {
+        if (rotors < 2 || size < 2 || size % 2 != 0) {
+            throw error("Need 2 or more rotors and an even size.");
+        }
+        StringBuilder alphabet = new StringBuilder();
+        for (int k = 0; k < size; k += 1) {
+            alphabet.appendCodePoint(FIRST_CHAR + k);
+        }
+        StringBuilder result = new StringBuilder();
+        result.append(alphabet).append('\n')
+            .append(Math.min(rotors, MAX_SLOTS)).append(' ').append(1)
+            .append('\n');
+        int[] order = new int[size];
+        for (int r = 0; r < rotors; r += 1) {
+            for (int i = 0; i < size; i += 1) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            String type = r == 0 ? "R" : r % 2 == 1 ? "M" : "N";
+            result.append(" R").append(r).append(' ').append(type);
+            if (type.equals("M")) {
+                result.appendCodePoint(FIRST_CHAR + order[0]);
+            }
+            for (int i = 0; i < size; i += 2) {
+                result.append(i % LINE_CYCLES == 0 ? "\n   " : " ")
+                    .append('(').appendCodePoint(FIRST_CHAR + order[i])
+                    .appendCodePoint(FIRST_CHAR + order[i + 1]).append(')');
+            }
+            result.append('\n');
+        }
+        return result.toString();
+    }
+
+    /** First character of generated alphabets. */
+    private static final int FIRST_CHAR = 0x4E00;
+
+    /** Most rotor slots in a generated machine. */
+    private static final int MAX_SLOTS = 5;
+
+    /** Cycles written on each line, times 2. */
+    private static final int LINE_CYCLES = 40;
+
+    /** Number of times the configuration is parsed. */
+    private static final int TRIALS = 5;
+
+    /** Default number of rotors. */
+    private static final int DEFAULT_ROTORS = 2000;
+
+    /** Default size of the alphabet. */
+    private static final int DEFAULT_SIZE = 1000;
+
+    /** Seed of the generated configurations. */
+    private static final long SEED = 61;
+}
@@ -0,0 +1,266 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** A parser of machine configurations, which reads the text in one pass
+ *  over a char array. Each rotor's cycles are turned into its wiring
+ *  table as they are read, rather than gathered into a string and parsed
+ *  again. Every error names the line and column at which it was found.
+ *
+ *  A configuration is the alphabet, the number of rotor slots, the number
+ *  of pawls, and then the rotors, each a name, a type (M followed by its
+ *  notches, N, or R), and its cycles, all separated by whitespace. Cycles
+ *  may be written together, as in (AB)(CD), but may not contain
+ *  whitespace.
+ *  @author Henry Chiong
+ */
+final class ConfigParser {
+
+    /** A parser of the configuration TEXT, read from SOURCE, which is
+     *  used in error messages. */
+    ConfigParser(String source, String text) {
+        this(source, text.toCharArray(), text.length());
+    }
+
+    /** A parser of the configuration in the first LENGTH chars of TEXT,
+     *  read from SOURCE, which is used in error messages. */
+    ConfigParser(String source, char[] text, int length) {
+        _source = source;
+        _text = text;
+        _length = length;
+    }
+
+    /** Return the machine configured, with new permutations for its
+     *  rotors. */
+    Machine parse() {
+        return parse(null);
+    }
+
+    /** Return the machine configured, taking the permutations of its
+     *  rotors from POOL, unless it is null. */
+    Machine parse(PermutationPool pool) {
+        _pos = 0;
+        Alphabet alphabet = alphabet();
+        skipSpace();
+        int slotsAt = _pos;
+        int numRotors = number("number of rotor slots");
+        skipSpace();
+        int pawlsAt = _pos;
+        int pawls = number("number of pawls");
+        List<Rotor> rotors = new ArrayList<>();
+        int[] forward = new int[alphabet.size()];
+        boolean[] seen = new boolean[alphabet.size()];
+        while (skipSpace()) {
+            rotors.add(rotor(alphabet, forward, seen, pool));
+        }
+        if (numRotors <= 1 || numRotors > rotors.size()) {
+            throw errorAt(slotsAt, "there must be from 2 to %d rotor slots",
+                          rotors.size());
+        } else if (pawls < 0 || pawls >= numRotors) {
+            throw errorAt(pawlsAt, "there must be from 0 to %d pawls",
+                          numRotors - 1);
+        }
+        return new Machine(alphabet, numRotors, pawls, rotors);
+    }
+
+    /** Return the alphabet, the next token. */
+    private Alphabet alphabet() {
+        if (!skipSpace()) {
+            throw errorAt(_pos, "missing alphabet");
+        }
+        int start = _pos;
+        BitSet seen = new BitSet();
+        while (_pos < _length && !Character.isWhitespace(_text[_pos])) {
+            int c = Character.codePointAt(_text, _pos, _length);
+            if (c == '*' || c == '(' || c == ')') {
+                throw errorAt(_pos, "%s is an invalid character in the"
+                              + " alphabet", Alphabet.show(c));
+            } else if (seen.get(c)) {
+                throw errorAt(_pos, "%s is repeated in the alphabet",
+                              Alphabet.show(c));
+            }
+            seen.set(c);
+            _pos += Character.charCount(c);
+        }
+        return new Alphabet(new String(_text, start, _pos - start));
+    }
+
+    /** Return the next token, a non-negative integer, which is the
+     *  WHAT. */
+    private int number(String what) {
+        if (!skipSpace()) {
+            throw errorAt(_pos, "missing %s", what);
+        }
+        int start = _pos;
+        long value = 0;
+        while (_pos < _length && !Character.isWhitespace(_text[_pos])) {
+            char c = _text[_pos];
+            if (c < '0' || c > '9' || value > Integer.MAX_VALUE) {
+                throw errorAt(start, "bad %s", what);
+            }
+            value = 10 * value + (c - '0');
+            _pos += 1;
+        }
+        if (value > Integer.MAX_VALUE) {
+            throw errorAt(start, "bad %s", what);
+        }
+        return (int) value;
+    }
+
+    /** Return the next rotor, whose characters are in ALPHABET, using
+     *  FORWARD and SEEN, whose lengths are its size, as scratch space. Take
+     *  its permutation from POOL unless it is null. */
+    private Rotor rotor(Alphabet alphabet, int[] forward, boolean[] seen,
+                        PermutationPool pool) {
+        int nameAt = _pos;
+        String name = token();
+        if (name.startsWith("(")) {
+            throw errorAt(nameAt, "expected a rotor name, not cycles");
+        } else if (!skipSpace()) {
+            throw errorAt(_pos, "missing type of rotor %s", name);
+        }
+        int typeAt = _pos;
+        char type = _text[_pos];
+        if (type != 'M' && type != 'N' && type != 'R') {
+            throw errorAt(typeAt, "rotor %s must be described with 'M',"
+                          + " 'N', or 'R'", name);
+        }
+        _pos += 1;
+        int notchesAt = _pos;
+        String notches = token();
+        if (type == 'M') {
+            for (int i = 0; i < notches.length(); ) {
+                int c = notches.codePointAt(i);
+                if (!alphabet.contains(c)) {
+                    throw errorAt(notchesAt + i, "notch %s must be in the"
+                                  + " alphabet", Alphabet.show(c));
+                }
+                i += Character.charCount(c);
+            }
+        }
+
+        for (int k = 0; k < forward.length; k += 1) {
+            forward[k] = k;
+        }
+        Arrays.fill(seen, false);
+        while (skipSpace() && _text[_pos] == '(') {
+            cycles(alphabet, forward, seen);
+        }
+        if (type == 'R') {
+            for (int k = 0; k < forward.length; k += 1) {
+                if (forward[k] == k) {
+                    throw errorAt(nameAt, "reflector %s must map every"
+                                  + " character to another", name);
+                }
+            }
+        }
+        Permutation perm = pool == null ? new Permutation(forward, alphabet)
+            : pool.get(forward, alphabet);
+        switch (type) {
+        case 'M':
+            return new MovingRotor(name, perm, notches);
+        case 'N':
+            return new FixedRotor(name, perm);
+        default:
+            return new Reflector(name, perm);
+        }
+    }
+
+    /** Read the cycles in the next token into FORWARD, marking each
+     *  character of ALPHABET that they contain in SEEN. */
+    private void cycles(Alphabet alphabet, int[] forward, boolean[] seen) {
+        int first = -1, last = -1;
+        boolean open = false;
+        while (_pos < _length && !Character.isWhitespace(_text[_pos])) {
+            int c = Character.codePointAt(_text, _pos, _length);
+            if (c == '(') {
+                if (open) {
+                    throw errorAt(_pos, "cycle opened inside a cycle");
+                }
+                open = true;
+                first = -1;
+            } else if (c == ')') {
+                if (!open) {
+                    throw errorAt(_pos, "cycle closed but not opened");
+                } else if (first < 0) {
+                    throw errorAt(_pos, "empty cycle");
+                }
+                forward[last] = first;
+                open = false;
+            } else {
+                int index = alphabet.indexOf(c);
+                if (!open) {
+                    throw errorAt(_pos, "%s must be inside a cycle",
+                                  Alphabet.show(c));
+                } else if (index < 0) {
+                    throw errorAt(_pos, "%s in cycles must be in the"
+                                  + " alphabet", Alphabet.show(c));
+                } else if (seen[index]) {
+                    throw errorAt(_pos, "%s is repeated in cycles",
+                                  Alphabet.show(c));
+                }
+                seen[index] = true;
+                if (first < 0) {
+                    first = index;
+                } else {
+                    forward[last] = index;
+                }
+                last = index;
+            }
+            _pos += Character.charCount(c);
+        }
+        if (open) {
+            throw errorAt(_pos, "cycle not closed");
+        }
+    }
+
+    /** Return the rest of the current token, which may be empty. */
+    private String token() {
+        int start = _pos;
+        while (_pos < _length && !Character.isWhitespace(_text[_pos])) {
+            _pos += 1;
+        }
+        return new String(_text, start, _pos - start);
+    }
+
+    /** Skip whitespace, and return true iff a token follows. */
+    private boolean skipSpace() {
+        while (_pos < _length && Character.isWhitespace(_text[_pos])) {
+            _pos += 1;
+        }
+        return _pos < _length;
+    }
+
+    /** Return an exception reporting the error described by FORMAT and
+     *  ARGS at offset POS of the text, by line and column. */
+    private EnigmaException errorAt(int pos, String format, Object... args) {
+        int line = 1, lineStart = 0;
+        for (int i = 0; i < pos; i += 1) {
+            if (_text[i] == '\n') {
+                line += 1;
+                lineStart = i + 1;
+            }
+        }
+        int column = Character.codePointCount(_text, lineStart,
+                                              pos - lineStart) + 1;
+        return error("%s:%d:%d: %s", _source, line, column,
+                     String.format(format, args));
+    }
+
+    /** Name of the source of the text, for error messages. */
+    private final String _source;
+
+    /** The text parsed. */
+    private final char[] _text;
+
+    /** Number of chars of _text parsed. */
+    private final int _length;
+
+    /** Offset in _text of the next char to read. */
+    private int _pos;
+}
@@ -0,0 +1,130 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the ConfigParser class.
+ *  @author Henry Chiong
+ */
+public class ConfigParserTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** A small configuration. */
+    private static final String CONFIG = "ABCD\n"
+        + " 3 1\n"
+        + " I MA   (AB)(CD)\n"
+        + " II N   (ACB)\n"
+        + "        (D)\n"
+        + " R R    (AD) (BC)\n";
+
+    /** Return the message of the error in parsing TEXT. */
+    private static String errorIn(String text) {
+        try {
+            new ConfigParser("test.conf", text).parse();
+        } catch (EnigmaException excp) {
+            return excp.getMessage();
+        }
+        fail("no error in " + text);
+        return null;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testParse() {
+        Machine m = new ConfigParser("test.conf", CONFIG).parse();
+        assertEquals("ABCD", m.alphabet().chars());
+        assertEquals(3, m.numRotors());
+        assertEquals(1, m.numPawls());
+        assertEquals(3, m.allRotors().size());
+        for (Rotor rotor : m.allRotors()) {
+            if (rotor.name().equals("I")) {
+                assertTrue(rotor.rotates());
+                assertEquals("A", rotor.notches());
+                assertEquals(1, rotor.permutation().permute(0));
+                assertEquals(2, rotor.permutation().permute(3));
+            } else if (rotor.name().equals("II")) {
+                assertFalse(rotor.rotates());
+                assertEquals(2, rotor.permutation().permute(0));
+                assertEquals(3, rotor.permutation().permute(3));
+            } else {
+                assertTrue(rotor.reflecting());
+            }
+        }
+    }
+
+    @Test
+    public void testMatchesCycleStrings() {
+        String config = ConfigBenchmark.generate(6, 40, new Random(61));
+        Machine m = new ConfigParser("gen.conf", config).parse();
+        String alphabet = config.substring(0, config.indexOf('\n'));
+        int k = 0;
+        for (Rotor rotor : m.allRotors()) {
+            String line = config.split("\n R" + k + " ")[1];
+            String cycles = line.substring(line.indexOf('\n'))
+                .split("\n R")[0];
+            Permutation expected =
+                new Permutation(cycles, new Alphabet(alphabet));
+            for (int c = 0; c < 40; c += 1) {
+                assertEquals(expected.permute(c),
+                             rotor.permutation().permute(c));
+            }
+            k += 1;
+        }
+    }
+
+    @Test
+    public void testPool() {
+        PermutationPool pool = new PermutationPool(8);
+        Machine m1 = new ConfigParser("a", CONFIG).parse(pool);
+        Machine m2 = new ConfigParser("b", CONFIG).parse(pool);
+        assertSame(m1.allRotors().iterator().next().permutation(),
+                   m2.allRotors().iterator().next().permutation());
+    }
+
+    @Test
+    public void testErrorLocations() {
+        assertEquals("test.conf:3:15: cycle not closed",
+                     errorIn(CONFIG.replace("(AB)(CD)", "(AB)(C")));
+        assertEquals("test.conf:3:15: cycle not closed",
+                     errorIn(CONFIG.replace("(AB)(CD)", "(AB)(C D)")));
+        assertEquals("test.conf:4:12: E in cycles must be in the alphabet",
+                     errorIn(CONFIG.replace("(ACB)", "(ACE)")));
+        assertEquals("test.conf:5:11: B is repeated in cycles",
+                     errorIn(CONFIG.replace("(D)", "(DB)")));
+        assertEquals("test.conf:3:14: empty cycle",
+                     errorIn(CONFIG.replace("(AB)(CD)", "(AB)()")));
+        assertEquals("test.conf:3:5: notch Z must be in the alphabet",
+                     errorIn(CONFIG.replace("MA", "MZ")));
+        assertEquals("test.conf:4:5: rotor II must be described with 'M',"
+                     + " 'N', or 'R'",
+                     errorIn(CONFIG.replace("II N", "II X")));
+        assertEquals("test.conf:6:2: reflector R must map every character"
+                     + " to another",
+                     errorIn(CONFIG.replace("(BC)", "")));
+        assertEquals("test.conf:2:2: there must be from 2 to 3 rotor slots",
+                     errorIn(CONFIG.replace(" 3 1", " 4 1")));
+        assertEquals("test.conf:2:4: bad number of pawls",
+                     errorIn(CONFIG.replace(" 3 1", " 3 x")));
+        assertEquals("test.conf:1:4: C is repeated in the alphabet",
+                     errorIn("ABCC 3 1"));
+        assertEquals("test.conf:1:5: missing number of rotor slots",
+                     errorIn("ABCD"));
+    }
+
+    @Test
+    public void testSupplementaryColumns() {
+        assertEquals("test.conf:1:4: * is an invalid character in the"
+                     + " alphabet", errorIn("A\uD83D\uDE00B*"));
+    }
+}
@@ -0,0 +1,214 @@
+package enigma;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static enigma.EnigmaException.*;
+
+/** Finds the admissible positions of a crib (a guessed piece of plaintext)
+ *  in a ciphertext. Since every reflector is a derangement, no character
+ *  of an enigma machine ever encrypts to itself, so a crib cannot be placed
+ *  at any offset where one of its characters lines up with the same
+ *  character of the ciphertext.
+ *
+ *  The ciphertext is scanned in a single streaming pass using a bit-parallel
+ *  (shift-and) automaton, so that every ciphertext character updates the
+ *  state of up to 64 candidate offsets with one word operation.
+ *  @author Henry Chiong
+ */
+final class CribFinder {
+
+    /** Receives the admissible crib positions as they are found. */
+    interface Listener {
+        /** Called for each admissible crib position POSN, numbered from 0
+         *  among the alphabet characters of the ciphertext. */
+        void found(long posn);
+    }
+
+    /** Lists the admissible positions of a crib in a ciphertext, as
+     *  specified by ARGS, where 2 <= ARGS.length <= 3. ARGS[0] is the name
+     *  of a configuration file, whose first token is the alphabet. ARGS[1]
+     *  is the crib. ARGS[2] is optional; when present, it names the file
+     *  containing the ciphertext. Otherwise, the ciphertext comes from the
+     *  standard input. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 2 || args.length > 3) {
+                throw error("Only 2 or 3 command-line arguments allowed");
+            }
+            Alphabet alphabet = readAlphabet(args[0]);
+            CribFinder finder = new CribFinder(args[1], alphabet);
+            PrintStream out = System.out;
+            if (args.length > 2) {
+                try (InputStream in = new FileInputStream(args[2])) {
+                    finder.scan(in, out::println);
+                }
+            } else {
+                finder.scan(System.in, out::println);
+            }
+            out.flush();
+            return;
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A finder for CRIB, whose characters must all be in ALPHABET. */
+    CribFinder(String crib, Alphabet alphabet) {
+        if (crib.isEmpty()) {
+            throw error("Crib must not be empty.");
+        }
+        int[] chars = crib.codePoints().toArray();
+        _length = chars.length;
+        _words = (_length + WORD_BITS - 1) / WORD_BITS;
+        _masks = new long[alphabet.size()][_words];
+        for (long[] mask : _masks) {
+            Arrays.fill(mask, -1L);
+        }
+        for (int i = 0; i < _length; i += 1) {
+            int c = chars[i];
+            if (!alphabet.contains(c)) {
+                throw error(Alphabet.show(c)
+                            + " in the crib must be in the alphabet.");
+            }
+            _masks[alphabet.toInt(c)][i / WORD_BITS] &= ~(1L << i);
+        }
+        _state = new long[_words];
+        _index = indexTable(alphabet);
+    }
+
+    /** Return the length of my crib. */
+    int length() {
+        return _length;
+    }
+
+    /** Report to LISTENER every admissible position of my crib in the
+     *  ciphertext read from IN, which is decoded as UTF-8. Characters not
+     *  in my alphabet (such as whitespace) are skipped. */
+    void scan(InputStream in, Listener listener) throws IOException {
+        scan(new InputStreamReader(in, StandardCharsets.UTF_8), listener);
+    }
+
+    /** Report to LISTENER every admissible position of my crib in the
+     *  ciphertext read from IN. Characters not in my alphabet (such as
+     *  whitespace) are skipped. */
+    void scan(Reader in, Listener listener) throws IOException {
+        Arrays.fill(_state, 0L);
+        char[] buf = new char[BUFFER_SIZE];
+        long posn = 0;
+        char high = 0;
+        for (int n = in.read(buf); n >= 0; n = in.read(buf)) {
+            for (int i = 0; i < n; i += 1) {
+                char ch = buf[i];
+                if (Character.isHighSurrogate(ch)) {
+                    high = ch;
+                    continue;
+                }
+                int c = high != 0 && Character.isLowSurrogate(ch)
+                    ? Character.toCodePoint(high, ch) : ch;
+                high = 0;
+                int k = c < _index.length ? _index[c] : -1;
+                if (k < 0) {
+                    continue;
+                }
+                if (step(_masks[k])) {
+                    listener.found(posn - _length + 1);
+                }
+                posn += 1;
+            }
+        }
+    }
+
+    /** Return every admissible position of my crib in CIPHERTEXT, which
+     *  must consist only of characters in my alphabet. */
+    long[] find(String ciphertext) {
+        long[] result = new long[ciphertext.length()];
+        int[] count = new int[1];
+        try {
+            scan(new StringReader(ciphertext),
+                posn -> result[count[0]++] = posn);
+        } catch (IOException excp) {
+            throw error("could not read ciphertext");
+        }
+        return Arrays.copyOf(result, count[0]);
+    }
+
+    /** Advance the shift-and automaton by one ciphertext character, whose
+     *  crib mask is MASK. Bit K of the state is set iff the crib placed
+     *  so as to end K characters from here has no clashes so far. Return
+     *  true iff the crib placed to end at this character has no clashes. */
+    private boolean step(long[] mask) {
+        long carry = 1L;
+        for (int w = 0; w < _words; w += 1) {
+            long word = _state[w];
+            _state[w] = ((word << 1) | carry) & mask[w];
+            carry = word >>> (WORD_BITS - 1);
+        }
+        int last = _length - 1;
+        return (_state[last / WORD_BITS] & (1L << last)) != 0;
+    }
+
+    /** Return a table mapping each code point up to the largest one in
+     *  ALPHABET to its index in ALPHABET, or to -1 if it is not in
+     *  ALPHABET. */
+    private static int[] indexTable(Alphabet alphabet) {
+        int max = -1;
+        for (int i = 0; i < alphabet.size(); i += 1) {
+            max = Math.max(max, alphabet.toCodePoint(i));
+        }
+        int[] result = new int[max + 1];
+        Arrays.fill(result, -1);
+        for (int i = 0; i < alphabet.size(); i += 1) {
+            result[alphabet.toCodePoint(i)] = i;
+        }
+        return result;
+    }
+
+    /** Return the alphabet described by the configuration file named
+     *  NAME. */
+    private static Alphabet readAlphabet(String name) {
+        try (Scanner config = new Scanner(new File(name))) {
+            if (!config.hasNext()) {
+                throw error("Configuration file truncated.");
+            }
+            return new Alphabet(config.next());
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Number of bits in a state word. */
+    private static final int WORD_BITS = 64;
+
+    /** Number of characters read from the ciphertext at a time. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Length of the crib. */
+    private final int _length;
+
+    /** Number of words in the state of the automaton. */
+    private final int _words;
+
+    /** For each character index C of the alphabet, a bit set whose bit K
+     *  is clear iff the Kth character of the crib is C. */
+    private final long[][] _masks;
+
+    /** Maps code points to their indices in the alphabet of the crib, or
+     *  to -1 for characters not in it. */
+    private final int[] _index;
+
+    /** Current state of the shift-and automaton. */
+    private final long[] _state;
+}
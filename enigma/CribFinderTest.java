@@ -0,0 +1,99 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CribFinder class.
+ *  @author Henry Chiong
+ */
+public class CribFinderTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the admissible positions of CRIB in CIPHERTEXT, computed by
+     *  comparing every position character by character. */
+    private long[] naiveFind(String crib, String ciphertext) {
+        long[] result = new long[ciphertext.length()];
+        int count = 0;
+        for (int p = 0; p + crib.length() <= ciphertext.length(); p += 1) {
+            boolean admissible = true;
+            for (int i = 0; i < crib.length(); i += 1) {
+                if (crib.charAt(i) == ciphertext.charAt(p + i)) {
+                    admissible = false;
+                }
+            }
+            if (admissible) {
+                result[count] = p;
+                count += 1;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testLength() {
+        assertEquals(3, new CribFinder("WAR", UPPER).length());
+    }
+
+    @Test
+    public void testFind() {
+        CribFinder finder = new CribFinder("ABC", UPPER);
+        assertArrayEquals(new long[] {1, 3}, finder.find("ACAXYZ"));
+        assertArrayEquals(new long[0], finder.find("AB"));
+    }
+
+    @Test
+    public void testSkipsWhitespace() {
+        CribFinder finder = new CribFinder("ABC", UPPER);
+        assertArrayEquals(new long[] {1, 3}, finder.find("AC A\nXY Z"));
+    }
+
+    @Test
+    public void testLongCrib() {
+        Random random = new Random(61);
+        StringBuilder crib = new StringBuilder();
+        for (int i = 0; i < 150; i += 1) {
+            crib.append(UPPER_STRING.charAt(random.nextInt(26)));
+        }
+        StringBuilder ciphertext = new StringBuilder();
+        for (int i = 0; i < 5000; i += 1) {
+            ciphertext.append(UPPER_STRING.charAt(random.nextInt(26)));
+        }
+        CribFinder finder = new CribFinder(crib.toString(), UPPER);
+        assertArrayEquals(naiveFind(crib.toString(), ciphertext.toString()),
+                finder.find(ciphertext.toString()));
+    }
+
+    @Test
+    public void testSupplementary() {
+        Alphabet alpha = new Alphabet("AB\uD83D\uDE00\uD83D\uDE01");
+        CribFinder finder = new CribFinder("A\uD83D\uDE00", alpha);
+        assertEquals(2, finder.length());
+        assertArrayEquals(new long[] {0, 2}, finder.find(
+            "\uD83D\uDE01B\uD83D\uDE00 A\uD83D\uDE00"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testCribNotInAlphabet() {
+        new CribFinder("AB1", UPPER);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testEmptyCrib() {
+        new CribFinder("", UPPER);
+    }
+}
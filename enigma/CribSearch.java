@@ -0,0 +1,52 @@
+package enigma;
+
+import java.util.function.Consumer;
+
+import static enigma.EnigmaException.*;
+
+/** The inner loop of a known-plaintext search: finds the keys in a unit
+ *  of a KeySpace under which a machine without a plugboard enciphers a
+ *  known plaintext to the start of a ciphertext. Each key is rejected at
+ *  the first character that does not match, so most are rejected after
+ *  converting one character.
+ *  @author Henry Chiong
+ */
+final class CribSearch {
+
+    /** A search for keys enciphering PLAIN to the start of CIPHER, both
+     *  as alphabet indices. */
+    CribSearch(int[] plain, int[] cipher) {
+        if (plain.length == 0 || plain.length > cipher.length) {
+            throw error("Plaintext must be a nonempty prefix.");
+        }
+        _plain = plain.clone();
+        _cipher = cipher.clone();
+    }
+
+    /** Pass to HITS the settings line of each key in UNIT of SPACE that
+     *  enciphers my plaintext to my ciphertext. */
+    void search(KeySpace space, int unit, Consumer<String> hits) {
+        CompiledKey key = space.key(unit);
+        int[] start = new int[key.numRotors()];
+        int[] posns = new int[key.numRotors()];
+        for (long i = 0; i < space.unitSize(); i += 1) {
+            space.positions(i, start);
+            System.arraycopy(start, 0, posns, 0, posns.length);
+            int t;
+            for (t = 0; t < _plain.length; t += 1) {
+                if (key.convert(_plain[t], posns) != _cipher[t]) {
+                    break;
+                }
+            }
+            if (t == _plain.length) {
+                hits.accept(space.settings(unit, i));
+            }
+        }
+    }
+
+    /** The known plaintext. */
+    private final int[] _plain;
+
+    /** The ciphertext. */
+    private final int[] _cipher;
+}
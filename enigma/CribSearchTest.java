@@ -0,0 +1,49 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CribSearch class.
+ *  @author Henry Chiong
+ */
+public class CribSearchTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testFindsKey() {
+        Machine machine = KeySpaceTest.smallMachine();
+        KeySpace space = new KeySpace(machine);
+        int unit = 3 * 26 + 5;
+        CompiledKey key = space.key(unit);
+        int[] posns = positions(key, "QT", UPPER);
+        int[] plain = CiphertextAttack.indices("HELLOWORLD", UPPER);
+        int[] cipher = new int[plain.length + 5];
+        key.convert(plain, cipher, plain.length, posns);
+
+        List<String> hits = new ArrayList<>();
+        CribSearch search = new CribSearch(plain, cipher);
+        search.search(space, unit, hits::add);
+        assertTrue(hits.contains("* B II III QT AF"));
+        hits.clear();
+        search.search(space, unit + 1, hits::add);
+        assertFalse(hits.contains("* B II III QT AF"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testLongPlaintext() {
+        new CribSearch(new int[] {1, 2, 3}, new int[] {4, 5});
+    }
+}
@@ -0,0 +1,530 @@
+package enigma;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A catalog of the cycle structures of Rejewski's characteristic for
+ *  every rotor order and start position of a configured machine.
+ *
+ *  If A1, ..., A6 are the permutations the machine applies to the first
+ *  six characters of a message, the characteristic consists of the
+ *  products AD, BE, and CF, where AD maps X to A4(A1(X)), and so on. The
+ *  lengths of the cycles of these products do not depend on the plugboard,
+ *  so they identify the rotor order and start positions (with all rings at
+ *  their 0 settings) without it.
+ *
+ *  The catalog is built in parallel across rotor orders: each order writes
+ *  a run of (signature, positions) records sorted by signature to a
+ *  temporary file, and the runs are then merged into an index file. The
+ *  index holds a header with the rotor orders and the alphabet, followed by
+ *  fixed-size records sorted by signature, and is searched by binary
+ *  search over a memory mapping of the records. Signatures are 64-bit
+ *  hashes of the cycle structures.
+ *  @author Henry Chiong
+ */
+final class CycleCatalog {
+
+    /** A setting found in a catalog. */
+    static final class Match {
+
+        /** A match of rotor order ROTORS with start positions POSNS, a
+         *  string of rotor settings as for Machine.setRotors. */
+        Match(String[] rotors, String posns) {
+            _rotors = rotors;
+            _posns = posns;
+        }
+
+        /** Return my rotor order. */
+        String[] rotors() {
+            return _rotors.clone();
+        }
+
+        /** Return my start positions. */
+        String positions() {
+            return _posns;
+        }
+
+        @Override
+        public String toString() {
+            return String.join(" ", _rotors) + " " + _posns;
+        }
+
+        /** Rotor order. */
+        private final String[] _rotors;
+
+        /** Start positions. */
+        private final String _posns;
+    }
+
+    /** Build or search a catalog, as specified by ARGS. "build CONFIG OUT"
+     *  writes the catalog of configuration file CONFIG to OUT. "find
+     *  CATALOG AD BE CF" prints the settings in CATALOG whose products
+     *  have the cycle lengths AD, BE, and CF, each a comma-separated list
+     *  such as 13,13. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length == 3 && args[0].equals("build")) {
+                build(Main.readConfig(args[1]), args[2],
+                      ForkJoinPool.commonPool());
+            } else if (args.length == 5 && args[0].equals("find")) {
+                CycleCatalog catalog = open(args[1]);
+                for (Match match : catalog.find(lengths(args[2]),
+                                                lengths(args[3]),
+                                                lengths(args[4]))) {
+                    System.out.println(match);
+                }
+            } else {
+                throw error("Usage: build CONFIG OUT"
+                            + " | find CATALOG AD BE CF");
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Write the catalog of every rotor order and start position of
+     *  MACHINE to the file named NAME, computing it on POOL. */
+    static void build(Machine machine, String name, ForkJoinPool pool) {
+        List<String[]> orders = machine.rotorOrders();
+        int size = machine.alphabet().size();
+        long settings = power(size, machine.numRotors() - 1);
+        if (settings > Integer.MAX_VALUE) {
+            throw error("Too many start positions to catalog.");
+        }
+        File[] runs = new File[orders.size()];
+        try {
+            for (int i = 0; i < runs.length; i += 1) {
+                runs[i] = File.createTempFile("catalog", ".run",
+                        new File(name).getAbsoluteFile().getParentFile());
+                runs[i].deleteOnExit();
+            }
+            pool.invoke(new RangeTask(0, runs.length,
+                i -> writeRun(machine.compile(orders.get(i)), (int) settings,
+                              runs[i])));
+            merge(machine, orders, runs, name);
+        } catch (IOException excp) {
+            throw error("could not write %s", name);
+        } finally {
+            for (File run : runs) {
+                if (run != null) {
+                    run.delete();
+                }
+            }
+        }
+    }
+
+    /** Return the catalog in the file named NAME. */
+    static CycleCatalog open(String name) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            DataInputStream input =
+                new DataInputStream(new FileInputStream(name));
+            int headerLength;
+            byte[] header;
+            try {
+                if (input.readInt() != MAGIC) {
+                    throw error("%s is not a cycle catalog.", name);
+                }
+                headerLength = input.readInt();
+                header = new byte[headerLength];
+                input.readFully(header);
+            } finally {
+                input.close();
+            }
+            DataInputStream fields =
+                new DataInputStream(new ByteArrayInputStream(header));
+            String alphabet = fields.readUTF();
+            int numOrders = fields.readInt();
+            String[][] orders = new String[numOrders][];
+            for (int i = 0; i < numOrders; i += 1) {
+                orders[i] = fields.readUTF().split(" ");
+            }
+            long count = fields.readLong();
+            long offset = 8L + headerLength;
+            if (channel.size() != offset + count * RECORD_BYTES) {
+                throw error("%s is truncated.", name);
+            }
+            int chunks = (int) ((count + CHUNK_RECORDS - 1) / CHUNK_RECORDS);
+            ByteBuffer[] data = new ByteBuffer[chunks];
+            for (int c = 0; c < chunks; c += 1) {
+                long first = (long) c * CHUNK_RECORDS;
+                long records = Math.min(CHUNK_RECORDS, count - first);
+                data[c] = channel.map(FileChannel.MapMode.READ_ONLY,
+                                      offset + first * RECORD_BYTES,
+                                      records * RECORD_BYTES);
+            }
+            return new CycleCatalog(alphabet, orders, count, data);
+        } catch (EOFException excp) {
+            throw error("%s is truncated.", name);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** A catalog over the characters of ALPHABET listing the rotor orders
+     *  ORDERS, whose COUNT records are mapped in the chunks DATA. */
+    private CycleCatalog(String alphabet, String[][] orders, long count,
+                         ByteBuffer[] data) {
+        _alphabet = alphabet.codePoints().toArray();
+        _orders = orders;
+        _count = count;
+        _data = data;
+    }
+
+    /** Return the number of settings in me. */
+    long size() {
+        return _count;
+    }
+
+    /** Return the settings in me whose products AD, BE, and CF have cycles
+     *  of lengths AD, BE, and CF (in any order). */
+    List<Match> find(int[] ad, int[] be, int[] cf) {
+        int[][] products = {ad.clone(), be.clone(), cf.clone()};
+        for (int[] lengths : products) {
+            Arrays.sort(lengths);
+            reverse(lengths, lengths.length);
+        }
+        return find(signature(products[0], products[0].length,
+                              products[1], products[1].length,
+                              products[2], products[2].length));
+    }
+
+    /** Return the settings in me whose signature is SIGNATURE. */
+    List<Match> find(long signature) {
+        long lo = 0, hi = _count;
+        while (lo < hi) {
+            long mid = (lo + hi) >>> 1;
+            if (Long.compareUnsigned(signature(mid), signature) < 0) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        List<Match> result = new ArrayList<>();
+        for (long r = lo; r < _count && signature(r) == signature; r += 1) {
+            String[] order = _orders[record(r).getInt(offset(r) + 8)];
+            long posns = record(r).getLong(offset(r) + 12);
+            int size = _alphabet.length;
+            int[] setting = new int[order.length - 1];
+            for (int k = setting.length - 1; k >= 0; k -= 1) {
+                setting[k] = _alphabet[(int) (posns % size)];
+                posns /= size;
+            }
+            result.add(new Match(order,
+                                 new String(setting, 0, setting.length)));
+        }
+        return result;
+    }
+
+    /** Return the signature of record R. */
+    private long signature(long r) {
+        return record(r).getLong(offset(r));
+    }
+
+    /** Return the mapped chunk containing record R. */
+    private ByteBuffer record(long r) {
+        return _data[(int) (r / CHUNK_RECORDS)];
+    }
+
+    /** Return the offset of record R in its chunk. */
+    private static int offset(long r) {
+        return (int) (r % CHUNK_RECORDS) * RECORD_BYTES;
+    }
+
+    /** Return the signature of products with the COUNTAD cycle lengths
+     *  in AD, the COUNTBE in BE, and the COUNTCF in CF, each in decreasing
+     *  order. */
+    static long signature(int[] ad, int countAD, int[] be, int countBE,
+                          int[] cf, int countCF) {
+        long hash = FNV_OFFSET;
+        hash = hash(hash, ad, countAD);
+        hash = hash(hash, be, countBE);
+        return hash(hash, cf, countCF);
+    }
+
+    /** Return the signature of the three products of the permutations made
+     *  by KEY at the first six positions after POSNS, using the scratch
+     *  arrays in SCRATCH. */
+    static long signature(CompiledKey key, int[] posns, Scratch scratch) {
+        int size = key.size();
+        int[][] steps = scratch._steps;
+        System.arraycopy(posns, 0, scratch._posns, 0, posns.length);
+        for (int s = 0; s < 6; s += 1) {
+            key.step(scratch._posns);
+            for (int x = 0; x < size; x += 1) {
+                steps[s][x] = key.convertAt(x, scratch._posns);
+            }
+        }
+        int[] counts = new int[3];
+        for (int p = 0; p < 3; p += 1) {
+            int[] first = steps[p], second = steps[p + 3];
+            for (int x = 0; x < size; x += 1) {
+                scratch._product[x] = second[first[x]];
+            }
+            counts[p] = Permutation.cycleStructure(scratch._product,
+                    scratch._seen, scratch._lengths[p]);
+        }
+        return signature(scratch._lengths[0], counts[0],
+                         scratch._lengths[1], counts[1],
+                         scratch._lengths[2], counts[2]);
+    }
+
+    /** Scratch arrays for computing the signatures of one key. */
+    static final class Scratch {
+
+        /** Scratch space for a key over an alphabet of SIZE characters with
+         *  NUMROTORS rotors. */
+        Scratch(int size, int numRotors) {
+            _steps = new int[6][size];
+            _product = new int[size];
+            _seen = new boolean[size];
+            _lengths = new int[3][size];
+            _posns = new int[numRotors];
+        }
+
+        /** The permutations at each of the six positions. */
+        private final int[][] _steps;
+
+        /** A product of two of them. */
+        private final int[] _product;
+
+        /** Marks for finding cycles. */
+        private final boolean[] _seen;
+
+        /** Cycle lengths of each product. */
+        private final int[][] _lengths;
+
+        /** Rotor positions. */
+        private final int[] _posns;
+    }
+
+    /** Write to RUN the signature and packed positions of each of the
+     *  SETTINGS start positions of KEY, sorted by signature. */
+    private static void writeRun(CompiledKey key, int settings, File run) {
+        int size = key.size();
+        long[] signatures = new long[settings];
+        long[] posns = new long[settings];
+        Scratch scratch = new Scratch(size, key.numRotors());
+        int[] start = new int[key.numRotors()];
+        for (int i = 0; i < settings; i += 1) {
+            int packed = i;
+            for (int k = start.length - 1; k >= 1; k -= 1) {
+                start[k] = packed % size;
+                packed /= size;
+            }
+            signatures[i] = signature(key, start, scratch);
+            posns[i] = i;
+        }
+        sort(signatures, posns);
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(run),
+                                         BUFFER_SIZE))) {
+            for (int i = 0; i < settings; i += 1) {
+                out.writeLong(signatures[i]);
+                out.writeLong(posns[i]);
+            }
+        } catch (IOException excp) {
+            throw error("could not write %s", run);
+        }
+    }
+
+    /** Merge the sorted RUNS for ORDERS of MACHINE into the catalog file
+     *  named NAME. */
+    private static void merge(Machine machine, List<String[]> orders,
+                              File[] runs, String name) throws IOException {
+        ByteArrayOutputStream headerBytes = new ByteArrayOutputStream();
+        DataOutputStream header = new DataOutputStream(headerBytes);
+        StringBuilder alphabet = new StringBuilder();
+        for (int k = 0; k < machine.alphabet().size(); k += 1) {
+            alphabet.appendCodePoint(machine.alphabet().toCodePoint(k));
+        }
+        header.writeUTF(alphabet.toString());
+        header.writeInt(orders.size());
+        for (String[] order : orders) {
+            header.writeUTF(String.join(" ", order));
+        }
+        long count = 0;
+        for (File run : runs) {
+            count += run.length() / RUN_RECORD_BYTES;
+        }
+        header.writeLong(count);
+
+        DataInputStream[] inputs = new DataInputStream[runs.length];
+        long[] remaining = new long[runs.length];
+        PriorityQueue<long[]> heads = new PriorityQueue<>(
+            (x, y) -> Long.compareUnsigned(x[0], y[0]));
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(name),
+                                         BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(headerBytes.size());
+            headerBytes.writeTo(out);
+            for (int i = 0; i < runs.length; i += 1) {
+                inputs[i] = new DataInputStream(new BufferedInputStream(
+                        new FileInputStream(runs[i]), RUN_BUFFER_SIZE));
+                remaining[i] = runs[i].length() / RUN_RECORD_BYTES;
+                advance(inputs, remaining, i, heads);
+            }
+            while (!heads.isEmpty()) {
+                long[] head = heads.poll();
+                out.writeLong(head[0]);
+                out.writeInt((int) head[2]);
+                out.writeLong(head[1]);
+                advance(inputs, remaining, (int) head[2], heads);
+            }
+        } finally {
+            for (DataInputStream input : inputs) {
+                if (input != null) {
+                    input.close();
+                }
+            }
+        }
+    }
+
+    /** Add the next record of run number RUN, read from INPUTS[RUN], to
+     *  HEADS as {signature, positions, RUN}, if REMAINING[RUN] shows there
+     *  is one. */
+    private static void advance(DataInputStream[] inputs, long[] remaining,
+                                int run, PriorityQueue<long[]> heads)
+        throws IOException {
+        if (remaining[run] > 0) {
+            remaining[run] -= 1;
+            heads.add(new long[] {inputs[run].readLong(),
+                                  inputs[run].readLong(), run});
+        }
+    }
+
+    /** Sort KEYS into unsigned increasing order, permuting VALUES in the
+     *  same way, by a least-significant-digit radix sort. There is an even
+     *  number of passes, so the result ends up back in KEYS and VALUES. */
+    static void sort(long[] keys, long[] values) {
+        int n = keys.length;
+        long[] keys2 = new long[n], values2 = new long[n];
+        int[] counts = new int[RADIX + 1];
+        for (int shift = 0; shift < Long.SIZE; shift += RADIX_BITS) {
+            Arrays.fill(counts, 0);
+            for (long key : keys) {
+                counts[(int) ((key >>> shift) & (RADIX - 1)) + 1] += 1;
+            }
+            for (int d = 0; d < RADIX; d += 1) {
+                counts[d + 1] += counts[d];
+            }
+            for (int i = 0; i < n; i += 1) {
+                int d = (int) ((keys[i] >>> shift) & (RADIX - 1));
+                keys2[counts[d]] = keys[i];
+                values2[counts[d]] = values[i];
+                counts[d] += 1;
+            }
+            long[] swap = keys;
+            keys = keys2;
+            keys2 = swap;
+            swap = values;
+            values = values2;
+            values2 = swap;
+        }
+    }
+
+    /** Return HASH updated with the first COUNT entries of LENGTHS and a
+     *  terminator. */
+    private static long hash(long hash, int[] lengths, int count) {
+        for (int i = 0; i < count; i += 1) {
+            hash = (hash ^ lengths[i]) * FNV_PRIME;
+        }
+        return (hash ^ 0xFFFF) * FNV_PRIME;
+    }
+
+    /** Reverse the first COUNT entries of A. */
+    private static void reverse(int[] a, int count) {
+        for (int i = 0, j = count - 1; i < j; i += 1, j -= 1) {
+            int x = a[i];
+            a[i] = a[j];
+            a[j] = x;
+        }
+    }
+
+    /** Return the cycle lengths in S, a comma-separated list. */
+    private static int[] lengths(String s) {
+        String[] parts = s.split(",");
+        int[] result = new int[parts.length];
+        try {
+            for (int i = 0; i < parts.length; i += 1) {
+                result[i] = Integer.parseInt(parts[i].trim());
+            }
+        } catch (NumberFormatException excp) {
+            throw error("Bad cycle lengths: %s", s);
+        }
+        return result;
+    }
+
+    /** Return BASE to the power EXP, or Long.MAX_VALUE on overflow. */
+    private static long power(int base, int exp) {
+        long result = 1;
+        for (int i = 0; i < exp; i += 1) {
+            if (result > Long.MAX_VALUE / base) {
+                return Long.MAX_VALUE;
+            }
+            result *= base;
+        }
+        return result;
+    }
+
+    /** The first int of a catalog file ("CYCL"). */
+    private static final int MAGIC = 0x4359434C;
+
+    /** Bytes in a record of a catalog: signature, order, positions. */
+    private static final int RECORD_BYTES = 20;
+
+    /** Bytes in a record of a run: signature, positions. */
+    private static final int RUN_RECORD_BYTES = 16;
+
+    /** Records in each mapped chunk of a catalog. */
+    private static final int CHUNK_RECORDS = (1 << 30) / RECORD_BYTES;
+
+    /** Bits sorted by each pass of the radix sort. */
+    private static final int RADIX_BITS = 8;
+
+    /** Number of digit values in each pass of the radix sort. */
+    private static final int RADIX = 1 << RADIX_BITS;
+
+    /** Size of the buffer for writing files. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** Size of the buffer for reading each run. */
+    private static final int RUN_BUFFER_SIZE = 1 << 14;
+
+    /** FNV-1a hash parameters. */
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L,
+        FNV_PRIME = 0x100000001b3L;
+
+    /** Code points of the alphabet of the catalog. */
+    private final int[] _alphabet;
+
+    /** Rotor orders of the catalog. */
+    private final String[][] _orders;
+
+    /** Number of records. */
+    private final long _count;
+
+    /** Mapped chunks of the records. */
+    private final ByteBuffer[] _data;
+}
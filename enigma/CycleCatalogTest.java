@@ -0,0 +1,126 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the CycleCatalog class.
+ *  @author Henry Chiong
+ */
+public class CycleCatalogTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a small machine with reflector B and moving rotors I, II,
+     *  and III, with 3 slots and 2 pawls. */
+    private Machine smallMachine() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"),
+                                                      UPPER)));
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        return new Machine(UPPER, 3, 2, rotors);
+    }
+
+    /** Return the cycle lengths of the products AD, BE, and CF of the
+     *  permutations KEY makes after each of its first six steps from
+     *  POSNS. */
+    private int[][] characteristic(CompiledKey key, int[] posns) {
+        int size = key.size();
+        int[][] steps = new int[6][size];
+        for (int s = 0; s < 6; s += 1) {
+            key.step(posns);
+            for (int x = 0; x < size; x += 1) {
+                steps[s][x] = key.convertAt(x, posns);
+            }
+        }
+        int[][] result = new int[3][];
+        for (int p = 0; p < 3; p += 1) {
+            int[] product = new int[size];
+            for (int x = 0; x < size; x += 1) {
+                product[x] = steps[p + 3][steps[p][x]];
+            }
+            int[] lengths = new int[size];
+            int count = Permutation.cycleStructure(product,
+                                                   new boolean[size], lengths);
+            result[p] = Arrays.copyOf(lengths, count);
+        }
+        return result;
+    }
+
+    /** Return a new temporary file name. */
+    private File tempFile() throws IOException {
+        File result = File.createTempFile("catalog", ".idx");
+        result.deleteOnExit();
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSort() {
+        Random random = new Random(61);
+        long[] keys = new long[1000], values = new long[1000];
+        for (int i = 0; i < keys.length; i += 1) {
+            keys[i] = random.nextLong();
+            values[i] = ~keys[i];
+        }
+        CycleCatalog.sort(keys, values);
+        for (int i = 0; i < keys.length; i += 1) {
+            assertEquals(~keys[i], values[i]);
+            if (i > 0) {
+                assertTrue(Long.compareUnsigned(keys[i - 1], keys[i]) <= 0);
+            }
+        }
+    }
+
+    @Test
+    public void testFindsSetting() throws IOException {
+        Machine machine = smallMachine();
+        File file = tempFile();
+        CycleCatalog.build(machine, file.getPath(), new ForkJoinPool(2));
+        CycleCatalog catalog = CycleCatalog.open(file.getPath());
+        assertEquals(6 * 26 * 26, catalog.size());
+
+        machine.insertRotors(new String[] {"B", "III", "I"});
+        machine.setPlugboard(new Permutation("(AQ) (TZ) (EM)", UPPER));
+        CompiledKey key = machine.compile();
+        int[] posns = positions(key, "KD", UPPER);
+        int[][] lengths = characteristic(key, posns);
+
+        List<CycleCatalog.Match> matches =
+            catalog.find(lengths[0], lengths[1], lengths[2]);
+        boolean found = false;
+        for (CycleCatalog.Match match : matches) {
+            found |= match.toString().equals("B III I KD");
+        }
+        assertTrue(found);
+        assertTrue(matches.size() < catalog.size() / 10);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNotACatalog() throws IOException {
+        File file = tempFile();
+        CycleCatalog.open(file.getPath());
+    }
+}
@@ -0,0 +1,91 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** A way of running a configured Enigma machine. Every engine is set up
+ *  from a Machine, which checks all settings exactly as it always has, so
+ *  engines differ only in how they convert. The ReferenceEngine runs the
+ *  Machine itself and serves as the standard the others are checked
+ *  against (see EngineChecker).
+ *  @author Henry Chiong
+ */
+interface Engine {
+
+    /** Return the alphabet I convert. */
+    Alphabet alphabet();
+
+    /** Return the number of rotor slots, including the reflector's. */
+    int numRotors();
+
+    /** Insert the rotors named ROTORS, as for Machine.insertRotors. */
+    void configure(String[] rotors);
+
+    /** Set the rotor settings to SETTING, as for Machine.setRotors. */
+    void setRotors(String setting);
+
+    /** Set the ring settings to SETTING, as for Machine.setRingRotors. */
+    void setRings(String setting);
+
+    /** Set the plugboard to PLUGBOARD. */
+    void setPlugboard(Permutation plugboard);
+
+    /** Replace each of the first LEN entries of INDICES, which must all be
+     *  valid indices into my alphabet, by its conversion, advancing the
+     *  rotors before each. */
+    void convert(int[] indices, int len);
+
+    /** Return the current settings of my rotors, with the reflector's
+     *  first, as for Machine.positions. */
+    int[] positions();
+
+    /** Returns the encoding/decoding of MSG, updating the state of the
+     *  rotors accordingly, as for Machine.convert(String). */
+    default String convert(String msg) {
+        int[] indices = Machine.indices(msg, alphabet());
+        convert(indices, indices.length);
+        return alphabet().toString(indices, indices.length);
+    }
+
+    /** Return a new engine named NAME running MACHINE: "reference",
+     *  "table", or "expanded", or "auto" to choose one for messages
+     *  totalling about LENGTH characters (or -1 if unknown). */
+    static Engine create(String name, Machine machine, long length) {
+        switch (name) {
+        case "reference":
+            return new ReferenceEngine(machine);
+        case "table":
+            return new TableEngine(machine);
+        case "expanded":
+            return new ExpandedEngine(machine);
+        case "auto":
+            return create(choose(machine.alphabet().size(), length),
+                          machine, length);
+        default:
+            throw error("unknown engine %s", name);
+        }
+    }
+
+    /** Return the name of the engine best suited to an alphabet of SIZE
+     *  characters and messages totalling about LENGTH characters (or -1 if
+     *  unknown). Expanding the tables costs time and memory growing with
+     *  the square of SIZE, which pays off only for long inputs and small
+     *  alphabets. Otherwise the reference engine is chosen, since the
+     *  table engine is no faster than it (see TableEngine). */
+    static String choose(int size, long length) {
+        if (length >= 0 && length < SHORT_INPUT) {
+            return "reference";
+        } else if (size <= EXPANDED_SIZE_LIMIT
+                   && (length < 0 || length >= (long) size * size)) {
+            return "expanded";
+        }
+        return "reference";
+    }
+
+    /** Inputs shorter than this are run on the reference engine by
+     *  "auto". */
+    int SHORT_INPUT = 256;
+
+    /** Largest alphabet for which "auto" may choose the expanded
+     *  engine. */
+    int EXPANDED_SIZE_LIMIT = 256;
+}
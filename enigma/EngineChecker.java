@@ -0,0 +1,70 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** A randomized differential check of the engines. Each trial is one
+ *  generated by Fuzzer: a machine (alphabet, rotors, reflector, notches),
+ *  a rotor order, rotor and ring settings, a plugboard, and a message. The
+ *  message is run through the ReferenceEngine and each other engine, and
+ *  the results and the final rotor positions are compared. Unlike Fuzzer,
+ *  the checker runs trials one at a time and leaves out ConfigParser and
+ *  BatchConverter, so that a mismatch it reports is one of the engines.
+ *  @author Henry Chiong
+ */
+final class EngineChecker {
+
+    /** Run ARGS[1] trials (default 1000) from the seed ARGS[0] (default
+     *  the current time), printing the first mismatch found, shrunk.
+     *  Exits with code 1 if any engine disagrees with the reference. */
+    public static void main(String... args) {
+        try {
+            if (args.length > 2) {
+                throw error("Usage: [SEED [TRIALS]]");
+            }
+            long seed = args.length > 0 ? Long.parseLong(args[0])
+                : System.currentTimeMillis();
+            int trials =
+                args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TRIALS;
+            String mismatch = new EngineChecker(seed).check(trials);
+            if (mismatch == null) {
+                System.out.printf("%d trials from seed %d: all engines"
+                                  + " agree%n", trials, seed);
+                return;
+            }
+            System.out.printf("seed %d: %s", seed, mismatch);
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad number%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A checker whose trials are generated from SEED. */
+    EngineChecker(long seed) {
+        _fuzzer = new Fuzzer(seed);
+    }
+
+    /** Run TRIALS trials, and return a description of the first one in
+     *  which an engine disagrees with the reference, shrunk by Fuzzer and
+     *  followed by its configuration and input, or null if none does. */
+    String check(int trials) {
+        for (int t = 0; t < trials; t += 1) {
+            Fuzzer.Case trial = _fuzzer.generate(t);
+            if (Fuzzer.checkEngines(trial) != null) {
+                Fuzzer.Case shrunk = Fuzzer.shrink(
+                    trial, c -> Fuzzer.checkEngines(c) != null);
+                return String.format("trial %d: %s%n%s%s", t,
+                                     Fuzzer.checkEngines(shrunk),
+                                     shrunk.config(), shrunk.input());
+            }
+        }
+        return null;
+    }
+
+    /** Default number of trials run by main. */
+    private static final int DEFAULT_TRIALS = 1000;
+
+    /** Source of the trials. */
+    private final Fuzzer _fuzzer;
+}
@@ -0,0 +1,76 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the Engine interface and its
+ *  implementations.
+ *  @author Henry Chiong
+ */
+public class EngineTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testNavalEngines() {
+        int[] expected = null;
+        for (String name : new String[] {"reference", "table", "expanded"}) {
+            Engine engine = Engine.create(name,
+                                          CompiledKeyTest.navalMachine(), -1);
+            engine.configure(new String[] {"B", "Beta", "III", "IV", "I"});
+            engine.setRotors("AXLE");
+            engine.setRings("AAAA");
+            engine.setPlugboard(new Permutation("(HQ) (EX) (IP) (TR) (BY)",
+                                                UPPER));
+            assertEquals(name, "QVPQS", engine.convert("FROMH"));
+            assertEquals(name, "OKOIL", engine.convert("ISSHO"));
+            engine.setRotors("AXLE");
+            assertEquals(name, "FROMH", engine.convert("QVPQS"));
+            engine.setRings("BBBB");
+            engine.setRotors("AXLE");
+            engine.convert("ABCDEFGHIJKLMNOPQRSTUVWXYZ");
+            if (expected == null) {
+                expected = engine.positions();
+            }
+            assertArrayEquals(name, expected, engine.positions());
+        }
+    }
+
+    @Test
+    public void testChoose() {
+        assertEquals("reference", Engine.choose(26, 10));
+        assertEquals("expanded", Engine.choose(26, 100000));
+        assertEquals("expanded", Engine.choose(26, -1));
+        assertEquals("reference", Engine.choose(1000, 100000));
+        assertEquals("reference", Engine.choose(1000, -1));
+        assertEquals("reference", Engine.choose(200, 10000));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadMessage() {
+        Engine engine = Engine.create("table",
+                                      CompiledKeyTest.navalMachine(), -1);
+        engine.configure(new String[] {"B", "Beta", "III", "IV", "I"});
+        engine.setRotors("AXLE");
+        engine.convert("AB1");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testUnknownEngine() {
+        Engine.create("warp", CompiledKeyTest.navalMachine(), -1);
+    }
+
+    @Test
+    public void testChecker() {
+        assertNull(new EngineChecker(61).check(100));
+    }
+}
@@ -0,0 +1,43 @@
+package enigma;
+
+/** An engine converting with a one-lane BatchEngine, whose rotor tables
+ *  are expanded for every shift so that converting needs no wrapping at
+ *  all. Building those tables takes time and memory growing with the
+ *  square of the alphabet's size, so this engine suits long messages over
+ *  small alphabets.
+ *  @author Henry Chiong
+ */
+final class ExpandedEngine extends TableEngine {
+
+    /** An engine set up through MACHINE. */
+    ExpandedEngine(Machine machine) {
+        super(machine);
+    }
+
+    @Override
+    public void convert(int[] indices, int len) {
+        if (update() || _batch == null) {
+            _batch = new BatchEngine(key(), 1);
+        }
+        int[] posns = currentPositions();
+        _batch.setPositions(0, posns);
+        for (int i = 0; i < len; i += 1) {
+            _column[0] = indices[i];
+            _batch.convert(_column, _column);
+            indices[i] = _column[0];
+        }
+        int[] result = _batch.positions(0);
+        System.arraycopy(result, 0, posns, 0, posns.length);
+    }
+
+    @Override
+    public String toString() {
+        return "expanded";
+    }
+
+    /** The batch engine running my current key, or null. */
+    private BatchEngine _batch;
+
+    /** The character being converted. */
+    private final int[] _column = new int[1];
+}
@@ -11,6 +11,11 @@ class FixedRotor extends Rotor {
         super(name, perm);
     }
 
+    @Override
+    Rotor copy() {
+        return new FixedRotor(name(), permutation());
+    }
+
     @Override
     public String toString() {
         return "Fixed " + super.toString();
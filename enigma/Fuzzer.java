@@ -0,0 +1,596 @@
+package enigma;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static enigma.EnigmaException.*;
+
+/** A randomized differential test of the parsers and engines, for
+ *  running at high volume. Each trial generates a configuration (an
+ *  alphabet, which may include supplementary characters, and rotors with
+ *  random wirings and notches), a settings line, and a message. It then
+ *  checks that ConfigParser reads the configuration as Permutation reads
+ *  the rotors' cycle strings, and that the table and expanded engines and
+ *  BatchConverter convert the message, and leave the rotors, exactly as
+ *  the reference engine does. Trials run in parallel on a ForkJoinPool,
+ *  each from a seed of its own so that any trial can be run again.
+ *
+ *  The first failing trial is shrunk, by repeatedly making the message,
+ *  the plugboard, the settings, the notches, the wirings, and the set of
+ *  rotors smaller or plainer for as long as it still fails. Its
+ *  configuration and input are then printed and written to the files
+ *  fuzz-failure.conf and fuzz-failure.in, which Main can run.
+ *  EngineChecker runs the same trials through the engines alone.
+ *  @author Henry Chiong
+ */
+final class Fuzzer {
+
+    /** Run ARGS[1] trials (default 10000) from the seed ARGS[0] (default
+     *  the current time). Exits with code 1 if any trial fails. */
+    public static void main(String... args) {
+        try {
+            if (args.length > 2) {
+                throw error("Usage: [SEED [TRIALS]]");
+            }
+            long seed = args.length > 0 ? Long.parseLong(args[0])
+                : System.currentTimeMillis();
+            int trials =
+                args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_TRIALS;
+            Fuzzer fuzzer = new Fuzzer(seed);
+            Case failure = fuzzer.run(trials, ForkJoinPool.commonPool());
+            if (failure == null) {
+                System.out.printf("%d trials, %d characters from seed %d:"
+                                  + " all agree%n", trials,
+                                  fuzzer.characters(), seed);
+                return;
+            }
+            Case shrunk = shrink(failure);
+            System.out.printf("seed %d, trial %d: %s%n", seed,
+                              failure.trial(), check(shrunk));
+            System.out.printf("--- %s ---%n%s--- %s ---%n%s", FAILURE_CONF,
+                              shrunk.config(), FAILURE_IN, shrunk.input());
+            Files.write(Paths.get(FAILURE_CONF),
+                        shrunk.config().getBytes(StandardCharsets.UTF_8));
+            Files.write(Paths.get(FAILURE_IN),
+                        shrunk.input().getBytes(StandardCharsets.UTF_8));
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad number%n");
+        } catch (IOException excp) {
+            System.err.printf("Error: could not write the failing case%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A fuzzer whose trials are generated from SEED. */
+    Fuzzer(long seed) {
+        _seed = seed;
+    }
+
+    /** Run TRIALS trials on POOL. Return the failing trial with the lowest
+     *  number, or null if none fails. */
+    Case run(int trials, ForkJoinPool pool) {
+        AtomicInteger first = new AtomicInteger(trials);
+        Case[] failures = new Case[trials];
+        pool.invoke(new RangeTask(0, trials, t -> {
+            if (t < first.get()) {
+                Case trial = generate(t);
+                _characters.addAndGet(trial._message.codePointCount(
+                    0, trial._message.length()));
+                if (check(trial) != null) {
+                    failures[t] = trial;
+                    first.accumulateAndGet(t, Math::min);
+                }
+            }
+        }));
+        return first.get() < trials ? failures[first.get()] : null;
+    }
+
+    /** Return the number of message characters converted so far. */
+    long characters() {
+        return _characters.get();
+    }
+
+    /** Return trial number T. */
+    Case generate(int t) {
+        Random random = new Random(_seed ^ (t * SEED_STEP));
+        int size = 2 * (1 + random.nextInt(MAX_SIZE / 2));
+        StringBuilder chars = new StringBuilder();
+        for (int k : shuffled(random, CHARS.length)) {
+            if (chars.codePointCount(0, chars.length()) < size) {
+                chars.appendCodePoint(CHARS[k]);
+            }
+        }
+        int[] alphabet = chars.codePoints().toArray();
+        int numRotors = 2 + random.nextInt(MAX_ROTORS - 1);
+        int pawls = random.nextInt(numRotors);
+        List<String[]> rotors = new ArrayList<>();
+        String[] order = new String[numRotors];
+        for (int k = 0; k < numRotors + random.nextInt(SPARE_ROTORS + 1);
+             k += 1) {
+            String name = "R" + k;
+            if (k == 0) {
+                rotors.add(new String[] {name, "R",
+                    pairs(random, alphabet, size / 2)});
+            } else if (k < numRotors - pawls) {
+                rotors.add(new String[] {name, "N",
+                    cycles(random, alphabet)});
+            } else if (k < numRotors) {
+                rotors.add(new String[] {name,
+                    "M" + notches(random, alphabet),
+                    cycles(random, alphabet)});
+            } else {
+                rotors.add(new String[] {name, random.nextBoolean()
+                    ? "N" : "M" + notches(random, alphabet),
+                    cycles(random, alphabet)});
+            }
+            if (k < numRotors) {
+                order[k] = name;
+            }
+        }
+        return new Case(t, chars.toString(), numRotors, pawls, rotors,
+                        order, setting(random, alphabet, numRotors - 1),
+                        setting(random, alphabet, numRotors - 1),
+                        pairs(random, alphabet,
+                              random.nextInt(size / 2 + 1)),
+                        setting(random, alphabet,
+                                random.nextInt(MAX_MESSAGE)));
+    }
+
+    /** Return a description of how the implementations disagree on
+     *  TRIAL, or null if they agree or TRIAL is not a valid case. */
+    static String check(Case trial) {
+        Machine reference;
+        try {
+            reference = trial.machine();
+        } catch (EnigmaException excp) {
+            return null;
+        }
+        Machine parsed;
+        try {
+            parsed = new ConfigParser("fuzz", trial.config()).parse();
+        } catch (EnigmaException excp) {
+            return "ConfigParser rejects a valid configuration: "
+                + excp.getMessage();
+        }
+        String mismatch = compareRotors(reference, parsed);
+        if (mismatch != null) {
+            return mismatch;
+        }
+        return compare(trial, reference, parsed, true);
+    }
+
+    /** Return a description of how the table and expanded engines
+     *  disagree with the reference engine on TRIAL, or null if they agree
+     *  or TRIAL is not a valid case. Unlike check, this neither parses the
+     *  configuration nor runs BatchConverter. */
+    static String checkEngines(Case trial) {
+        Machine reference;
+        try {
+            reference = trial.machine();
+        } catch (EnigmaException excp) {
+            return null;
+        }
+        return compare(trial, reference, reference.copy(), false);
+    }
+
+    /** Return a description of how the engines running MACHINE, and
+     *  BatchConverter if BATCH, disagree on TRIAL with the reference
+     *  engine running REFERENCE, or null if they agree or TRIAL is not a
+     *  valid case. */
+    private static String compare(Case trial, Machine reference,
+                                  Machine machine, boolean batch) {
+        Alphabet alphabet = reference.alphabet();
+        int[] expected;
+        int[] expectedPosns;
+        try {
+            Engine engine = Engine.create("reference", reference, -1);
+            trial.setUp(engine);
+            expected = convert(engine, trial._message);
+            expectedPosns = engine.positions();
+        } catch (EnigmaException excp) {
+            return null;
+        }
+        for (String name : ENGINES) {
+            try {
+                Engine engine = Engine.create(name, machine.copy(), -1);
+                trial.setUp(engine);
+                int[] result = convert(engine, trial._message);
+                if (!Arrays.equals(expected, result)) {
+                    return name + " engine converts differently";
+                } else if (!Arrays.equals(expectedPosns,
+                                          engine.positions())) {
+                    return name + " engine steps differently";
+                }
+            } catch (EnigmaException excp) {
+                return name + " engine fails: " + excp.getMessage();
+            }
+        }
+        if (!batch) {
+            return null;
+        }
+        try {
+            List<BatchConverter.Request> requests = new ArrayList<>();
+            requests.add(new BatchConverter.Request(trial._order,
+                trial._setting, trial._rings, trial._plugboard,
+                trial._message));
+            String result =
+                new BatchConverter(machine).convert(requests).get(0);
+            if (!result.equals(alphabet.toString(expected,
+                                                 expected.length))) {
+                return "BatchConverter converts differently";
+            }
+        } catch (EnigmaException excp) {
+            return "BatchConverter fails: " + excp.getMessage();
+        }
+        return null;
+    }
+
+    /** Return the smallest case found that still fails, starting from
+     *  the failing case TRIAL. */
+    static Case shrink(Case trial) {
+        return shrink(trial, c -> check(c) != null);
+    }
+
+    /** Return the smallest case found for which FAILS holds, starting
+     *  from TRIAL, for which it must hold. */
+    static Case shrink(Case trial, Predicate<Case> fails) {
+        Case best = trial;
+        boolean shrunk = true;
+        while (shrunk) {
+            shrunk = false;
+            for (Case smaller : best.smaller()) {
+                if (fails.test(smaller)) {
+                    best = smaller;
+                    shrunk = true;
+                    break;
+                }
+            }
+        }
+        return best;
+    }
+
+    /** Return a description of how the rotors of PARSED differ from those
+     *  of REFERENCE, or null if they are the same. */
+    private static String compareRotors(Machine reference, Machine parsed) {
+        List<Rotor> expected = new ArrayList<>(reference.allRotors());
+        List<Rotor> actual = new ArrayList<>(parsed.allRotors());
+        if (expected.size() != actual.size()) {
+            return "ConfigParser reads " + actual.size() + " rotors";
+        }
+        for (int i = 0; i < expected.size(); i += 1) {
+            Rotor e = expected.get(i), a = actual.get(i);
+            if (!e.name().equals(a.name()) || e.rotates() != a.rotates()
+                || e.reflecting() != a.reflecting()
+                || !e.notches().equals(a.notches())) {
+                return "ConfigParser reads rotor " + e.name()
+                    + " differently";
+            }
+            for (int k = 0; k < e.size(); k += 1) {
+                if (e.permutation().permute(k)
+                    != a.permutation().permute(k)) {
+                    return "ConfigParser reads the wiring of rotor "
+                        + e.name() + " differently";
+                }
+            }
+        }
+        return null;
+    }
+
+    /** Return the conversion of MESSAGE by ENGINE, in two parts. */
+    private static int[] convert(Engine engine, String message) {
+        int[] result = Machine.indices(message, engine.alphabet());
+        int half = result.length / 2;
+        engine.convert(result, half);
+        int[] rest = Arrays.copyOfRange(result, half, result.length);
+        engine.convert(rest, rest.length);
+        System.arraycopy(rest, 0, result, half, rest.length);
+        return result;
+    }
+
+    /** Return the cycles of a random permutation of ALPHABET, some of
+     *  them perhaps written together, from RANDOM. */
+    private static String cycles(Random random, int[] alphabet) {
+        int[] perm = shuffled(random, alphabet.length);
+        boolean[] seen = new boolean[perm.length];
+        StringBuilder result = new StringBuilder();
+        for (int start = 0; start < perm.length; start += 1) {
+            if (!seen[start]) {
+                if (result.length() > 0 && random.nextBoolean()) {
+                    result.append(' ');
+                }
+                result.append('(');
+                for (int k = start; !seen[k]; k = perm[k]) {
+                    seen[k] = true;
+                    result.appendCodePoint(alphabet[k]);
+                }
+                result.append(')');
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return COUNT random disjoint pairs of characters of ALPHABET, as
+     *  cycles, from RANDOM. */
+    private static String pairs(Random random, int[] alphabet, int count) {
+        int[] order = shuffled(random, alphabet.length);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < count; i += 1) {
+            result.append(i == 0 ? "(" : " (")
+                .appendCodePoint(alphabet[order[2 * i]])
+                .appendCodePoint(alphabet[order[2 * i + 1]]).append(')');
+        }
+        return result.toString();
+    }
+
+    /** Return a random string of notches from ALPHABET, from RANDOM. */
+    private static String notches(Random random, int[] alphabet) {
+        int[] order = shuffled(random, alphabet.length);
+        StringBuilder result = new StringBuilder();
+        int count =
+            random.nextInt(Math.min(alphabet.length, MAX_NOTCHES) + 1);
+        for (int i = 0; i < count; i += 1) {
+            result.appendCodePoint(alphabet[order[i]]);
+        }
+        return result.toString();
+    }
+
+    /** Return a random string of LENGTH characters of ALPHABET, from
+     *  RANDOM. */
+    private static String setting(Random random, int[] alphabet,
+                                  int length) {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < length; i += 1) {
+            result.appendCodePoint(alphabet[random.nextInt(alphabet.length)]);
+        }
+        return result.toString();
+    }
+
+    /** Return a random permutation of 0 .. N-1, from RANDOM. */
+    private static int[] shuffled(Random random, int n) {
+        int[] result = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            int j = random.nextInt(i + 1);
+            result[i] = result[j];
+            result[j] = i;
+        }
+        return result;
+    }
+
+    /** One trial: a configuration, a settings line, and a message. */
+    static final class Case {
+
+        /** Trial number T, over the characters ALPHABET, with NUMROTORS
+         *  slots and PAWLS pawls, and the rotors ROTORS, each a name, a
+         *  type and notches, and cycles. The settings line names the
+         *  rotors ORDER, with the positions SETTING, ring settings RINGS,
+         *  and plugboard PLUGBOARD, and is followed by MESSAGE. */
+        Case(int t, String alphabet, int numRotors, int pawls,
+             List<String[]> rotors, String[] order, String setting,
+             String rings, String plugboard, String message) {
+            _trial = t;
+            _alphabet = alphabet;
+            _numRotors = numRotors;
+            _pawls = pawls;
+            _rotors = rotors;
+            _order = order;
+            _setting = setting;
+            _rings = rings;
+            _plugboard = plugboard;
+            _message = message;
+        }
+
+        /** Return my trial number. */
+        int trial() {
+            return _trial;
+        }
+
+        /** Return my message. */
+        String message() {
+            return _message;
+        }
+
+        /** Return my configuration file. */
+        String config() {
+            StringBuilder result = new StringBuilder();
+            result.append(_alphabet).append('\n').append(_numRotors)
+                .append(' ').append(_pawls).append('\n');
+            for (String[] rotor : _rotors) {
+                result.append(' ').append(rotor[0]).append(' ')
+                    .append(rotor[1]).append(' ').append(rotor[2])
+                    .append('\n');
+            }
+            return result.toString();
+        }
+
+        /** Return my input file. */
+        String input() {
+            return "* " + String.join(" ", _order) + " " + _setting + " "
+                + _rings + " " + _plugboard + "\n" + _message + "\n";
+        }
+
+        /** Return the machine I describe, built from the rotors' cycle
+         *  strings by Permutation rather than by ConfigParser. */
+        Machine machine() {
+            Alphabet alphabet = new Alphabet(_alphabet);
+            List<Rotor> rotors = new ArrayList<>();
+            for (String[] rotor : _rotors) {
+                Permutation perm = new Permutation(rotor[2], alphabet);
+                if (rotor[1].startsWith("R")) {
+                    rotors.add(new Reflector(rotor[0], perm));
+                } else if (rotor[1].startsWith("N")) {
+                    rotors.add(new FixedRotor(rotor[0], perm));
+                } else {
+                    rotors.add(new MovingRotor(rotor[0], perm,
+                                               rotor[1].substring(1)));
+                }
+            }
+            return new Machine(alphabet, _numRotors, _pawls, rotors);
+        }
+
+        /** Set up ENGINE by my settings line. */
+        void setUp(Engine engine) {
+            engine.configure(_order);
+            engine.setRotors(_setting);
+            engine.setRings(_rings);
+            engine.setPlugboard(new Permutation(_plugboard,
+                                                engine.alphabet()));
+        }
+
+        /** Return the cases one step smaller or plainer than me, the
+         *  likeliest to shrink me most first. */
+        List<Case> smaller() {
+            List<Case> result = new ArrayList<>();
+            int length = _message.codePointCount(0, _message.length());
+            for (int n = length; n >= 1; n /= 2) {
+                for (int at = 0; at + n <= length; at += n) {
+                    int start = _message.offsetByCodePoints(0, at);
+                    int end = _message.offsetByCodePoints(start, n);
+                    result.add(withMessage(_message.substring(0, start)
+                                           + _message.substring(end)));
+                }
+            }
+            String first = new String(Character.toChars(
+                _alphabet.codePointAt(0)));
+            String plain = first.repeat(_numRotors - 1);
+            if (!_setting.equals(plain)) {
+                result.add(with(_rotors, plain, _rings, _plugboard));
+            }
+            if (!_rings.equals(plain)) {
+                result.add(with(_rotors, _setting, plain, _plugboard));
+            }
+            if (!_plugboard.isEmpty()) {
+                result.add(with(_rotors, _setting, _rings, ""));
+                String[] pairs = _plugboard.split(" ");
+                for (int i = 0; i < pairs.length; i += 1) {
+                    List<String> rest = new ArrayList<>(Arrays.asList(pairs));
+                    rest.remove(i);
+                    result.add(with(_rotors, _setting, _rings,
+                                    String.join(" ", rest)));
+                }
+            }
+            for (int r = 0; r < _rotors.size(); r += 1) {
+                String[] rotor = _rotors.get(r);
+                if (!Arrays.asList(_order).contains(rotor[0])) {
+                    List<String[]> rotors = new ArrayList<>(_rotors);
+                    rotors.remove(r);
+                    result.add(with(rotors, _setting, _rings, _plugboard));
+                    continue;
+                }
+                if (rotor[1].length() > 1) {
+                    result.add(withRotor(r, new String[] {rotor[0], "M",
+                        rotor[2]}));
+                }
+                if (!rotor[1].equals("R") && !rotor[2].isEmpty()) {
+                    result.add(withRotor(r, new String[] {rotor[0],
+                        rotor[1], ""}));
+                    String[] cycles = rotor[2].replace(")(", ") (")
+                        .split(" ");
+                    for (int i = 0; cycles.length > 1 && i < cycles.length;
+                         i += 1) {
+                        List<String> rest =
+                            new ArrayList<>(Arrays.asList(cycles));
+                        rest.remove(i);
+                        result.add(withRotor(r, new String[] {rotor[0],
+                            rotor[1], String.join(" ", rest)}));
+                    }
+                }
+            }
+            return result;
+        }
+
+        /** Return me with the message MESSAGE. */
+        private Case withMessage(String message) {
+            return new Case(_trial, _alphabet, _numRotors, _pawls, _rotors,
+                            _order, _setting, _rings, _plugboard, message);
+        }
+
+        /** Return me with the rotors ROTORS, and the settings SETTING,
+         *  RINGS, and PLUGBOARD. */
+        private Case with(List<String[]> rotors, String setting,
+                          String rings, String plugboard) {
+            return new Case(_trial, _alphabet, _numRotors, _pawls, rotors,
+                            _order, setting, rings, plugboard, _message);
+        }
+
+        /** Return me with rotor number R replaced by ROTOR. */
+        private Case withRotor(int r, String[] rotor) {
+            List<String[]> rotors = new ArrayList<>(_rotors);
+            rotors.set(r, rotor);
+            return with(rotors, _setting, _rings, _plugboard);
+        }
+
+        /** My trial number. */
+        private final int _trial;
+
+        /** My alphabet's characters. */
+        private final String _alphabet;
+
+        /** Numbers of rotor slots and pawls. */
+        private final int _numRotors, _pawls;
+
+        /** My rotors: each a name, a type and notches, and cycles. */
+        private final List<String[]> _rotors;
+
+        /** Names of the rotors in my settings line. */
+        private final String[] _order;
+
+        /** The rest of my settings line. */
+        private final String _setting, _rings, _plugboard;
+
+        /** My message. */
+        private final String _message;
+    }
+
+    /** The engines compared with the reference. */
+    private static final String[] ENGINES = {"table", "expanded"};
+
+    /** Characters from which alphabets are drawn: letters, digits, and a
+     *  few supplementary characters. */
+    private static final int[] CHARS = (
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789abcdefghijklmnopqrstuvwxyz"
+        + "\u00E9\u00F1\uD83D\uDE00\uD83D\uDE01\uD801\uDC00")
+        .codePoints().toArray();
+
+    /** Largest alphabet generated. */
+    private static final int MAX_SIZE = 64;
+
+    /** Largest number of rotor slots generated. */
+    private static final int MAX_ROTORS = 7;
+
+    /** Largest number of rotors generated beyond those in the slots. */
+    private static final int SPARE_ROTORS = 2;
+
+    /** Largest number of notches generated on a rotor. */
+    private static final int MAX_NOTCHES = 3;
+
+    /** Upper bound on the length of generated messages. */
+    private static final int MAX_MESSAGE = 2000;
+
+    /** Default number of trials run by main. */
+    private static final int DEFAULT_TRIALS = 10000;
+
+    /** Multiplier spreading the seeds of successive trials. */
+    private static final long SEED_STEP = 0x9E3779B97F4A7C15L;
+
+    /** Files written with a failing case. */
+    private static final String FAILURE_CONF = "fuzz-failure.conf",
+        FAILURE_IN = "fuzz-failure.in";
+
+    /** Seed of the trials. */
+    private final long _seed;
+
+    /** Number of message characters converted. */
+    private final AtomicLong _characters = new AtomicLong();
+}
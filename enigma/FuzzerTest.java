@@ -0,0 +1,95 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the Fuzzer class.
+ *  @author Henry Chiong
+ */
+public class FuzzerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testAllAgree() {
+        Fuzzer fuzzer = new Fuzzer(61);
+        assertNull(fuzzer.run(200, ForkJoinPool.commonPool()));
+        assertTrue(fuzzer.characters() > 0);
+    }
+
+    @Test
+    public void testGenerate() {
+        Fuzzer fuzzer = new Fuzzer(3);
+        for (int t = 0; t < 50; t += 1) {
+            Fuzzer.Case trial = fuzzer.generate(t);
+            assertEquals(trial.config(), fuzzer.generate(t).config());
+            assertEquals(trial.input(), new Fuzzer(3).generate(t).input());
+            Main.parseConfig(trial.config());
+            assertNull(Fuzzer.check(trial));
+        }
+    }
+
+    @Test
+    public void testSupplementaryMessage() {
+        Fuzzer fuzzer = new Fuzzer(11);
+        Fuzzer.Case trial = fuzzer.generate(0);
+        for (int t = 1; trial.message().codePointCount(
+                 0, trial.message().length()) == trial.message().length()
+                 || trial.message().length() < 10; t += 1) {
+            trial = fuzzer.generate(t);
+        }
+        for (Fuzzer.Case smaller : trial.smaller()) {
+            String msg = smaller.message();
+            for (int i = 0; i < msg.length(); i += 1) {
+                assertEquals(Character.isHighSurrogate(msg.charAt(i)),
+                             i + 1 < msg.length()
+                             && Character.isLowSurrogate(msg.charAt(i + 1)));
+                if (Character.isHighSurrogate(msg.charAt(i))) {
+                    i += 1;
+                }
+            }
+        }
+        Fuzzer.Case shrunk = Fuzzer.shrink(trial, c -> c.message()
+            .codePointCount(0, c.message().length()) >= 3);
+        assertEquals(3, shrunk.message().codePointCount(
+            0, shrunk.message().length()));
+    }
+
+    @Test
+    public void testCheckEngines() {
+        Fuzzer fuzzer = new Fuzzer(13);
+        for (int t = 0; t < 50; t += 1) {
+            assertNull(Fuzzer.checkEngines(fuzzer.generate(t)));
+        }
+    }
+
+    @Test
+    public void testShrink() {
+        Fuzzer fuzzer = new Fuzzer(5);
+        Fuzzer.Case trial = fuzzer.generate(0);
+        for (int t = 1; trial.message().length() < 10; t += 1) {
+            trial = fuzzer.generate(t);
+        }
+        Fuzzer.Case shrunk =
+            Fuzzer.shrink(trial, c -> c.message().length() >= 3);
+        assertEquals(3, shrunk.message().length());
+        String[] config = shrunk.config().split("\n");
+        int numRotors = Integer.parseInt(config[1].split(" ")[0]);
+        assertEquals(2 + numRotors, config.length);
+        for (int i = 3; i < config.length; i += 1) {
+            assertFalse(config[i].contains("("));
+        }
+        assertFalse(shrunk.input().contains("("));
+        assertEquals(Fuzzer.shrink(trial, c -> false).config(),
+                     trial.config());
+    }
+}
@@ -0,0 +1,245 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** Writes message lines in groups of characters separated by blanks, as
+ *  Main prints them. Each group of GROUPSIZE characters is followed by a
+ *  blank, and if a line width is given, a line about to grow past it is
+ *  broken before the next group instead. The break is written only once
+ *  that group starts, so that a message line ending just before it ends
+ *  with a single newline. Output is formatted into one large buffer that
+ *  is reused throughout and written out only when full or flushed. When
+ *  the destination is an OutputStream, ASCII characters are stored
+ *  straight into a byte buffer, so that only other characters go through
+ *  the charset's encoder.
+ *  @author Henry Chiong
+ */
+final class GroupedWriter {
+
+    /** A writer to OUT in CHARSET, writing groups of GROUPSIZE characters
+     *  (0 for no grouping) in lines of at most LINEWIDTH characters (0 for
+     *  no limit). */
+    GroupedWriter(OutputStream out, Charset charset, int groupSize,
+                  int lineWidth) {
+        this(out, null, charset, groupSize, lineWidth);
+    }
+
+    /** A writer to OUT, writing groups of GROUPSIZE characters (0 for no
+     *  grouping) in lines of at most LINEWIDTH characters (0 for no
+     *  limit). */
+    GroupedWriter(Writer out, int groupSize, int lineWidth) {
+        this(null, out, null, groupSize, lineWidth);
+    }
+
+    /** A writer to exactly one of BYTESOUT, in CHARSET, and CHARSOUT,
+     *  writing groups of GROUPSIZE characters in lines of at most
+     *  LINEWIDTH characters. */
+    private GroupedWriter(OutputStream bytesOut, Writer charsOut,
+                          Charset charset, int groupSize, int lineWidth) {
+        if (groupSize < 0 || lineWidth < 0) {
+            throw error("Group size and line width must not be negative.");
+        }
+        _bytesOut = bytesOut;
+        _charsOut = charsOut;
+        _charset = charset;
+        _groupSize = groupSize;
+        _lineWidth = lineWidth;
+        if (bytesOut != null) {
+            _bytes = new byte[BUFFER_SIZE];
+            _chars = null;
+            _ascii = charset != null
+                && Arrays.equals("A\n".getBytes(charset), ASCII_SAMPLE);
+        } else {
+            _bytes = null;
+            _chars = new char[BUFFER_SIZE];
+            _ascii = false;
+        }
+    }
+
+    /** Write the characters of MSG as the continuation of the current
+     *  line. */
+    void write(CharSequence msg) {
+        for (int i = 0; i < msg.length(); ) {
+            if (_breakPending) {
+                put('\n');
+                _breakPending = false;
+            }
+            char c = msg.charAt(i);
+            if (Character.isHighSurrogate(c) && i + 1 < msg.length()
+                && Character.isLowSurrogate(msg.charAt(i + 1))) {
+                putCodePoint(Character.toCodePoint(c, msg.charAt(i + 1)));
+                i += 2;
+            } else {
+                putCodePoint(c);
+                i += 1;
+            }
+            _count += 1;
+            _column += 1;
+            if (_groupSize > 0 && _count % _groupSize == 0) {
+                if (_lineWidth > 0
+                    && _column + 1 + _groupSize > _lineWidth) {
+                    _breakPending = true;
+                    _column = 0;
+                } else {
+                    put(' ');
+                    _column += 1;
+                }
+            }
+        }
+    }
+
+    /** End the current line. */
+    void endLine() {
+        put('\n');
+        _breakPending = false;
+        _count = 0;
+        _column = 0;
+    }
+
+    /** Return the number of bytes, or characters if I write characters,
+     *  written to me so far, including those still buffered. */
+    long written() {
+        return _written + _length;
+    }
+
+    /** Write out everything buffered and flush the destination. */
+    void flush() {
+        drain();
+        try {
+            if (_bytesOut != null) {
+                _bytesOut.flush();
+            } else {
+                _charsOut.flush();
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** Write out everything buffered and close the destination. */
+    void close() {
+        drain();
+        try {
+            if (_bytesOut != null) {
+                _bytesOut.close();
+            } else {
+                _charsOut.close();
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+    }
+
+    /** Buffer code point C. */
+    private void putCodePoint(int c) {
+        if (c < ASCII_LIMIT
+            || _chars != null && Character.isBmpCodePoint(c)) {
+            put((char) c);
+        } else if (_chars != null) {
+            put(Character.highSurrogate(c));
+            put(Character.lowSurrogate(c));
+        } else {
+            byte[] encoded = new String(Character.toChars(c))
+                .getBytes(_charset);
+            if (_length + encoded.length > _bytes.length) {
+                drain();
+            }
+            System.arraycopy(encoded, 0, _bytes, _length, encoded.length);
+            _length += encoded.length;
+        }
+    }
+
+    /** Buffer character C, which must be ASCII if I write bytes. */
+    private void put(char c) {
+        if (_chars != null) {
+            if (_length == _chars.length) {
+                drain();
+            }
+            _chars[_length] = c;
+            _length += 1;
+        } else if (_ascii) {
+            if (_length == _bytes.length) {
+                drain();
+            }
+            _bytes[_length] = (byte) c;
+            _length += 1;
+        } else {
+            byte[] encoded = String.valueOf(c).getBytes(_charset);
+            if (_length + encoded.length > _bytes.length) {
+                drain();
+            }
+            System.arraycopy(encoded, 0, _bytes, _length, encoded.length);
+            _length += encoded.length;
+        }
+    }
+
+    /** Write out the contents of my buffer. */
+    private void drain() {
+        try {
+            if (_bytesOut != null) {
+                _bytesOut.write(_bytes, 0, _length);
+            } else {
+                _charsOut.write(_chars, 0, _length);
+            }
+        } catch (IOException excp) {
+            throw error("could not write output");
+        }
+        _written += _length;
+        _length = 0;
+    }
+
+    /** Size of my buffer, in bytes or characters. */
+    static final int BUFFER_SIZE = 1 << 16;
+
+    /** Code points below this are ASCII. */
+    private static final int ASCII_LIMIT = 0x80;
+
+    /** The ASCII encoding of "A\n". */
+    private static final byte[] ASCII_SAMPLE = {'A', '\n'};
+
+    /** Destination of my bytes, or null. */
+    private final OutputStream _bytesOut;
+
+    /** Destination of my characters, or null. */
+    private final Writer _charsOut;
+
+    /** Encoding of my bytes, if _bytesOut is not null. */
+    private final Charset _charset;
+
+    /** True iff my charset encodes ASCII characters as single bytes. */
+    private final boolean _ascii;
+
+    /** Characters in each group. */
+    private final int _groupSize;
+
+    /** Maximum characters in each line, or 0. */
+    private final int _lineWidth;
+
+    /** Buffered output, if I write bytes; otherwise null. */
+    private final byte[] _bytes;
+
+    /** Buffered output, if I write characters; otherwise null. */
+    private final char[] _chars;
+
+    /** Number of bytes or characters in my buffer. */
+    private int _length;
+
+    /** Number of bytes or characters written out of my buffer. */
+    private long _written;
+
+    /** Number of message characters written to the current line. */
+    private int _count;
+
+    /** Number of characters, including blanks, in the current line. */
+    private int _column;
+
+    /** True iff the current line is to be broken before its next
+     *  character. */
+    private boolean _breakPending;
+}
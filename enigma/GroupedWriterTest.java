@@ -0,0 +1,111 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the GroupedWriter class.
+ *  @author Henry Chiong
+ */
+public class GroupedWriterTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testGroupsOfFive() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GroupedWriter out =
+            new GroupedWriter(bytes, StandardCharsets.UTF_8, 5, 0);
+        out.write("HELLO");
+        out.write("WORLDAB");
+        out.endLine();
+        out.endLine();
+        out.write("ABCDE");
+        out.endLine();
+        out.flush();
+        assertEquals("HELLO WORLD AB\n\nABCDE \n",
+                     bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testLineWidth() {
+        StringWriter chars = new StringWriter();
+        GroupedWriter out = new GroupedWriter(chars, 3, 8);
+        out.write("ABCDEFGHIJ");
+        out.endLine();
+        out.flush();
+        assertEquals("ABC DEF\nGHI J\n", chars.toString());
+
+        chars = new StringWriter();
+        out = new GroupedWriter(chars, 3, 8);
+        out.write("ABCDEF");
+        out.endLine();
+        out.write("GHIJKL");
+        out.write("M");
+        out.endLine();
+        out.flush();
+        assertEquals("ABC DEF\nGHI JKL\nM\n", chars.toString());
+    }
+
+    @Test
+    public void testNoGrouping() {
+        StringWriter chars = new StringWriter();
+        GroupedWriter out = new GroupedWriter(chars, 0, 0);
+        out.write("ABCDEFGHIJ");
+        out.endLine();
+        out.close();
+        assertEquals("ABCDEFGHIJ\n", chars.toString());
+    }
+
+    @Test
+    public void testNonAscii() {
+        String text = "\u00e9\ud83d\ude00\u4e2dABC";
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GroupedWriter out =
+            new GroupedWriter(bytes, StandardCharsets.UTF_8, 2, 0);
+        out.write(text);
+        out.endLine();
+        out.flush();
+        assertEquals("\u00e9\ud83d\ude00 \u4e2dA BC \n",
+                     bytes.toString(StandardCharsets.UTF_8));
+        bytes.reset();
+        out = new GroupedWriter(bytes, StandardCharsets.UTF_16BE, 2, 0);
+        out.write(text);
+        out.endLine();
+        out.flush();
+        assertEquals("\u00e9\ud83d\ude00 \u4e2dA BC \n",
+                     bytes.toString(StandardCharsets.UTF_16BE));
+    }
+
+    @Test
+    public void testLargeOutput() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        GroupedWriter out =
+            new GroupedWriter(bytes, StandardCharsets.UTF_8, 5, 0);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 4 * GroupedWriter.BUFFER_SIZE / 6; i += 1) {
+            out.write("ABCDE");
+            expected.append("ABCDE ");
+        }
+        out.endLine();
+        out.flush();
+        expected.append('\n');
+        assertEquals(expected.toString(),
+                     bytes.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNegativeGroup() {
+        new GroupedWriter(new StringWriter(), -1, 0);
+    }
+}
@@ -0,0 +1,115 @@
+package enigma;
+
+import static enigma.EnigmaException.*;
+
+/** An immutable table of alphabet indices, stored as compactly as the
+ *  size of the alphabet allows: in a byte[] for alphabets of up to 256
+ *  characters, a short[] for up to 65536, and an int[] above that. For the
+ *  usual 26-letter alphabets this keeps a rotor's tables a quarter of the
+ *  size of int[] tables, so many more of them fit in the processor's
+ *  caches. All three are read through get(), which the JIT can inline;
+ *  the table's width never changes, so its test is easily predicted.
+ *  @author Henry Chiong
+ */
+final class IndexTable {
+
+    /** A table holding VALUES, each of which must be in the range
+     *  0..RANGE-1, stored in the narrowest width that can hold RANGE
+     *  values. */
+    IndexTable(int[] values, int range) {
+        this(values, range, widthFor(range));
+    }
+
+    /** A table holding VALUES, each in the range 0..RANGE-1, stored
+     *  WIDTH bytes to an entry, where WIDTH is 1, 2, or 4 and can hold
+     *  RANGE values. */
+    IndexTable(int[] values, int range, int width) {
+        if (width != Byte.BYTES && width != Short.BYTES
+            && width != Integer.BYTES || width < widthFor(range)) {
+            throw error("Bad table width %d for %d values.", width, range);
+        }
+        for (int v : values) {
+            if (v < 0 || v >= range) {
+                throw error("Table entry %d out of range.", v);
+            }
+        }
+        _width = width;
+        _length = values.length;
+        _bytes = width == Byte.BYTES ? new byte[values.length] : null;
+        _shorts = width == Short.BYTES ? new short[values.length] : null;
+        _ints = width == Integer.BYTES ? values.clone() : null;
+        for (int i = 0; i < values.length; i += 1) {
+            if (_bytes != null) {
+                _bytes[i] = (byte) values[i];
+            } else if (_shorts != null) {
+                _shorts[i] = (short) values[i];
+            }
+        }
+    }
+
+    /** Return entry I. */
+    int get(int i) {
+        switch (_width) {
+        case Byte.BYTES:
+            return _bytes[i] & BYTE_MASK;
+        case Short.BYTES:
+            return _shorts[i] & SHORT_MASK;
+        default:
+            return _ints[i];
+        }
+    }
+
+    /** Return my number of entries. */
+    int length() {
+        return _length;
+    }
+
+    /** Return the number of bytes used to store each of my entries. */
+    int width() {
+        return _width;
+    }
+
+    /** Return the approximate number of bytes of memory used by my
+     *  entries. */
+    long tableBytes() {
+        return CompiledRotor.arrayBytes(_length, _width);
+    }
+
+    /** Return the approximate number of bytes of memory used by the entries
+     *  of a table of LENGTH indices in the range 0..RANGE-1. */
+    static long tableBytes(long length, int range) {
+        return CompiledRotor.arrayBytes(length, widthFor(range));
+    }
+
+    /** Return the number of bytes needed to store each index in the range
+     *  0..RANGE-1. */
+    static int widthFor(int range) {
+        if (range <= BYTE_MASK + 1) {
+            return Byte.BYTES;
+        } else if (range <= SHORT_MASK + 1) {
+            return Short.BYTES;
+        }
+        return Integer.BYTES;
+    }
+
+    /** Mask selecting the low byte of an int. */
+    private static final int BYTE_MASK = 0xFF;
+
+    /** Mask selecting the low two bytes of an int. */
+    private static final int SHORT_MASK = 0xFFFF;
+
+    /** Number of bytes in each of my entries. */
+    private final int _width;
+
+    /** Number of my entries. */
+    private final int _length;
+
+    /** My entries, if _width is 1, or null. */
+    private final byte[] _bytes;
+
+    /** My entries, if _width is 2, or null. */
+    private final short[] _shorts;
+
+    /** My entries, if _width is 4, or null. */
+    private final int[] _ints;
+}
@@ -0,0 +1,74 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the IndexTable class.
+ *  @author Henry Chiong
+ */
+public class IndexTableTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testWidths() {
+        assertEquals(1, IndexTable.widthFor(26));
+        assertEquals(1, IndexTable.widthFor(256));
+        assertEquals(2, IndexTable.widthFor(257));
+        assertEquals(2, IndexTable.widthFor(65536));
+        assertEquals(4, IndexTable.widthFor(65537));
+        assertEquals(1, new IndexTable(new int[] {2, 0, 1}, 3).width());
+    }
+
+    @Test
+    public void testUnsignedEntries() {
+        checkTable(256);
+        checkTable(65536);
+        checkTable(70000);
+    }
+
+    @Test
+    public void testWiderThanNeeded() {
+        IndexTable table = new IndexTable(new int[] {25, 0, 13}, 26, 4);
+        assertEquals(4, table.width());
+        assertEquals(25, table.get(0));
+        assertEquals(13, table.get(2));
+        assertEquals(3, table.length());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testTooNarrow() {
+        new IndexTable(new int[] {300}, 301, 1);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadWidth() {
+        new IndexTable(new int[] {1}, 2, 3);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testOutOfRange() {
+        new IndexTable(new int[] {0, 26}, 26);
+    }
+
+    /** Check that a table of every index in 0..RANGE-1, in reverse order,
+     *  returns each of them. */
+    private void checkTable(int range) {
+        int[] values = new int[range];
+        for (int i = 0; i < range; i += 1) {
+            values[i] = range - 1 - i;
+        }
+        IndexTable table = new IndexTable(values, range);
+        assertEquals(IndexTable.widthFor(range), table.width());
+        for (int i = 0; i < range; i += 1) {
+            assertEquals(range - 1 - i, table.get(i));
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package enigma;
+
+import java.util.List;
+
+import static enigma.EnigmaException.*;
+
+/** The space of keys of a configured machine without a plugboard: every
+ *  rotor order, ring setting, and start position, divided into work units
+ *  for an exhaustive search. A unit is one rotor order with one
+ *  combination of ring settings, and contains every combination of start
+ *  positions of that order, numbered from 0 to unitSize()-1.
+ *
+ *  Only the rings of the rightmost few moving rotors are varied; the ring
+ *  of any other rotor changes nothing that its start position cannot, so
+ *  those rings stay at 0.
+ *  @author Henry Chiong
+ */
+final class KeySpace {
+
+    /** The key space of MACHINE, varying the rings of the rightmost
+     *  numPawls()-1 moving rotors, which covers every distinct key. */
+    KeySpace(Machine machine) {
+        this(machine, Math.max(0, machine.numPawls() - 1));
+    }
+
+    /** The key space of MACHINE, varying the rings of its rightmost
+     *  RINGSLOTS moving rotors. */
+    KeySpace(Machine machine, int ringSlots) {
+        if (ringSlots < 0 || ringSlots > machine.numPawls()) {
+            throw error("Can only vary the rings of moving rotors.");
+        }
+        _machine = machine;
+        _orders = machine.rotorOrders();
+        _alphabet = machine.alphabet();
+        _numRotors = machine.numRotors();
+        _ringSlots = ringSlots;
+        int size = _alphabet.size();
+        long ringCombos = 1, unitSize = 1;
+        for (int i = 0; i < ringSlots; i += 1) {
+            ringCombos *= size;
+        }
+        for (int i = 1; i < _numRotors; i += 1) {
+            unitSize *= size;
+        }
+        if (_orders.isEmpty()
+            || ringCombos * _orders.size() > Integer.MAX_VALUE) {
+            throw error("Key space cannot be divided into units.");
+        }
+        _ringCombos = (int) ringCombos;
+        _unitSize = unitSize;
+    }
+
+    /** Return the number of work units. */
+    int units() {
+        return _orders.size() * _ringCombos;
+    }
+
+    /** Return the number of start positions in each unit. */
+    long unitSize() {
+        return _unitSize;
+    }
+
+    /** Return the total number of keys. */
+    long size() {
+        return units() * _unitSize;
+    }
+
+    /** Return the rotor order of UNIT. */
+    String[] order(int unit) {
+        return _orders.get(unit / _ringCombos).clone();
+    }
+
+    /** Return the ring settings of UNIT, as indices for each rotor
+     *  slot. */
+    int[] rings(int unit) {
+        int[] result = new int[_numRotors];
+        int combo = unit % _ringCombos;
+        for (int k = _numRotors - 1; k >= _numRotors - _ringSlots;
+             k -= 1) {
+            result[k] = combo % _alphabet.size();
+            combo /= _alphabet.size();
+        }
+        return result;
+    }
+
+    /** Return the compiled key of UNIT, with no plugboard. */
+    CompiledKey key(int unit) {
+        return _machine.compile(_orders.get(unit / _ringCombos))
+            .withRings(rings(unit));
+    }
+
+    /** Store in POSNS the start positions numbered INDEX, as for
+     *  CompiledKey. */
+    void positions(long index, int[] posns) {
+        int size = _alphabet.size();
+        posns[0] = 0;
+        for (int k = _numRotors - 1; k >= 1; k -= 1) {
+            posns[k] = (int) (index % size);
+            index /= size;
+        }
+    }
+
+    /** Return a settings line, as in the input to Main, for the start
+     *  positions numbered INDEX in UNIT. */
+    String settings(int unit, long index) {
+        int[] posns = new int[_numRotors];
+        positions(index, posns);
+        int[] rings = rings(unit);
+        StringBuilder result = new StringBuilder("*");
+        for (String rotor : order(unit)) {
+            result.append(' ').append(rotor);
+        }
+        result.append(' ');
+        for (int k = 1; k < _numRotors; k += 1) {
+            result.appendCodePoint(_alphabet.toCodePoint(posns[k]));
+        }
+        result.append(' ');
+        for (int k = 1; k < _numRotors; k += 1) {
+            result.appendCodePoint(_alphabet.toCodePoint(rings[k]));
+        }
+        return result.toString();
+    }
+
+    /** Return a hash identifying how I am divided into units, so that
+     *  progress recorded for one key space is not applied to another. */
+    long fingerprint() {
+        long result = 17;
+        for (String[] order : _orders) {
+            result = 31 * result + String.join(" ", order).hashCode();
+        }
+        for (int k = 0; k < _alphabet.size(); k += 1) {
+            result = 31 * result + _alphabet.toCodePoint(k);
+        }
+        result = 31 * result + _ringSlots;
+        return 31 * result + _numRotors;
+    }
+
+    /** The machine whose keys I contain. */
+    private final Machine _machine;
+
+    /** Its rotor orders. */
+    private final List<String[]> _orders;
+
+    /** Its alphabet. */
+    private final Alphabet _alphabet;
+
+    /** Its number of rotor slots. */
+    private final int _numRotors;
+
+    /** Number of rightmost moving rotors whose rings are varied. */
+    private final int _ringSlots;
+
+    /** Number of combinations of their ring settings. */
+    private final int _ringCombos;
+
+    /** Number of combinations of start positions. */
+    private final long _unitSize;
+}
@@ -0,0 +1,245 @@
+package enigma;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntConsumer;
+
+import static enigma.EnigmaException.*;
+
+/** Runs an exhaustive search over the units of a KeySpace on a
+ *  work-stealing ForkJoinPool. The units already finished are recorded in
+ *  a bit set, which is written to a checkpoint file every so often and at
+ *  the end of a run. A run started with an existing checkpoint skips the
+ *  units it records, so an interrupted search resumes where it stopped,
+ *  losing at most the units in progress since the last checkpoint.
+ *  @author Henry Chiong
+ */
+final class KeySpaceScheduler {
+
+    /** Receives reports of the progress of a run. */
+    interface Progress {
+        /** Report that DONE of the TOTAL units are finished. */
+        void report(int done, int total);
+    }
+
+    /** Search for the keys under which the machine configured by the file
+     *  ARGS[0], without a plugboard, enciphers the text in the file ARGS[2]
+     *  to the start of the text in the file ARGS[3], printing a settings
+     *  line for each. Progress is checkpointed to the file ARGS[1]. Exits
+     *  with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length != 4) {
+                throw error("Usage: CONFIG CHECKPOINT PLAINTEXT CIPHERTEXT");
+            }
+            Machine machine = Main.readConfig(args[0]);
+            Alphabet alphabet = machine.alphabet();
+            CribSearch search = new CribSearch(
+                CiphertextAttack.indices(CiphertextAttack.readFile(args[2]),
+                                         alphabet),
+                CiphertextAttack.indices(CiphertextAttack.readFile(args[3]),
+                                         alphabet));
+            KeySpace space = new KeySpace(machine);
+            KeySpaceScheduler scheduler =
+                new KeySpaceScheduler(space, ForkJoinPool.commonPool(),
+                                      args[1]);
+            scheduler.setProgress((done, total) ->
+                System.err.printf("%d/%d units%n", done, total),
+                DEFAULT_INTERVAL);
+            scheduler.run(unit ->
+                search.search(space, unit, System.out::println));
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A scheduler for searches of SPACE on POOL, checkpointing to the
+     *  file named CHECKPOINT, from which any earlier progress is read. */
+    KeySpaceScheduler(KeySpace space, ForkJoinPool pool, String checkpoint) {
+        _space = space;
+        _pool = pool;
+        _checkpoint = new File(checkpoint);
+        _done = new BitSet(space.units());
+        if (_checkpoint.exists()) {
+            readCheckpoint();
+        }
+        _finished = _done.cardinality();
+    }
+
+    /** Report progress to PROGRESS and write the checkpoint at most every
+     *  INTERVAL milliseconds while running. */
+    void setProgress(Progress progress, long interval) {
+        _progress = progress;
+        _interval = interval;
+    }
+
+    /** Apply SEARCH to every unit of my key space not yet finished,
+     *  recording each unit as finished when SEARCH returns. Return true if
+     *  every unit is finished, or false if the run was cancelled. The
+     *  checkpoint is written before returning, even if SEARCH throws an
+     *  exception, in which case a failure to write the checkpoint is added
+     *  to that exception as suppressed. */
+    boolean run(IntConsumer search) {
+        _cancelled = false;
+        _lastSave.set(System.currentTimeMillis());
+        try {
+            _pool.invoke(new RangeTask(0, _space.units(), unit -> {
+                if (_cancelled || isDone(unit)) {
+                    return;
+                }
+                search.accept(unit);
+                finish(unit);
+            }));
+        } catch (RuntimeException | Error excp) {
+            try {
+                writeCheckpoint();
+            } catch (RuntimeException excp2) {
+                excp.addSuppressed(excp2);
+            }
+            throw excp;
+        }
+        writeCheckpoint();
+        return finished() == _space.units();
+    }
+
+    /** Stop the current run as soon as the units in progress finish. */
+    void cancel() {
+        _cancelled = true;
+    }
+
+    /** Return true iff UNIT is finished. */
+    boolean isDone(int unit) {
+        synchronized (_done) {
+            return _done.get(unit);
+        }
+    }
+
+    /** Return the number of finished units. */
+    int finished() {
+        synchronized (_done) {
+            return _finished;
+        }
+    }
+
+    /** Record that UNIT is finished, and report progress and write the
+     *  checkpoint if the interval has passed since they were last done. */
+    private void finish(int unit) {
+        synchronized (_done) {
+            _done.set(unit);
+            _finished += 1;
+        }
+        long now = System.currentTimeMillis();
+        long last = _lastSave.get();
+        if (now - last >= _interval && _lastSave.compareAndSet(last, now)) {
+            writeCheckpoint();
+        }
+    }
+
+    /** Write the finished units to my checkpoint file, replacing it
+     *  atomically, and report progress. */
+    private void writeCheckpoint() {
+        long[] words;
+        int finished;
+        synchronized (_done) {
+            words = _done.toLongArray();
+            finished = _finished;
+        }
+        synchronized (_checkpoint) {
+            File temp = new File(_checkpoint.getPath() + ".tmp");
+            try (DataOutputStream out =
+                 new DataOutputStream(new FileOutputStream(temp))) {
+                out.writeInt(MAGIC);
+                out.writeLong(_space.fingerprint());
+                out.writeInt(_space.units());
+                out.writeInt(words.length);
+                for (long word : words) {
+                    out.writeLong(word);
+                }
+            } catch (IOException excp) {
+                throw error("could not write %s", temp);
+            }
+            try {
+                Files.move(temp.toPath(), _checkpoint.toPath(),
+                           StandardCopyOption.REPLACE_EXISTING,
+                           StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException excp) {
+                throw error("could not write %s", _checkpoint);
+            }
+        }
+        if (_progress != null) {
+            _progress.report(finished, _space.units());
+        }
+    }
+
+    /** Read the finished units from my checkpoint file. */
+    private void readCheckpoint() {
+        try (DataInputStream in =
+             new DataInputStream(new FileInputStream(_checkpoint))) {
+            if (in.readInt() != MAGIC) {
+                throw error("%s is not a checkpoint.", _checkpoint);
+            }
+            if (in.readLong() != _space.fingerprint()
+                || in.readInt() != _space.units()) {
+                throw error("%s is a checkpoint of a different search.",
+                            _checkpoint);
+            }
+            long[] words = new long[in.readInt()];
+            for (int i = 0; i < words.length; i += 1) {
+                words[i] = in.readLong();
+            }
+            _done.or(BitSet.valueOf(words));
+            if (_done.length() > _space.units()) {
+                throw error("%s is corrupt.", _checkpoint);
+            }
+        } catch (EOFException excp) {
+            throw error("%s is truncated.", _checkpoint);
+        } catch (IOException excp) {
+            throw error("could not open %s", _checkpoint);
+        }
+    }
+
+    /** The first int of a checkpoint file ("KSCP"). */
+    private static final int MAGIC = 0x4B534350;
+
+    /** Default milliseconds between checkpoints when run from main. */
+    private static final long DEFAULT_INTERVAL = 30000;
+
+    /** The key space searched. */
+    private final KeySpace _space;
+
+    /** The pool running the search. */
+    private final ForkJoinPool _pool;
+
+    /** The checkpoint file. */
+    private final File _checkpoint;
+
+    /** Finished units. */
+    private final BitSet _done;
+
+    /** Number of finished units. */
+    private int _finished;
+
+    /** Time of the last checkpoint, in milliseconds. */
+    private final AtomicLong _lastSave = new AtomicLong();
+
+    /** Receives progress reports, or null. */
+    private Progress _progress;
+
+    /** Milliseconds between checkpoints while running. */
+    private long _interval = DEFAULT_INTERVAL;
+
+    /** True iff the current run has been cancelled. */
+    private volatile boolean _cancelled;
+}
@@ -0,0 +1,125 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the KeySpaceScheduler class.
+ *  @author Henry Chiong
+ */
+public class KeySpaceSchedulerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the name of a new, nonexistent temporary file. */
+    private String tempName() throws IOException {
+        File result = File.createTempFile("search", ".ckpt");
+        result.delete();
+        result.deleteOnExit();
+        return result.getPath();
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testRunsEveryUnitOnce() throws IOException {
+        KeySpace space = new KeySpace(KeySpaceTest.smallMachine());
+        AtomicIntegerArray counts = new AtomicIntegerArray(space.units());
+        KeySpaceScheduler scheduler =
+            new KeySpaceScheduler(space, new ForkJoinPool(4), tempName());
+        assertTrue(scheduler.run(unit -> counts.incrementAndGet(unit)));
+        for (int unit = 0; unit < space.units(); unit += 1) {
+            assertEquals(1, counts.get(unit));
+        }
+        assertEquals(space.units(), scheduler.finished());
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        KeySpace space = new KeySpace(KeySpaceTest.smallMachine());
+        String checkpoint = tempName();
+        AtomicIntegerArray counts = new AtomicIntegerArray(space.units());
+        AtomicInteger started = new AtomicInteger();
+        ForkJoinPool pool = new ForkJoinPool(3);
+
+        KeySpaceScheduler first =
+            new KeySpaceScheduler(space, pool, checkpoint);
+        assertFalse(first.run(unit -> {
+            if (started.incrementAndGet() == 20) {
+                first.cancel();
+            }
+            counts.incrementAndGet(unit);
+        }));
+        int finished = first.finished();
+        assertTrue(finished >= 20 && finished < space.units());
+
+        int[] reports = new int[1];
+        KeySpaceScheduler second =
+            new KeySpaceScheduler(space, pool, checkpoint);
+        assertEquals(finished, second.finished());
+        second.setProgress((done, total) -> reports[0] = done, 0);
+        assertTrue(second.run(unit -> counts.incrementAndGet(unit)));
+        assertEquals(space.units(), reports[0]);
+        for (int unit = 0; unit < space.units(); unit += 1) {
+            assertEquals(1, counts.get(unit));
+        }
+    }
+
+    @Test
+    public void testSearchFailureKept() throws IOException {
+        KeySpace space = new KeySpace(KeySpaceTest.smallMachine());
+        KeySpaceScheduler scheduler =
+            new KeySpaceScheduler(space, new ForkJoinPool(2),
+                                  tempName() + "/missing/search.ckpt");
+        try {
+            scheduler.run(unit -> {
+                throw new IllegalStateException("search failed");
+            });
+            fail("search failure lost");
+        } catch (IllegalStateException excp) {
+            assertEquals(1, excp.getSuppressed().length);
+            assertTrue(excp.getSuppressed()[0] instanceof EnigmaException);
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testUnwritableCheckpoint() throws IOException {
+        KeySpace space = new KeySpace(KeySpaceTest.smallMachine());
+        new KeySpaceScheduler(space, new ForkJoinPool(2),
+                              tempName() + "/missing/search.ckpt")
+            .run(unit -> { });
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testWrongCheckpoint() throws IOException {
+        String checkpoint = tempName();
+        new KeySpaceScheduler(new KeySpace(KeySpaceTest.smallMachine(), 0),
+                              new ForkJoinPool(1), checkpoint)
+            .run(unit -> { });
+        new KeySpaceScheduler(new KeySpace(KeySpaceTest.smallMachine()),
+                              new ForkJoinPool(1), checkpoint);
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNotACheckpoint() throws IOException {
+        String checkpoint = tempName();
+        try (FileOutputStream out = new FileOutputStream(checkpoint)) {
+            out.write(new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        }
+        new KeySpaceScheduler(new KeySpace(KeySpaceTest.smallMachine()),
+                              new ForkJoinPool(1), checkpoint);
+    }
+}
@@ -0,0 +1,75 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.ArrayList;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the KeySpace class.
+ *  @author Henry Chiong
+ */
+public class KeySpaceTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a small machine with reflector B and moving rotors I, II,
+     *  and III, with 3 slots and 2 pawls. */
+    static Machine smallMachine() {
+        ArrayList<Rotor> rotors = new ArrayList<>();
+        rotors.add(new Reflector("B", new Permutation(NAVALA.get("B"),
+                                                      UPPER)));
+        rotors.add(new MovingRotor("I",
+                new Permutation(NAVALA.get("I"), UPPER), "Q"));
+        rotors.add(new MovingRotor("II",
+                new Permutation(NAVALA.get("II"), UPPER), "E"));
+        rotors.add(new MovingRotor("III",
+                new Permutation(NAVALA.get("III"), UPPER), "V"));
+        return new Machine(UPPER, 3, 2, rotors);
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSizes() {
+        KeySpace space = new KeySpace(CompiledKeyTest.navalMachine());
+        assertEquals(2 * 2 * 5 * 4 * 3 * 26 * 26, space.units());
+        assertEquals(26 * 26 * 26 * 26, space.unitSize());
+        assertEquals((long) space.units() * space.unitSize(), space.size());
+        assertEquals(6, new KeySpace(smallMachine(), 0).units());
+    }
+
+    @Test
+    public void testUnits() {
+        KeySpace space = new KeySpace(smallMachine());
+        assertEquals(6 * 26, space.units());
+        assertArrayEquals(new String[] {"B", "I", "III"}, space.order(26));
+        assertArrayEquals(new int[] {0, 0, 3}, space.rings(29));
+        int[] posns = new int[3];
+        space.positions(26 * 2 + 5, posns);
+        assertArrayEquals(new int[] {0, 2, 5}, posns);
+        assertEquals("* B I III CF AD", space.settings(29, 26 * 2 + 5));
+        assertEquals(3, space.key(29).ring(2));
+    }
+
+    @Test
+    public void testFingerprint() {
+        assertEquals(new KeySpace(smallMachine()).fingerprint(),
+                     new KeySpace(smallMachine()).fingerprint());
+        assertTrue(new KeySpace(smallMachine()).fingerprint()
+                   != new KeySpace(smallMachine(), 0).fingerprint());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testTooManyRings() {
+        new KeySpace(smallMachine(), 3);
+    }
+}
@@ -0,0 +1,134 @@
+package enigma;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static enigma.EnigmaException.*;
+
+/** Reads lines of text from a byte stream, keeping track of the byte
+ *  offset in the stream of the start of the next line, so that a reader
+ *  can later resume there. Lines end with "\n", "\r\n", or "\r", and the
+ *  stream must be in a charset, such as UTF-8, in which those bytes always
+ *  stand for those characters.
+ *  @author Henry Chiong
+ */
+final class LineInput {
+
+    /** Lines read from IN, in CHARSET, where the first byte of IN is at
+     *  offset START. */
+    LineInput(InputStream in, Charset charset, long start) {
+        _in = in;
+        _charset = charset;
+        _offset = start;
+    }
+
+    /** Return true iff another line remains. */
+    boolean hasNextLine() {
+        return fill(1) > 0;
+    }
+
+    /** Return the next line, without its line terminator. */
+    String nextLine() {
+        int scanned = 0;
+        while (true) {
+            int available = fill(scanned + 1);
+            if (available == 0) {
+                throw error("no more lines");
+            }
+            for (; scanned < available; scanned += 1) {
+                byte b = _buffer[_pos + scanned];
+                if (b == '\n' || b == '\r') {
+                    String line = new String(_buffer, _pos, scanned,
+                                             _charset);
+                    int length = scanned + 1;
+                    if (b == '\r' && fill(scanned + 2) > scanned + 1
+                        && _buffer[_pos + scanned + 1] == '\n') {
+                        length += 1;
+                    }
+                    consume(length);
+                    return line;
+                }
+            }
+            if (available < scanned + 1 && _eof) {
+                String line = new String(_buffer, _pos, scanned, _charset);
+                consume(scanned);
+                return line;
+            }
+        }
+    }
+
+    /** Return the byte offset of the start of the next line. */
+    long offset() {
+        return _offset;
+    }
+
+    /** Close my stream. */
+    void close() {
+        try {
+            _in.close();
+        } catch (IOException excp) {
+            /* Ignore errors on closing. */
+        }
+    }
+
+    /** Skip the first LENGTH unread bytes. */
+    private void consume(int length) {
+        _pos += length;
+        _offset += length;
+    }
+
+    /** Read until at least WANTED bytes are unread, or the stream ends,
+     *  and return the number of unread bytes. */
+    private int fill(int wanted) {
+        while (_limit - _pos < wanted && !_eof) {
+            if (wanted > _buffer.length) {
+                byte[] bigger = new byte[Math.max(wanted, 2 * _buffer.length)];
+                System.arraycopy(_buffer, _pos, bigger, 0, _limit - _pos);
+                _buffer = bigger;
+                _limit -= _pos;
+                _pos = 0;
+            } else if (_pos + wanted > _buffer.length) {
+                System.arraycopy(_buffer, _pos, _buffer, 0, _limit - _pos);
+                _limit -= _pos;
+                _pos = 0;
+            }
+            try {
+                int n = _in.read(_buffer, _limit, _buffer.length - _limit);
+                if (n < 0) {
+                    _eof = true;
+                } else {
+                    _limit += n;
+                }
+            } catch (IOException excp) {
+                throw error("could not read input");
+            }
+        }
+        return _limit - _pos;
+    }
+
+    /** Initial size of my buffer. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The stream read. */
+    private final InputStream _in;
+
+    /** Charset of the stream. */
+    private final Charset _charset;
+
+    /** Bytes read from the stream; those from _pos to _limit are
+     *  unread. */
+    private byte[] _buffer = new byte[BUFFER_SIZE];
+
+    /** Position of the first unread byte in _buffer. */
+    private int _pos;
+
+    /** Position after the last byte read into _buffer. */
+    private int _limit;
+
+    /** True iff the stream has ended. */
+    private boolean _eof;
+
+    /** Stream offset of the first unread byte. */
+    private long _offset;
+}
@@ -0,0 +1,73 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the LineInput class.
+ *  @author Henry Chiong
+ */
+public class LineInputTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testLinesAndOffsets() {
+        LineInput in = lines("AB\nC\r\n\rD\u00e9", 10);
+        assertTrue(in.hasNextLine());
+        assertEquals("AB", in.nextLine());
+        assertEquals(13, in.offset());
+        assertEquals("C", in.nextLine());
+        assertEquals(16, in.offset());
+        assertEquals("", in.nextLine());
+        assertEquals(17, in.offset());
+        assertEquals("D\u00e9", in.nextLine());
+        assertEquals(20, in.offset());
+        assertFalse(in.hasNextLine());
+    }
+
+    @Test
+    public void testTrailingNewline() {
+        LineInput in = lines("A\n\n", 0);
+        assertEquals("A", in.nextLine());
+        assertEquals("", in.nextLine());
+        assertFalse(in.hasNextLine());
+        assertEquals(3, in.offset());
+    }
+
+    @Test
+    public void testLongLine() {
+        StringBuilder line = new StringBuilder();
+        for (int i = 0; i < 200000; i += 1) {
+            line.append((char) ('A' + i % 26));
+        }
+        LineInput in = lines(line + "\nX", 0);
+        assertEquals(line.toString(), in.nextLine());
+        assertEquals(200001, in.offset());
+        assertEquals("X", in.nextLine());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNoMoreLines() {
+        LineInput in = lines("", 0);
+        assertFalse(in.hasNextLine());
+        in.nextLine();
+    }
+
+    /** Return the lines of TEXT, encoded in UTF-8, starting at offset
+     *  START. */
+    private static LineInput lines(String text, long start) {
+        return new LineInput(new ByteArrayInputStream(
+            text.getBytes(StandardCharsets.UTF_8)), StandardCharsets.UTF_8,
+            start);
+    }
+}
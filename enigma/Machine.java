@@ -2,6 +2,8 @@ package enigma;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 
 import static enigma.EnigmaException.*;
 
@@ -22,6 +24,16 @@ class Machine {
         _allRotors = allRotors;
     }
 
+    /** Return a new machine like me, with copies of all my rotors, so
+     *  that it can be used alongside me. It has no rotors inserted. */
+    Machine copy() {
+        List<Rotor> rotors = new ArrayList<>();
+        for (Rotor rotor : _allRotors) {
+            rotors.add(rotor.copy());
+        }
+        return new Machine(_alphabet, _numRotors, _pawls, rotors);
+    }
+
     /** Return the number of rotor slots I have. */
     int numRotors() {
         return _numRotors;
@@ -32,6 +44,63 @@ class Machine {
         return _pawls;
     }
 
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return all the rotors available to me. */
+    Collection<Rotor> allRotors() {
+        return _allRotors;
+    }
+
+    /** Return every rotor order I accept in which the reflector is followed
+     *  by the non-moving rotors and then the moving rotors. Each order is
+     *  an array of numRotors() rotor names, as for insertRotors. */
+    List<String[]> rotorOrders() {
+        ArrayList<Rotor> reflectors = new ArrayList<>();
+        ArrayList<Rotor> fixed = new ArrayList<>();
+        ArrayList<Rotor> moving = new ArrayList<>();
+        for (Rotor rotor : _allRotors) {
+            if (rotor.reflecting()) {
+                reflectors.add(rotor);
+            } else if (rotor.rotates()) {
+                moving.add(rotor);
+            } else {
+                fixed.add(rotor);
+            }
+        }
+        List<String[]> result = new ArrayList<>();
+        String[] order = new String[_numRotors];
+        for (Rotor reflector : reflectors) {
+            order[0] = reflector.name();
+            addRotorOrders(result, order, 1, fixed, moving);
+        }
+        return result;
+    }
+
+    /** Return the compiled form of the rotors named ROTORS from my set of
+     *  available rotors (ROTORS[0] names the reflector), with all rotors
+     *  at their 0 ring settings and no plugboard. Does not change the
+     *  rotors inserted in me. */
+    CompiledKey compile(String[] rotors) {
+        checkValidRotors(rotors);
+        CompiledRotor[] compiled = new CompiledRotor[rotors.length];
+        synchronized (this) {
+            if (_compiledRotors == null) {
+                _compiledRotors = new HashMap<>();
+                for (Rotor rotor : _allRotors) {
+                    _compiledRotors.put(rotor.name(),
+                            new CompiledRotor(rotor));
+                }
+            }
+            for (int i = 0; i < rotors.length; i += 1) {
+                compiled[i] = _compiledRotors.get(rotors[i]);
+            }
+        }
+        return new CompiledKey(compiled, _pawls);
+    }
+
     /** Set my rotor slots to the rotors named ROTORS from my set of
      *  available rotors (ROTORS[0] names the reflector).
      *  Initially, all rotors are set at their 0 settings. */
@@ -47,6 +116,7 @@ class Machine {
                 }
             }
         }
+        _slots = _usedRotors.toArray(new Rotor[0]);
     }
 
     /** Set my rotors according to SETTING, which must be a string of
@@ -54,10 +124,10 @@ class Machine {
      *  to the leftmost rotor setting (not counting the reflector). */
     void setRotors(String setting) {
         checkSetting(setting, false);
-        for (int i = 0; i < setting.length(); i += 1) {
+        int[] chars = setting.codePoints().toArray();
+        for (int i = 0; i < chars.length; i += 1) {
             Rotor r = _usedRotors.get(i + 1);
-            char c = setting.charAt(i);
-            r.set(c);
+            r.set(_alphabet.toInt(chars[i]));
         }
     }
 
@@ -66,10 +136,10 @@ class Machine {
      *  to the leftmost rotor ring setting (not counting the reflector). */
     void setRingRotors(String setting) {
         checkSetting(setting, true);
-        for (int i = 0; i < setting.length(); i += 1) {
+        int[] chars = setting.codePoints().toArray();
+        for (int i = 0; i < chars.length; i += 1) {
             Rotor r = _usedRotors.get(i + 1);
-            char c = setting.charAt(i);
-            r.setRing(c);
+            r.setRing(_alphabet.toInt(chars[i]));
         }
     }
 
@@ -85,39 +155,60 @@ class Machine {
         if (c < 0 || c >= _alphabet.size()) {
             throw error(c + " is an invalid index to access in the alphabet.");
         }
-        advanceRotors();
+        return convertTrusted(c);
+    }
+
+    /** Returns the encoding/decoding of MSG, updating the state of
+     *  the rotors accordingly. MSG is checked in full before any of it is
+     *  converted, so the rotors do not move if it is invalid. */
+    String convert(String msg) {
+        int[] indices = indices(msg, _alphabet);
+        convertTrusted(indices, indices.length);
+        return _alphabet.toString(indices, indices.length);
+    }
+
+    /** Return the indices in ALPHABET of the characters of MSG, all of
+     *  which must be in ALPHABET. */
+    static int[] indices(String msg, Alphabet alphabet) {
+        int[] indices = msg.codePoints().toArray();
+        for (int i = 0; i < indices.length; i += 1) {
+            int index = alphabet.indexOf(indices[i]);
+            if (index < 0) {
+                throw error(Alphabet.show(indices[i])
+                            + " must be in the machine's alphabet.");
+            }
+            indices[i] = index;
+        }
+        return indices;
+    }
 
+    /** Replace each of the first LEN entries of INDICES, which must all be
+     *  valid indices into my alphabet, by its conversion, advancing the
+     *  machine before each. */
+    void convertTrusted(int[] indices, int len) {
+        for (int i = 0; i < len; i += 1) {
+            indices[i] = convertTrusted(indices[i]);
+        }
+    }
+
+    /** Returns the result of converting C, which must be a valid index
+     *  into my alphabet, after first advancing the machine. Nothing is
+     *  checked: this is the path for characters already checked. */
+    private int convertTrusted(int c) {
+        advanceRotors();
+        Rotor[] slots = _slots;
         int result = c;
         if (_plugboard != null) {
-            result = _plugboard.permute(result);
+            result = _plugboard.permuteIndex(result);
         }
-        for (int i = _usedRotors.size() - 1; i >= 0; i -= 1) {
-            Rotor r = _usedRotors.get(i);
-            result = r.convertForward(result);
+        for (int i = slots.length - 1; i >= 0; i -= 1) {
+            result = slots[i].forward(result);
         }
-
-        for (int i = 1; i < _usedRotors.size(); i += 1) {
-            Rotor r = _usedRotors.get(i);
-            result = r.convertBackward(result);
+        for (int i = 1; i < slots.length; i += 1) {
+            result = slots[i].backward(result);
         }
         if (_plugboard != null) {
-            result = _plugboard.invert(result);
-        }
-
-        return result;
-    }
-
-    /** Returns the encoding/decoding of MSG, updating the state of
-     *  the rotors accordingly. */
-    String convert(String msg) {
-        checkString(msg);
-        String result = "";
-        for (int i = 0; i < msg.length(); i += 1) {
-            char inputChar = msg.charAt(i);
-            int inputInt = _alphabet.toInt(inputChar);
-            int outputInt = convert(inputInt);
-            char outputChar = _alphabet.toChar(outputInt);
-            result += outputChar;
+            result = _plugboard.invertIndex(result);
         }
         return result;
     }
@@ -179,7 +270,7 @@ class Machine {
         if (isRing) {
             ringMsg = "Ring ";
         }
-        if (setting.length() != _numRotors - 1) {
+        if (setting.codePointCount(0, setting.length()) != _numRotors - 1) {
             throw error(ringMsg + "Setting length must be one less than the"
                     + " number of rotors to be used.");
         }
@@ -189,10 +280,65 @@ class Machine {
     /** Throws an EnigmaException if a character
      *  in S is not in the machine's alphabet. */
     private void checkString(String s) {
-        for (int i = 0; i < s.length(); i += 1) {
-            char c = s.charAt(i);
+        for (int i = 0; i < s.length(); ) {
+            int c = s.codePointAt(i);
             if (!_alphabet.contains(c)) {
-                throw error(c + " must be in the machine's alphabet.");
+                throw error(Alphabet.show(c)
+                            + " must be in the machine's alphabet.");
+            }
+            i += Character.charCount(c);
+        }
+    }
+
+    /** Return the compiled form of my inserted rotors, with their current
+     *  ring settings and my current plugboard. Use positions() for their
+     *  current settings. */
+    CompiledKey compile() {
+        String[] names = new String[_usedRotors.size()];
+        int[] rings = new int[names.length];
+        for (int i = 0; i < names.length; i += 1) {
+            names[i] = _usedRotors.get(i).name();
+            rings[i] = _usedRotors.get(i).ring();
+        }
+        int[] plugboard = CompiledKey.identity(_alphabet.size());
+        if (_plugboard != null) {
+            plugboard = CompiledRotor.table(_plugboard);
+        }
+        return compile(names).withRings(rings).withPlugboard(plugboard);
+    }
+
+    /** Return the current settings of my inserted rotors, with the
+     *  reflector's first, in the form used by CompiledKey. */
+    int[] positions() {
+        int[] result = new int[_usedRotors.size()];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = _usedRotors.get(i).setting();
+        }
+        return result;
+    }
+
+    /** Add to RESULT every rotor order that begins with the first SLOT
+     *  names in ORDER, fills the remaining non-moving slots from FIXED,
+     *  and fills the moving slots from MOVING, using each rotor at most
+     *  once. */
+    private void addRotorOrders(List<String[]> result, String[] order,
+                                int slot, List<Rotor> fixed,
+                                List<Rotor> moving) {
+        if (slot == _numRotors) {
+            result.add(order.clone());
+            return;
+        }
+        List<Rotor> choices = slot < _numRotors - _pawls ? fixed : moving;
+        for (Rotor rotor : choices) {
+            boolean used = false;
+            for (int i = 1; i < slot; i += 1) {
+                if (order[i].equals(rotor.name())) {
+                    used = true;
+                }
+            }
+            if (!used) {
+                order[slot] = rotor.name();
+                addRotorOrders(result, order, slot + 1, fixed, moving);
             }
         }
     }
@@ -204,7 +350,7 @@ class Machine {
     private void advanceRotors() {
         boolean wasAtNotch = false;
         for (int i = 1; i <= _pawls; i += 1) {
-            Rotor curr = _usedRotors.get(_usedRotors.size() - i);
+            Rotor curr = _slots[_slots.length - i];
             if (i == 1) {
                 if (curr.atNotch()) {
                     wasAtNotch = true;
@@ -237,6 +383,13 @@ class Machine {
     /** Collection of the available rotors to use. */
     private ArrayList<Rotor> _usedRotors;
 
+    /** The rotors in _usedRotors, in order. */
+    private Rotor[] _slots;
+
     /** Plugboard of this machine. */
     private Permutation _plugboard;
+
+    /** Compiled forms of my available rotors, keyed by name, or null if
+     *  none have been compiled yet. */
+    private HashMap<String, CompiledRotor> _compiledRotors;
 }
@@ -87,6 +87,51 @@ public class MachineTest {
         assertTrue("QVPQS".equals(m.convert("FROMH")));
     }
 
+    @Test
+    public void testCopy() {
+        initializeMachine();
+        Machine copy = m.copy();
+        copy.insertRotors(new String[] {"B", "Beta", "III", "IV", "I"});
+        copy.setRotors("AXLE");
+        copy.setPlugboard(plugboard);
+        String msg = "FROMHISSHOULDERHIAWATHA";
+        assertEquals(m.convert(msg), copy.convert(msg));
+        assertArrayEquals(m.positions(), copy.positions());
+        copy.setRotors("ZZZZ");
+        assertEquals(UPPER.toInt('X'), m.positions()[2]);
+    }
+
+    /** A regression test: Machine.convert(String) has always checked
+     *  the whole message before converting any of it, and must still do
+     *  so now that it converts through convertTrusted. */
+    @Test
+    public void testInvalidMsgLeavesRotors() {
+        initializeMachine();
+        int[] before = m.positions();
+        try {
+            m.convert("FROM1");
+            fail("invalid character accepted");
+        } catch (EnigmaException excp) {
+            assertArrayEquals(before, m.positions());
+        }
+    }
+
+    @Test
+    public void testConvertTrusted() {
+        initializeMachine();
+        int[] text = new int[200];
+        for (int k = 0; k < text.length; k += 1) {
+            text[k] = (7 * k) % 26;
+        }
+        int[] expected = new int[text.length];
+        for (int k = 0; k < text.length; k += 1) {
+            expected[k] = m.convert(text[k]);
+        }
+        m.setRotors("AXLE");
+        m.convertTrusted(text, text.length);
+        assertArrayEquals(expected, text);
+    }
+
     @Test(expected = EnigmaException.class)
     public void checkInvalidNumRotors1() {
         initializeRotorsArrList();
@@ -1,13 +1,32 @@
 package enigma;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.NoSuchElementException;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static enigma.EnigmaException.*;
 
@@ -24,7 +43,39 @@ public final class Main {
      *  input.  ARGS[2] is optional; when present, it names an output
      *  file for processed messages.  Otherwise, output goes to the
      *  standard output. Exits normally if there are no errors in the input;
-     *  otherwise with code 1. */
+     *  otherwise with code 1. Input and output files whose names end in
+     *  ".gz" are decompressed and compressed with gzip as they are read and
+     *  written, on threads of their own as with --pipeline.
+     *
+     *  The arguments may be preceded by options:
+     *    --pipeline reads the input and writes the output on threads of
+     *        their own, through a fixed number of buffered chunks, so that
+     *        converting overlaps with slow input or output;
+     *    --group=N prints messages in groups of N characters (default 5,
+     *        0 for no grouping);
+     *    --width=N breaks printed lines longer than N characters between
+     *        groups (default 0, for no limit);
+     *    --engine=NAME converts with the engine NAME: reference, table,
+     *        expanded, or auto (the default), which chooses by the size
+     *        of the alphabet and of the input;
+     *    --checkpoint=FILE, which needs both an input and an output file,
+     *        records the progress of the run in FILE every so often and if
+     *        it fails, and resumes from there if FILE exists when the run
+     *        starts. A checkpoint made for another input file (by size
+     *        and modification time) or configuration is refused. FILE is
+     *        deleted when the run finishes;
+     *    --stats prints the length, index of coincidence, and chi-squared
+     *        statistic of each converted message, and of all of them, on
+     *        the standard error;
+     *    --batch converts many files in one run, taking the arguments
+     *        CONFIG SOURCE [OUTDIR]. If SOURCE is a directory, each file in
+     *        it is converted to the file of the same name in OUTDIR.
+     *        Otherwise SOURCE is a manifest, each line of which names an
+     *        input file and its output file. The configuration is read
+     *        once, the files are converted concurrently by as many
+     *        threads as there are processors, and the throughput of each
+     *        is printed. A bad file is reported and skipped, and the rest
+     *        are converted; the exit code is 1 if any failed. */
     public static void main(String... args) {
         try {
             new Main(args).process();
@@ -37,27 +88,304 @@ public final class Main {
 
     /** Check ARGS and open the necessary files (see comment on main). */
     Main(String[] args) {
+        String checkpoint = null;
+        int opts;
+        for (opts = 0; opts < args.length && args[opts].startsWith("--");
+             opts += 1) {
+            if (args[opts].equals("--pipeline")) {
+                _pipelined = true;
+            } else if (args[opts].startsWith("--group=")) {
+                _groupSize = optionValue(args[opts]);
+            } else if (args[opts].startsWith("--width=")) {
+                _lineWidth = optionValue(args[opts]);
+            } else if (args[opts].startsWith("--engine=")) {
+                _engineName = args[opts].substring("--engine=".length());
+            } else if (args[opts].equals("--batch")) {
+                _batch = true;
+            } else if (args[opts].equals("--stats")) {
+                _statsWanted = true;
+            } else if (args[opts].startsWith("--checkpoint=")) {
+                checkpoint = args[opts].substring("--checkpoint=".length());
+            } else {
+                throw error("unknown option %s", args[opts]);
+            }
+        }
+        args = Arrays.copyOfRange(args, opts, args.length);
         if (args.length < 1 || args.length > 3) {
             throw error("Only 1, 2, or 3 command-line arguments allowed");
         }
 
-        _config = getInput(args[0]);
+        _configName = args[0];
+        _config = readText(args[0]);
+        if (_batch) {
+            if (args.length < 2 || _pipelined || _statsWanted
+                || checkpoint != null) {
+                throw error("--batch needs a source, and cannot be used with"
+                            + " --pipeline, --stats, or --checkpoint");
+            }
+            _batchFiles = batchFiles(args[1], args.length > 2 ? args[2]
+                                     : null);
+            return;
+        }
+        if (args.length > 1) {
+            _inputLength = new File(args[1]).length();
+        }
+
+        boolean compressed = args.length > 1 && compressed(args[1])
+            || args.length > 2 && compressed(args[2]);
+        if (checkpoint != null && compressed) {
+            throw error("--checkpoint cannot be used with compressed files");
+        } else if (compressed) {
+            _pipelined = true;
+            if (compressed(args[1])) {
+                _inputLength = -1;
+            }
+        }
+
+        if (checkpoint != null) {
+            if (args.length != 3 || _pipelined) {
+                throw error("--checkpoint needs input and output files, and"
+                            + " cannot be used with --pipeline");
+            }
+            openCheckpointed(checkpoint, args[1], args[2]);
+            return;
+        }
 
         if (args.length > 1) {
-            _input = getInput(args[1]);
+            _input = _pipelined ? getPipedInput(openInput(args[1]))
+                : getInput(args[1]);
+        } else if (_pipelined) {
+            _input = getPipedInput(System.in);
         } else {
             _input = new Scanner(System.in);
         }
 
-        if (args.length > 2) {
-            _output = getOutput(args[2]);
+        OutputStream out = args.length > 2 ? openOutput(args[2]) : System.out;
+        if (_pipelined) {
+            Writer writer = new ChunkWriter(
+                new OutputStreamWriter(out, Charset.defaultCharset()),
+                PIPELINE_CHUNKS, CHUNK_SIZE);
+            _output = new GroupedWriter(writer, _groupSize, _lineWidth);
+        } else {
+            _output = new GroupedWriter(out, Charset.defaultCharset(),
+                                        _groupSize, _lineWidth);
+        }
+        _closeOutput = args.length > 2;
+    }
+
+    /** A Main converting the file named INPUT into the file named OUTPUT
+     *  with MACHINE, as one file of the batch run by BATCH, whose options
+     *  it takes. */
+    private Main(Main batch, Machine machine, String input, String output) {
+        _machine = machine;
+        _alphabet = machine.alphabet();
+        _engineName = batch._engineName;
+        if (compressed(input)) {
+            _input = new Scanner(new InputStreamReader(openInput(input),
+                                 Charset.defaultCharset()));
         } else {
-            _output = System.out;
+            _inputLength = new File(input).length();
+            _input = getInput(input);
+        }
+        try {
+            _output = new GroupedWriter(openOutput(output),
+                                        Charset.defaultCharset(),
+                                        batch._groupSize, batch._lineWidth);
+        } catch (EnigmaException excp) {
+            _input.close();
+            throw excp;
+        }
+        _closeOutput = true;
+    }
+
+    /** Return the input and output files of a batch run: the files in the
+     *  directory SOURCE and those of the same names in the directory
+     *  OUTDIR, or, if SOURCE is not a directory, the pairs of files named
+     *  on each line of the manifest SOURCE, in which case OUTDIR must be
+     *  null. No output may overwrite its own input. */
+    private static List<String[]> batchFiles(String source, String outDir) {
+        List<String[]> result = new ArrayList<>();
+        File dir = new File(source);
+        if (dir.isDirectory()) {
+            File[] inputs = dir.listFiles(File::isFile);
+            if (outDir == null || inputs == null) {
+                throw error("--batch of directory %s needs an output"
+                            + " directory", source);
+            }
+            if (sameFile(dir, new File(outDir))) {
+                throw error("--batch output directory %s is the source"
+                            + " directory", outDir);
+            }
+            new File(outDir).mkdirs();
+            Arrays.sort(inputs);
+            for (File input : inputs) {
+                result.add(new String[] {input.getPath(),
+                    new File(outDir, input.getName()).getPath()});
+            }
+            return result;
+        } else if (outDir != null) {
+            throw error("--batch of manifest %s takes no output directory",
+                        source);
+        }
+        Scanner manifest = getInput(source);
+        while (manifest.hasNextLine()) {
+            String[] files = manifest.nextLine().trim().split("\\s+");
+            if (files.length == 2) {
+                if (sameFile(new File(files[0]), new File(files[1]))) {
+                    throw error("manifest line converts %s into itself",
+                                files[0]);
+                }
+                result.add(files);
+            } else if (!files[0].isEmpty()) {
+                throw error("manifest lines must name an input and an output"
+                            + " file");
+            }
+        }
+        manifest.close();
+        return result;
+    }
+
+    /** Return true iff A and B name the same file. */
+    private static boolean sameFile(File a, File b) {
+        try {
+            return a.getCanonicalFile().equals(b.getCanonicalFile());
+        } catch (IOException excp) {
+            throw error("could not resolve %s", b);
+        }
+    }
+
+    /** Convert each of _batchFiles with its own copy of the machine
+     *  configured by _config, on a pool of as many threads as there are
+     *  processors, reporting the throughput of each file and the errors of
+     *  those that fail. */
+    private void processBatch() {
+        Machine machine = readConfig();
+        int failed = 0;
+        boolean[] ok = new boolean[_batchFiles.size()];
+        ForkJoinPool pool = new ForkJoinPool(
+            Math.max(1, Math.min(Runtime.getRuntime().availableProcessors(),
+                                 ok.length)));
+        try {
+            pool.invoke(new RangeTask(0, ok.length,
+                i -> ok[i] = processFile(machine.copy(), _batchFiles.get(i))));
+        } finally {
+            pool.shutdown();
+        }
+        for (boolean fileOk : ok) {
+            if (!fileOk) {
+                failed += 1;
+            }
+        }
+        if (failed > 0) {
+            throw error("%d of %d files failed", failed, ok.length);
+        }
+    }
+
+    /** Convert FILES[0] into FILES[1] with MACHINE, and report the
+     *  throughput. Return true iff that succeeded; otherwise report the
+     *  error. */
+    private boolean processFile(Machine machine, String[] files) {
+        long start = System.nanoTime();
+        try {
+            new Main(this, machine, files[0], files[1]).process();
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s: %s%n", files[0], excp.getMessage());
+            return false;
+        } catch (RuntimeException excp) {
+            System.err.printf("Error: %s: %s%n", files[0], excp);
+            return false;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long bytes = new File(files[0]).length();
+        System.out.printf("%s: %d bytes in %.3f s (%.2f MB/s)%n", files[0],
+                          bytes, seconds, bytes / 1e6 / seconds);
+        return true;
+    }
+
+    /** Open the files named INPUT and OUTPUT for a run checkpointed to
+     *  the file named CHECKPOINT, resuming from the checkpoint if it
+     *  exists and was made for the same input and configuration. */
+    private void openCheckpointed(String checkpoint, String input,
+                                  String output) {
+        _checkpoint = new File(checkpoint);
+        _fingerprint = fingerprint(new File(input));
+        if (_checkpoint.exists()) {
+            readCheckpoint();
+        }
+        try {
+            FileChannel in =
+                FileChannel.open(Paths.get(input), StandardOpenOption.READ);
+            if (in.size() < _markInput) {
+                throw error("%s is shorter than its checkpoint", input);
+            }
+            in.position(_markInput);
+            _lines = new LineInput(Channels.newInputStream(in),
+                                   Charset.defaultCharset(), _markInput);
+        } catch (IOException excp) {
+            throw error("could not open %s", input);
+        }
+        try {
+            FileChannel out =
+                FileChannel.open(Paths.get(output), StandardOpenOption.WRITE,
+                                 StandardOpenOption.CREATE);
+            out.truncate(_markOutput);
+            out.position(_markOutput);
+            _output = new GroupedWriter(Channels.newOutputStream(out),
+                                        Charset.defaultCharset(),
+                                        _groupSize, _lineWidth);
+            _outputBase = _markOutput;
+        } catch (IOException excp) {
+            throw error("could not open %s", output);
+        }
+        _closeOutput = true;
+        _lastSave = System.currentTimeMillis();
+    }
+
+    /** Return the value of OPTION, of the form --NAME=N, where N is a
+     *  non-negative integer. */
+    private static int optionValue(String option) {
+        try {
+            int value =
+                Integer.parseInt(option.substring(option.indexOf('=') + 1));
+            if (value >= 0) {
+                return value;
+            }
+        } catch (NumberFormatException excp) {
+            /* Fall through to report the error. */
+        }
+        throw error("bad option %s", option);
+    }
+
+    /** A Main that reads only the machine configuration CONFIG. */
+    private Main(String name, String config) {
+        _configName = name;
+        _config = config;
+    }
+
+    /** Return an Enigma machine configured from the contents of the
+     *  configuration file named NAME. */
+    static Machine readConfig(String name) {
+        return new Main(name, readText(name)).readConfig();
+    }
+
+    /** Return an Enigma machine configured from CONFIG, the contents of
+     *  a configuration file. */
+    static Machine parseConfig(String config) {
+        return new Main("configuration", config).readConfig();
+    }
+
+    /** Return the contents of the file named NAME. */
+    private static String readText(String name) {
+        try {
+            return new String(Files.readAllBytes(Paths.get(name)),
+                              Charset.defaultCharset());
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
         }
     }
 
     /** Return a Scanner reading from the file named NAME. */
-    private Scanner getInput(String name) {
+    private static Scanner getInput(String name) {
         try {
             return new Scanner(new File(name));
         } catch (IOException excp) {
@@ -65,10 +393,49 @@ public final class Main {
         }
     }
 
-    /** Return a PrintStream writing to the file named NAME. */
-    private PrintStream getOutput(String name) {
+    /** Return a Scanner reading IN through a ChunkReader. */
+    private static Scanner getPipedInput(InputStream in) {
+        return new Scanner(new ChunkReader(
+            new InputStreamReader(in, Charset.defaultCharset()),
+            PIPELINE_CHUNKS, CHUNK_SIZE));
+    }
+
+    /** Return true iff the file named NAME is compressed with gzip. */
+    private static boolean compressed(String name) {
+        return name.endsWith(".gz");
+    }
+
+    /** Return a stream reading from the file named NAME, decompressing it
+     *  if it is compressed. */
+    private static InputStream openInput(String name) {
+        InputStream in = null;
         try {
-            return new PrintStream(new File(name));
+            in = new FileInputStream(name);
+            if (compressed(name)) {
+                in = new GZIPInputStream(in, GZIP_BUFFER_SIZE);
+            }
+            return in;
+        } catch (IOException excp) {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException ignored) {
+                    /* Report the first error. */
+                }
+            }
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return a stream writing to the file named NAME, compressing it if
+     *  NAME is that of a compressed file. */
+    private static OutputStream openOutput(String name) {
+        try {
+            OutputStream out = new FileOutputStream(name);
+            if (compressed(name)) {
+                out = new GZIPOutputStream(out, GZIP_BUFFER_SIZE);
+            }
+            return out;
         } catch (IOException excp) {
             throw error("could not open %s", name);
         }
@@ -77,108 +444,214 @@ public final class Main {
     /** Configure an Enigma machine from the contents of configuration
      *  file _config and apply it to the messages in _input, sending the
      *  results to _output. */
-    private void process() {
-        Machine m = readConfig();
-        String settings = "";
-        while (_input.hasNextLine()) {
-            while (settings.isBlank()) {
-                settings = _input.nextLine();
+    void process() {
+        if (_batch) {
+            processBatch();
+            return;
+        }
+        boolean finished = false;
+        try {
+            convertAll();
+            finished = true;
+        } finally {
+            if (_checkpoint != null && !finished && _markSettings != null) {
+                writeCheckpoint();
             }
+            if (_closeOutput) {
+                _output.close();
+            } else {
+                _output.flush();
+            }
+            if (_lines != null) {
+                _lines.close();
+            }
+        }
+        if (_checkpoint != null) {
+            _checkpoint.delete();
+        }
+        if (_input != null && _input.ioException() != null) {
+            throw error("could not read input");
+        }
+    }
+
+    /** Configure an Enigma machine from the contents of configuration
+     *  file _config and apply it to the messages in _input, sending the
+     *  results to _output. */
+    private void convertAll() {
+        Machine machine = _machine != null ? _machine : readConfig();
+        Engine m = Engine.create(_engineName, machine, _inputLength);
+        Statistics stats =
+            _statsWanted ? new Statistics(_alphabet.size()) : null;
+        String settings = "";
+        boolean resumed = _markSettings != null;
+        if (resumed) {
+            settings = _markSettings;
             setUp(m, settings);
-            if (_input.hasNextLine()) {
-                String line = _input.nextLine();
+            m.setRotors(_markRotors);
+        }
+        while (resumed || hasNextLine()) {
+            if (!resumed) {
+                while (settings.isBlank()) {
+                    settings = nextLine();
+                }
+                setUp(m, settings);
+            }
+            resumed = false;
+            if (hasNextLine()) {
+                String line = nextLine();
                 while (line.indexOf('*') < 0) {
                     Scanner lineInput = new Scanner(line);
-                    String convertedLine = "";
                     while (lineInput.hasNext()) {
-                        String msg = lineInput.next();
-                        String convertedMsg = m.convert(msg);
-                        convertedLine += convertedMsg;
+                        int[] msg = Machine.indices(lineInput.next(),
+                                                    _alphabet);
+                        m.convert(msg, msg.length);
+                        if (stats != null) {
+                            stats.add(msg, msg.length);
+                        }
+                        _output.write(_alphabet.toString(msg, msg.length));
                     }
-                    printMessageLine(convertedLine);
-                    _output.println();
-                    if (_input.hasNextLine()) {
-                        line = _input.nextLine();
+                    _output.endLine();
+                    if (_checkpoint != null) {
+                        mark(settings, m);
+                    }
+                    if (hasNextLine()) {
+                        line = nextLine();
                     } else {
                         line = "*";
                     }
                 }
+                if (stats != null) {
+                    System.err.println(stats.messageSummary());
+                    stats.endMessage();
+                }
                 settings = line;
             }
         }
+        if (stats != null) {
+            System.err.println(stats.totalSummary());
+        }
     }
 
-    /** Return an Enigma machine configured from the contents of configuration
-     *  file _config. */
-    private Machine readConfig() {
-        try {
-            _alphabet = new Alphabet(_config.next());
-            int numRotors = _config.nextInt();
-            int pawls = _config.nextInt();
-            Collection<Rotor> allRotors = new ArrayList<>();
-            _token = _config.next();
-            while (!_token.isEmpty()) {
-                allRotors.add(readRotor());
-            }
-            return new Machine(_alphabet, numRotors, pawls, allRotors);
-        } catch (NoSuchElementException excp) {
-            throw error("Configuration file truncated.");
+    /** Return true iff another line of input remains. */
+    private boolean hasNextLine() {
+        return _lines != null ? _lines.hasNextLine() : _input.hasNextLine();
+    }
+
+    /** Return the next line of input. */
+    private String nextLine() {
+        return _lines != null ? _lines.nextLine() : _input.nextLine();
+    }
+
+    /** Record that the input up to the next line has been converted by M,
+     *  set up by the settings line SETTINGS, and write the checkpoint if
+     *  it was last written long enough ago. */
+    private void mark(String settings, Engine m) {
+        _markInput = _lines.offset();
+        _markOutput = _outputBase + _output.written();
+        _markSettings = settings;
+        StringBuilder rotors = new StringBuilder();
+        int[] posns = m.positions();
+        for (int k = 1; k < posns.length; k += 1) {
+            rotors.appendCodePoint(_alphabet.toCodePoint(posns[k]));
+        }
+        _markRotors = rotors.toString();
+        long now = System.currentTimeMillis();
+        if (now - _lastSave >= CHECKPOINT_INTERVAL) {
+            writeCheckpoint();
+            _lastSave = now;
         }
     }
 
-    /** Return a rotor, reading its description from _config. */
-    private Rotor readRotor() {
+    /** Write out the output so far, then replace the checkpoint file with
+     *  one recording the last mark. */
+    private void writeCheckpoint() {
+        _output.flush();
+        File temp = new File(_checkpoint.getPath() + ".tmp");
+        try (DataOutputStream out =
+             new DataOutputStream(new FileOutputStream(temp))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeLong(_fingerprint);
+            out.writeLong(_markInput);
+            out.writeLong(_markOutput);
+            out.writeUTF(_markSettings);
+            out.writeUTF(_markRotors);
+        } catch (IOException excp) {
+            throw error("could not write %s", temp);
+        }
         try {
-            checkRotorString(_token, "name");
-            String name = _token;
-            String rotorDetails = _config.next();
-            checkRotorString(rotorDetails, "details");
-            String cycles = "";
-            String cycle = _config.next();
-            while (cycle.startsWith("(")) {
-                cycles += cycle;
-                if (_config.hasNext()) {
-                    cycle = _config.next();
-                } else {
-                    cycle = "";
-                }
+            Files.move(temp.toPath(), _checkpoint.toPath(),
+                       StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException excp) {
+            throw error("could not write %s", _checkpoint);
+        }
+    }
+
+    /** Read the mark to resume from out of the checkpoint file. */
+    private void readCheckpoint() {
+        try (DataInputStream in =
+             new DataInputStream(new FileInputStream(_checkpoint))) {
+            if (in.readInt() != CHECKPOINT_MAGIC) {
+                throw error("%s is not a checkpoint.", _checkpoint);
             }
-            _token = cycle;
-            Permutation p = new Permutation(cycles, _alphabet);
-            if (rotorDetails.startsWith("M")) {
-                String notches = rotorDetails.substring(1);
-                return new MovingRotor(name, p, notches);
-            } else if (rotorDetails.startsWith("N")) {
-                return new FixedRotor(name, p);
-            } else if (rotorDetails.startsWith("R")) {
-                return new Reflector(name, p);
-            } else {
-                throw error("Rotor must be described with 'M', 'N', or 'R'.");
+            if (in.readLong() != _fingerprint) {
+                throw error("%s is a checkpoint of a different input or"
+                            + " configuration.", _checkpoint);
+            }
+            _markInput = in.readLong();
+            _markOutput = in.readLong();
+            _markSettings = in.readUTF();
+            _markRotors = in.readUTF();
+            if (_markInput < 0 || _markOutput < 0) {
+                throw error("%s is corrupt.", _checkpoint);
             }
-        } catch (NoSuchElementException excp) {
-            throw error("Bad rotor description.");
+        } catch (EOFException excp) {
+            throw error("%s is truncated.", _checkpoint);
+        } catch (IOException excp) {
+            throw error("could not open %s", _checkpoint);
         }
     }
 
+    /** Return a hash of the size and modification time of the file
+     *  INPUT and of the text of _config, so that a checkpoint is resumed
+     *  only on the input and configuration it was made for. */
+    private long fingerprint(File input) {
+        long result = 17;
+        result = 31 * result + input.length();
+        result = 31 * result + input.lastModified();
+        for (int i = 0; i < _config.length(); i += 1) {
+            result = 31 * result + _config.charAt(i);
+        }
+        return result;
+    }
+
+    /** Return an Enigma machine configured from _config. */
+    private Machine readConfig() {
+        Machine machine =
+            new ConfigParser(_configName, _config).parse(_permutations);
+        _alphabet = machine.alphabet();
+        return machine;
+    }
+
     /** Set M according to the specification given on SETTINGS,
      *  which must have the format specified in the assignment. */
-    private void setUp(Machine M, String settings) {
+    private void setUp(Engine M, String settings) {
         Scanner strInput = new Scanner(settings);
         String firstCol = strInput.next();
         checkSettings(firstCol);
         String[] rotorNames = new String[M.numRotors()];
         for (int i = 0; i < M.numRotors(); i += 1) {
-            rotorNames[i] = strInput.next();
+            rotorNames[i] = settingsToken(strInput, settings);
         }
-        M.insertRotors(rotorNames);
-        String rotorSetting = strInput.next();
+        M.configure(rotorNames);
+        String rotorSetting = settingsToken(strInput, settings);
         checkRotorString(rotorSetting, "setting");
         M.setRotors(rotorSetting);
         String plugboardCycles = "";
         if (strInput.hasNext()) {
             _token = strInput.next();
             if (!_token.startsWith("(")) {
-                M.setRingRotors(_token);
+                M.setRings(_token);
             } else {
                 plugboardCycles += _token;
             }
@@ -187,18 +660,16 @@ public final class Main {
                 plugboardCycles += plugboardCycle;
             }
         }
-        M.setPlugboard(new Permutation(plugboardCycles, _alphabet));
+        M.setPlugboard(_permutations.get(plugboardCycles, _alphabet));
     }
 
-    /** Print MSG in groups of five (except that the last group may
-     *  have fewer letters). */
-    private void printMessageLine(String msg) {
-        for (int i = 0; i < msg.length(); i += 1) {
-            _output.print(msg.charAt(i));
-            if (i % 5 == 4) {
-                _output.print(' ');
-            }
+    /** Return the next token of INPUT, which reads the settings line
+     *  SETTINGS, or throw an EnigmaException if there is none. */
+    private static String settingsToken(Scanner input, String settings) {
+        if (!input.hasNext()) {
+            throw error("settings line '%s' is incomplete", settings.trim());
         }
+        return input.next();
     }
 
     /** Throws an EnigmaException if S, which describes
@@ -216,17 +687,105 @@ public final class Main {
         }
     }
 
+    /** Default number of characters in each printed group. */
+    private static final int GROUP_SIZE = 5;
+
+    /** The first int of a checkpoint file ("ENCP"). */
+    private static final int CHECKPOINT_MAGIC = 0x454E4350;
+
+    /** Milliseconds between checkpoints. */
+    private static final long CHECKPOINT_INTERVAL = 30000;
+
+    /** Number of chunks buffered on each side of the converter in
+     *  pipelined mode. */
+    private static final int PIPELINE_CHUNKS = 4;
+
+    /** Number of characters in each chunk in pipelined mode. */
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    /** Size of the buffers of compressed streams. */
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    /** Number of cycle strings kept by _permutations. */
+    private static final int PERMUTATION_POOL_SIZE = 1024;
+
     /** Alphabet used in this machine. */
     private Alphabet _alphabet;
 
+    /** Shares the permutations of rotors and plugboards with the same
+     *  wiring. */
+    private final PermutationPool _permutations =
+        new PermutationPool(PERMUTATION_POOL_SIZE);
+
     /** Source of input messages. */
     private Scanner _input;
 
-    /** Source of machine configuration. */
-    private Scanner _config;
+    /** Text of the machine configuration. */
+    private String _config;
+
+    /** Name of the file holding _config, for error messages. */
+    private String _configName;
 
     /** File for encoded/decoded messages. */
-    private PrintStream _output;
+    private GroupedWriter _output;
+
+    /** True iff _output is a file, to be closed when done. */
+    private boolean _closeOutput;
+
+    /** True iff reading and writing run on threads of their own. */
+    private boolean _pipelined;
+
+    /** Number of characters in each printed group. */
+    private int _groupSize = GROUP_SIZE;
+
+    /** Longest printed line, or 0 for no limit. */
+    private int _lineWidth;
+
+    /** True iff this is a batch run. */
+    private boolean _batch;
+
+    /** Input and output files of a batch run. */
+    private List<String[]> _batchFiles;
+
+    /** Machine configured for this run already, or null if it is to be
+     *  read from _config. */
+    private Machine _machine;
+
+    /** True iff statistics of the output are to be printed. */
+    private boolean _statsWanted;
+
+    /** Name of the engine converting messages. */
+    private String _engineName = "auto";
+
+    /** Length of the input file in bytes, or -1 if input is not from a
+     *  file. */
+    private long _inputLength = -1;
+
+    /** Source of input messages in checkpointed runs, or null. */
+    private LineInput _lines;
+
+    /** Checkpoint file, or null. */
+    private File _checkpoint;
+
+    /** Hash of the input file and configuration of a checkpointed run
+     *  (see fingerprint). */
+    private long _fingerprint;
+
+    /** Offset of the output file at which _output started. */
+    private long _outputBase;
+
+    /** Offsets of the input and output files at the last mark. */
+    private long _markInput, _markOutput;
+
+    /** Settings line in effect at the last mark, or null if there is no
+     *  mark. */
+    private String _markSettings;
+
+    /** Rotor settings at the last mark. */
+    private String _markRotors;
+
+    /** Time at which the checkpoint was last written, in milliseconds. */
+    private long _lastSave;
 
     /** Stores token yet to be used. */
     private String _token;
@@ -4,9 +4,19 @@ import org.junit.Test;
 import org.junit.Rule;
 import org.junit.rules.Timeout;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Scanner;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 import static enigma.EnigmaException.*;
 import static org.junit.Assert.*;
@@ -142,4 +152,189 @@ public class MainTest {
             throw error("could not open %s", testOutPath);
         }
     }
+
+    @Test
+    public void checkPipelined() {
+        String[] pipelinedArgs = {"--pipeline", defaultConfPath,
+                                  riptideEncInPath, riptideEncOutPath};
+        Main.main(pipelinedArgs);
+
+        try {
+            Scanner riptideScanner = new Scanner(new File(riptideEncOutPath));
+            int index = 0;
+            while (riptideScanner.hasNextLine()) {
+                String outputLine = riptideScanner.nextLine();
+                assertTrue(outputLine.equals(riptideEncoding[index]));
+                index += 1;
+            }
+            assertEquals(riptideEncoding.length, index);
+        } catch (IOException excp) {
+            throw error("could not open %s", riptideEncOutPath);
+        }
+    }
+
+    @Test
+    public void checkStats() throws IOException {
+        String[] statsArgs = {"--stats", defaultConfPath, riptideEncInPath,
+                              riptideEncOutPath};
+        PrintStream err = System.err;
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        try {
+            System.setErr(new PrintStream(report, true, "UTF-8"));
+            Main.main(statsArgs);
+        } finally {
+            System.setErr(err);
+        }
+        String[] lines = report.toString("UTF-8").split("\\R");
+        int total = String.join("", riptideEncoding).replace(" ", "")
+            .length();
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith("message 1: " + total + " "));
+        assertTrue(lines[1].startsWith("total: " + total + " characters,"));
+        assertEquals(riptideEncoding[0],
+                     Files.readAllLines(new File(riptideEncOutPath).toPath(),
+                                        Charset.defaultCharset()).get(0));
+    }
+
+    @Test
+    public void checkCheckpointResume() throws IOException {
+        String good = "* B Beta III IV I AXLE (HQ) (EX) (IP) (TR) (BY)\n";
+        String messages = "FROM HIS SHOULDER HIAWATHA\n"
+            + "TOOK THE CAMERA OF ROSEWOOD\n";
+        File in = File.createTempFile("enigma", ".in");
+        File out = File.createTempFile("enigma", ".out");
+        File expectedOut = File.createTempFile("enigma", ".out");
+        File checkpoint = File.createTempFile("enigma", ".ckpt");
+        checkpoint.delete();
+        try {
+            writeFile(in, good + messages + "* B Nope III IV I AXLE\n"
+                      + messages);
+            String[] args = {"--checkpoint=" + checkpoint, defaultConfPath,
+                             in.getPath(), out.getPath()};
+            try {
+                new Main(args).process();
+                fail("bad settings line accepted");
+            } catch (EnigmaException excp) {
+                assertTrue(checkpoint.exists());
+            }
+
+            long modified = in.lastModified();
+
+            String fixed = good + messages + "* B Beta III IV I AXLE\n"
+                + messages;
+            /* Spoil the part already converted, which a resumed run must
+             * not read again, keeping the input's size. */
+            writeFile(in, good.replace('B', '?') + messages
+                      + "* B Beta III IV I AXLE\n" + messages);
+            in.setLastModified(modified + 2000);
+            try {
+                new Main(args).process();
+                fail("checkpoint of a changed input resumed");
+            } catch (EnigmaException excp) {
+                assertTrue(checkpoint.exists());
+            }
+            in.setLastModified(modified);
+            new Main(args).process();
+            assertFalse(checkpoint.exists());
+
+            writeFile(in, fixed);
+            new Main(new String[] {defaultConfPath, in.getPath(),
+                                   expectedOut.getPath()}).process();
+            assertEquals(readFile(expectedOut), readFile(out));
+        } finally {
+            in.delete();
+            out.delete();
+            expectedOut.delete();
+            checkpoint.delete();
+        }
+    }
+
+    @Test
+    public void checkBatch() throws IOException {
+        File in = Files.createTempDirectory("enigma").toFile();
+        File out = Files.createTempDirectory("enigma").toFile();
+        File manifest = File.createTempFile("enigma", ".txt");
+        String encoding = String.join("\n", riptideEncoding) + "\n";
+        try {
+            writeFile(new File(in, "a.in"), readFile(new File(
+                riptideEncInPath)));
+            writeFile(new File(in, "b.in"), "* B Nope III IV I AXLE\nHI\n");
+            writeFile(new File(in, "c.in"), "* B Beta\nHI\n");
+            writeFile(new File(in, "d.in"), readFile(new File(
+                riptideEncInPath)));
+            try {
+                new Main(new String[] {"--batch", defaultConfPath,
+                                       in.getPath(), out.getPath()})
+                    .process();
+                fail("bad file not reported");
+            } catch (EnigmaException excp) {
+                assertEquals("2 of 4 files failed", excp.getMessage());
+            }
+            assertEquals(encoding, readFile(new File(out, "a.in")));
+            assertEquals(encoding, readFile(new File(out, "d.in")));
+            try {
+                new Main(new String[] {"--batch", defaultConfPath,
+                                       in.getPath(), in.getPath() + "/."});
+                fail("source directory used as output");
+            } catch (EnigmaException excp) {
+                assertEquals(readFile(new File(riptideEncInPath)),
+                             readFile(new File(in, "a.in")));
+            }
+
+            writeFile(manifest, new File(in, "a.in") + " "
+                      + new File(out, "e.out") + "\n\n");
+            new Main(new String[] {"--batch", defaultConfPath,
+                                   manifest.getPath()}).process();
+            assertEquals(encoding, readFile(new File(out, "e.out")));
+        } finally {
+            for (File dir : new File[] {in, out}) {
+                for (File file : dir.listFiles()) {
+                    file.delete();
+                }
+                dir.delete();
+            }
+            manifest.delete();
+        }
+    }
+
+    @Test
+    public void checkCompressed() throws IOException {
+        File in = File.createTempFile("enigma", ".in.gz");
+        File out = File.createTempFile("enigma", ".out.gz");
+        File plain = File.createTempFile("enigma", ".out");
+        String encoding = String.join("\n", riptideEncoding) + "\n";
+        try {
+            try (OutputStream gz =
+                 new GZIPOutputStream(new FileOutputStream(in))) {
+                gz.write(Files.readAllBytes(new File(riptideEncInPath)
+                                            .toPath()));
+            }
+            new Main(new String[] {defaultConfPath, in.getPath(),
+                                   out.getPath()}).process();
+            try (InputStream gz =
+                 new GZIPInputStream(new FileInputStream(out))) {
+                assertEquals(encoding,
+                             new String(gz.readAllBytes(),
+                                        Charset.defaultCharset()));
+            }
+            new Main(new String[] {defaultConfPath, in.getPath(),
+                                   plain.getPath()}).process();
+            assertEquals(encoding, readFile(plain));
+        } finally {
+            in.delete();
+            out.delete();
+            plain.delete();
+        }
+    }
+
+    /** Replace the contents of FILE by TEXT. */
+    private static void writeFile(File file, String text) throws IOException {
+        Files.write(file.toPath(), text.getBytes(Charset.defaultCharset()));
+    }
+
+    /** Return the contents of FILE. */
+    private static String readFile(File file) throws IOException {
+        return new String(Files.readAllBytes(file.toPath()),
+                          Charset.defaultCharset());
+    }
 }
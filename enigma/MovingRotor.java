@@ -16,6 +16,9 @@ class MovingRotor extends Rotor {
         super(name, perm);
         checkNotches(notches);
         _notches = notches;
+        _atNotch = new boolean[size()];
+        notches.codePoints()
+            .forEach(notch -> _atNotch[alphabet().toInt(notch)] = true);
     }
 
     @Override
@@ -23,35 +26,43 @@ class MovingRotor extends Rotor {
         return true;
     }
 
+    @Override
+    String notches() {
+        return _notches;
+    }
+
     @Override
     boolean atNotch() {
-        boolean result = false;
-        for (int i = 0; i < _notches.length(); i += 1) {
-            char notch = _notches.charAt(i);
-            if (setting() == alphabet().toInt(notch)) {
-                result = true;
-            }
-        }
-        return result;
+        return _atNotch[setting()];
     }
 
     @Override
     void advance() {
-        int nextPosn = (setting() + 1) % size();
-        set(nextPosn);
+        int nextPosn = setting() + 1;
+        setTrusted(nextPosn == size() ? 0 : nextPosn);
+    }
+
+    @Override
+    Rotor copy() {
+        return new MovingRotor(name(), permutation(), _notches);
     }
 
     /** Throws an EnigmaException if a character in
      *  NOTCHES is not in the rotor's alphabet. */
     private void checkNotches(String notches) {
-        for (int i = 0; i < notches.length(); i += 1) {
-            char notch = notches.charAt(i);
+        for (int i = 0; i < notches.length(); ) {
+            int notch = notches.codePointAt(i);
             if (!alphabet().contains(notch)) {
-                throw error(notch + " must be in the permutation's alphabet.");
+                throw error(Alphabet.show(notch)
+                            + " must be in the permutation's alphabet.");
             }
+            i += Character.charCount(notch);
         }
     }
 
     /** The notches of this moving rotor. */
     private String _notches;
+
+    /** Entry K is true iff this rotor has a notch at setting K. */
+    private final boolean[] _atNotch;
 }
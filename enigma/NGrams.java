@@ -0,0 +1,393 @@
+package enigma;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Scanner;
+
+import static enigma.EnigmaException.*;
+
+/** A table of n-gram log-probabilities over an alphabet, used to score
+ *  candidate decryptions. The n-gram whose characters have indices
+ *  C1, ..., Cn in the alphabet is stored at index
+ *  C1 * size^(n-1) + ... + Cn, so that a text can be scored with a rolling
+ *  index and one table lookup per character.
+ *
+ *  Tables may be read from text files of counts, built from a plaintext
+ *  corpus, or written to and memory-mapped from a compact binary file.
+ *  The binary file consists of the int MAGIC, the int n, the int size of
+ *  the alphabet, the code points of the characters of the alphabet (an int
+ *  each), and then the size^n float log-probabilities, all in
+ *  little-endian order. Alphabets may include supplementary characters.
+ *  @author Henry Chiong
+ */
+class NGrams {
+
+    /** Read, build, or convert n-gram tables, as specified by ARGS.
+     *  "build CONFIG CORPUS N OUT" counts the N-grams of the text file
+     *  CORPUS over the alphabet of configuration file CONFIG and writes them
+     *  to binary file OUT. "convert CONFIG COUNTS OUT" converts the text
+     *  file of counts COUNTS to binary file OUT. Exits with code 1 on
+     *  errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length == 5 && args[0].equals("build")) {
+                Alphabet alphabet = Main.readConfig(args[1]).alphabet();
+                int n = Integer.parseInt(args[3]);
+                try (Reader corpus = new InputStreamReader(
+                        new FileInputStream(args[2]),
+                        StandardCharsets.UTF_8)) {
+                    build(corpus, alphabet, n).write(args[4]);
+                }
+            } else if (args.length == 4 && args[0].equals("convert")) {
+                Alphabet alphabet = Main.readConfig(args[1]).alphabet();
+                read(args[2], alphabet).write(args[3]);
+            } else {
+                throw error("Usage: build CONFIG CORPUS N OUT"
+                            + " | convert CONFIG COUNTS OUT");
+            }
+            return;
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad n-gram length%n");
+        } catch (IOException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A table of N-grams over ALPHABET whose log-probabilities are
+     *  LOGPROBS, indexed as described above. */
+    NGrams(Alphabet alphabet, int n, float[] logProbs) {
+        this(alphabet, n, FloatBuffer.wrap(logProbs));
+    }
+
+    /** A table of N-grams over ALPHABET whose log-probabilities are
+     *  the contents of LOGPROBS, indexed as described above. */
+    NGrams(Alphabet alphabet, int n, FloatBuffer logProbs) {
+        if (n < 1 || logProbs.capacity() != tableSize(alphabet.size(), n)) {
+            throw error("N-gram table does not match the alphabet.");
+        }
+        _alphabet = alphabet;
+        _n = n;
+        _logProbs = logProbs;
+        _modulus = logProbs.capacity() / alphabet.size();
+    }
+
+    /** Return the n-gram table in the file named NAME over ALPHABET, which
+     *  is memory-mapped if it is a binary table and read as for read
+     *  otherwise. */
+    static NGrams load(String name, Alphabet alphabet) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            ByteBuffer magic = ByteBuffer.allocate(4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(magic, 0);
+            if (magic.position() == 4 && magic.getInt(0) == MAGIC) {
+                return map(name, alphabet);
+            }
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+        return read(name, alphabet);
+    }
+
+    /** Return the n-gram table in the file named NAME, whose lines each
+     *  contain an n-gram of characters of ALPHABET followed by its count,
+     *  as in "TION 13168375". All n-grams must have the same length. The
+     *  n-grams that do not appear are given a small nonzero probability. */
+    static NGrams read(String name, Alphabet alphabet) {
+        try (Scanner input = new Scanner(new File(name))) {
+            int n = 0;
+            long[] counts = null;
+            long total = 0;
+            while (input.hasNext()) {
+                String gram = input.next();
+                if (!input.hasNextLong()) {
+                    throw error("N-gram %s must be followed by a count.",
+                                gram);
+                }
+                long count = input.nextLong();
+                int length = gram.codePointCount(0, gram.length());
+                if (counts == null) {
+                    n = length;
+                    counts = new long[tableSize(alphabet.size(), n)];
+                } else if (length != n) {
+                    throw error("N-gram %s must have length %d.", gram, n);
+                }
+                counts[index(gram, alphabet)] += count;
+                total += count;
+            }
+            if (counts == null) {
+                throw error("N-gram file %s is empty.", name);
+            }
+            return new NGrams(alphabet, n, logProbs(counts, total));
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Return the table of N-grams over ALPHABET counted in one pass over
+     *  CORPUS. Characters not in ALPHABET are skipped, except that a
+     *  lower-case letter counts as its upper-case form when only that form
+     *  is in ALPHABET. */
+    static NGrams build(Reader corpus, Alphabet alphabet, int n)
+        throws IOException {
+        int size = alphabet.size();
+        long[] counts = new long[tableSize(size, n)];
+        int modulus = counts.length / size;
+        int[] indices = indexTable(alphabet);
+        char[] buf = new char[BUFFER_SIZE];
+        long total = 0;
+        long seen = 0;
+        int index = 0;
+        char high = 0;
+        for (int len = corpus.read(buf); len >= 0; len = corpus.read(buf)) {
+            for (int i = 0; i < len; i += 1) {
+                char ch = buf[i];
+                if (Character.isHighSurrogate(ch)) {
+                    high = ch;
+                    continue;
+                }
+                int c = high != 0 && Character.isLowSurrogate(ch)
+                    ? Character.toCodePoint(high, ch) : ch;
+                high = 0;
+                int k = c < indices.length ? indices[c] : -1;
+                if (k < 0) {
+                    continue;
+                }
+                index = (index % modulus) * size + k;
+                seen += 1;
+                if (seen >= n) {
+                    counts[index] += 1;
+                    total += 1;
+                }
+            }
+        }
+        if (total == 0) {
+            throw error("Corpus contains no %d-grams.", n);
+        }
+        return new NGrams(alphabet, n, logProbs(counts, total));
+    }
+
+    /** Return the binary n-gram table in the file named NAME, which must
+     *  be over ALPHABET, mapped into memory rather than read. */
+    static NGrams map(String name, Alphabet alphabet) {
+        try (FileChannel channel = FileChannel.open(Paths.get(name))) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_INTS * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_INTS * 4
+                || header.getInt() != MAGIC) {
+                throw error("%s is not a binary n-gram table.", name);
+            }
+            int n = header.getInt();
+            int size = header.getInt();
+            if (size != alphabet.size()) {
+                throw error("N-gram table does not match the alphabet.");
+            }
+            int offset = dataOffset(size);
+            ByteBuffer chars = ByteBuffer.allocate(offset - HEADER_INTS * 4)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            channel.read(chars, HEADER_INTS * 4);
+            for (int k = 0; k < size; k += 1) {
+                if (chars.getInt(4 * k) != alphabet.toCodePoint(k)) {
+                    throw error("N-gram table does not match the alphabet.");
+                }
+            }
+            long length = 4L * tableSize(size, n);
+            if (channel.size() != offset + length) {
+                throw error("%s is truncated.", name);
+            }
+            FloatBuffer logProbs =
+                channel.map(FileChannel.MapMode.READ_ONLY, offset, length)
+                .order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+            return new NGrams(alphabet, n, logProbs);
+        } catch (IOException excp) {
+            throw error("could not open %s", name);
+        }
+    }
+
+    /** Write me to the file named NAME in the binary format that map
+     *  reads. */
+    void write(String name) {
+        int size = _alphabet.size();
+        ByteBuffer header = ByteBuffer.allocate(dataOffset(size))
+            .order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(_n).putInt(size);
+        for (int k = 0; k < size; k += 1) {
+            header.putInt(_alphabet.toCodePoint(k));
+        }
+        header.clear();
+        try (FileChannel channel = FileChannel.open(Paths.get(name),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writeFully(channel, header);
+            ByteBuffer buf = ByteBuffer.allocate(BUFFER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            for (int k = 0; k < _logProbs.capacity(); k += 1) {
+                if (buf.remaining() < 4) {
+                    buf.flip();
+                    writeFully(channel, buf);
+                    buf.clear();
+                }
+                buf.putFloat(_logProbs.get(k));
+            }
+            buf.flip();
+            writeFully(channel, buf);
+        } catch (IOException excp) {
+            throw error("could not write %s", name);
+        }
+    }
+
+    /** Return my alphabet. */
+    Alphabet alphabet() {
+        return _alphabet;
+    }
+
+    /** Return the length of my n-grams. */
+    int n() {
+        return _n;
+    }
+
+    /** Return the log-probability of the n-gram at INDEX. */
+    float logProb(int index) {
+        return _logProbs.get(index);
+    }
+
+    /** Return the sum of the log-probabilities of all the n-grams in the
+     *  first LEN character indices of TEXT. */
+    double score(int[] text, int len) {
+        return score(text, 0, len);
+    }
+
+    /** Return the sum of the log-probabilities of the n-grams that start
+     *  at positions FROM..TO-n() of TEXT. */
+    double score(int[] text, int from, int to) {
+        FloatBuffer logProbs = _logProbs;
+        int size = _alphabet.size();
+        double result = 0;
+        int index = 0;
+        for (int i = from; i < to; i += 1) {
+            index = (index % _modulus) * size + text[i];
+            if (i - from >= _n - 1) {
+                result += logProbs.get(index);
+            }
+        }
+        return result;
+    }
+
+    /** Return the index of the n-gram GRAM of characters of ALPHABET. */
+    static int index(String gram, Alphabet alphabet) {
+        int result = 0;
+        for (int c : gram.codePoints().toArray()) {
+            result = result * alphabet.size() + alphabet.toInt(c);
+        }
+        return result;
+    }
+
+    /** Return the number of N-grams over an alphabet of SIZE
+     *  characters. */
+    static int tableSize(int size, int n) {
+        long result = 1;
+        for (int i = 0; i < n; i += 1) {
+            result *= size;
+            if (result > MAX_TABLE_SIZE) {
+                throw error("Too many %d-grams for an alphabet of size %d.",
+                            n, size);
+            }
+        }
+        return (int) result;
+    }
+
+    /** Return the log-probabilities corresponding to COUNTS, whose sum is
+     *  TOTAL, giving n-grams with no count a floor probability. */
+    static float[] logProbs(long[] counts, long total) {
+        float[] result = new float[counts.length];
+        float floor = (float) Math.log10(FLOOR_COUNT / total);
+        Arrays.fill(result, floor);
+        for (int k = 0; k < counts.length; k += 1) {
+            if (counts[k] > 0) {
+                result[k] = (float) Math.log10((double) counts[k] / total);
+            }
+        }
+        return result;
+    }
+
+    /** Return the offset in a binary table file of the log-probabilities
+     *  of n-grams over an alphabet of SIZE characters. */
+    private static int dataOffset(int size) {
+        return HEADER_INTS * 4 + 4 * size;
+    }
+
+    /** Return a table mapping each code point up to the largest one in
+     *  ALPHABET to its index in ALPHABET, or to -1 if it is not in ALPHABET.
+     *  Lower-case letters whose upper-case forms alone are in ALPHABET map
+     *  to the index of the upper-case form. */
+    private static int[] indexTable(Alphabet alphabet) {
+        int max = -1;
+        for (int k = 0; k < alphabet.size(); k += 1) {
+            int c = alphabet.toCodePoint(k);
+            max = Math.max(max, Math.max(c, Character.toLowerCase(c)));
+        }
+        int[] result = new int[max + 1];
+        Arrays.fill(result, -1);
+        for (int k = 0; k < alphabet.size(); k += 1) {
+            int lower = Character.toLowerCase(alphabet.toCodePoint(k));
+            if (!alphabet.contains(lower)) {
+                result[lower] = k;
+            }
+        }
+        for (int k = 0; k < alphabet.size(); k += 1) {
+            result[alphabet.toCodePoint(k)] = k;
+        }
+        return result;
+    }
+
+    /** Write all the remaining bytes of BUF to CHANNEL. */
+    private static void writeFully(FileChannel channel, ByteBuffer buf)
+        throws IOException {
+        while (buf.hasRemaining()) {
+            channel.write(buf);
+        }
+    }
+
+    /** The first int of a binary n-gram table ("NGR2"). */
+    static final int MAGIC = 0x3252474E;
+
+    /** The largest n-gram table I handle. */
+    static final int MAX_TABLE_SIZE = 1 << 28;
+
+    /** Number of ints before the alphabet in a binary table. */
+    private static final int HEADER_INTS = 3;
+
+    /** Size of the buffers used for reading and writing. */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /** The count assumed for n-grams that never occur. */
+    private static final double FLOOR_COUNT = 0.01;
+
+    /** Alphabet of my n-grams. */
+    private final Alphabet _alphabet;
+
+    /** Length of my n-grams. */
+    private final int _n;
+
+    /** Log-probabilities of my n-grams. */
+    private final FloatBuffer _logProbs;
+
+    /** size^(n-1), used to drop the oldest character of a rolling
+     *  index. */
+    private final int _modulus;
+}
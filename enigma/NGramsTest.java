@@ -0,0 +1,119 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the NGrams class.
+ *  @author Henry Chiong
+ */
+public class NGramsTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testIndex() {
+        Alphabet alpha = new Alphabet("ABC");
+        assertEquals(0, NGrams.index("AA", alpha));
+        assertEquals(5, NGrams.index("BC", alpha));
+        assertEquals(26 * 26 + 1, NGrams.index("BAB", UPPER));
+    }
+
+    @Test
+    public void testTableSize() {
+        assertEquals(26 * 26 * 26 * 26, NGrams.tableSize(26, 4));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testTableTooLarge() {
+        NGrams.tableSize(26, 7);
+    }
+
+    @Test
+    public void testScore() {
+        Alphabet alpha = new Alphabet("AB");
+        float[] logProbs = {-1, -2, -3, -4};
+        NGrams model = new NGrams(alpha, 2, logProbs);
+        assertEquals(2, model.n());
+        int[] text = {0, 1, 1, 0};
+        assertEquals(-2 - 4 - 3, model.score(text, text.length), 1e-6);
+        assertEquals(-4, model.score(text, 1, 3), 1e-6);
+        assertEquals(0, model.score(text, 1), 1e-6);
+    }
+
+    @Test
+    public void testLogProbs() {
+        long[] counts = {1, 0, 3, 0};
+        float[] logProbs = NGrams.logProbs(counts, 4);
+        assertEquals(Math.log10(0.25), logProbs[0], 1e-6);
+        assertEquals(Math.log10(0.75), logProbs[2], 1e-6);
+        assertTrue(logProbs[1] < logProbs[0]);
+    }
+
+    @Test
+    public void testBuild() throws IOException {
+        NGrams model = NGrams.build(new StringReader("Ab, aB\nBA!"),
+                                    new Alphabet("AB"), 2);
+        assertEquals(Math.log10(2.0 / 5), model.logProb(1), 1e-6);
+        assertEquals(Math.log10(2.0 / 5), model.logProb(2), 1e-6);
+        assertEquals(Math.log10(1.0 / 5), model.logProb(3), 1e-6);
+        assertTrue(model.logProb(0) < model.logProb(3));
+    }
+
+    @Test
+    public void testWriteAndMap() throws IOException {
+        NGrams model = NGrams.build(new StringReader(
+                "THE QUICK BROWN FOX JUMPS OVER THE LAZY DOG"), UPPER, 3);
+        File file = File.createTempFile("ngrams", ".bin");
+        file.deleteOnExit();
+        model.write(file.getPath());
+        NGrams mapped = NGrams.load(file.getPath(), UPPER);
+        assertEquals(3, mapped.n());
+        for (int k = 0; k < 26 * 26 * 26; k += 1) {
+            assertEquals(model.logProb(k), mapped.logProb(k), 0);
+        }
+    }
+
+    @Test
+    public void testSupplementary() throws IOException {
+        Alphabet alpha = new Alphabet("A\uD801\uDC00");
+        assertEquals(1, NGrams.index("A\uD801\uDC00", alpha));
+        NGrams model = NGrams.build(new StringReader(
+            "\uD801\uDC00\uD801\uDC28A a"), alpha, 2);
+        assertEquals(Math.log10(1.0 / 3), model.logProb(3), 1e-6);
+        File file = File.createTempFile("ngrams", ".bin");
+        file.deleteOnExit();
+        model.write(file.getPath());
+        NGrams mapped = NGrams.load(file.getPath(), alpha);
+        for (int k = 0; k < 4; k += 1) {
+            assertEquals(model.logProb(k), mapped.logProb(k), 0);
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testMapWrongAlphabet() throws IOException {
+        NGrams model = NGrams.build(new StringReader("ABBA"),
+                                    new Alphabet("AB"), 2);
+        File file = File.createTempFile("ngrams", ".bin");
+        file.deleteOnExit();
+        model.write(file.getPath());
+        NGrams.map(file.getPath(), new Alphabet("BA"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testWrongTableSize() {
+        new NGrams(new Alphabet("AB"), 2, new float[3]);
+    }
+}
@@ -1,5 +1,8 @@
 package enigma;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+
 import static enigma.EnigmaException.*;
 import static java.lang.Character.*;
 
@@ -18,6 +21,42 @@ class Permutation {
         checkCycles(cycles, alphabet);
         _alphabet = alphabet;
         _cycles = initCycles(cycles);
+        initTables();
+    }
+
+    /** The permutation of ALPHABET that maps index K to FORWARD[K], whose
+     *  cycles of one character are left implicit. FORWARD must be a
+     *  permutation of 0 .. ALPHABET.size()-1. */
+    Permutation(int[] forward, Alphabet alphabet) {
+        if (forward.length != alphabet.size()) {
+            throw error("Permutation must match the alphabet.");
+        }
+        _alphabet = alphabet;
+        _forward = forward.clone();
+        _backward = new int[forward.length];
+        _cycleOf = new int[forward.length];
+        Arrays.fill(_backward, -1);
+        for (int k = 0; k < forward.length; k += 1) {
+            int e = forward[k];
+            if (e < 0 || e >= forward.length || _backward[e] >= 0) {
+                throw error("Mapping must be a permutation.");
+            }
+            _backward[e] = k;
+        }
+        ArrayList<String> cycles = new ArrayList<>();
+        Arrays.fill(_cycleOf, -1);
+        StringBuilder cycle = new StringBuilder();
+        for (int k = 0; k < forward.length; k += 1) {
+            if (_cycleOf[k] < 0 && forward[k] != k) {
+                cycle.setLength(0);
+                for (int j = k; _cycleOf[j] < 0; j = forward[j]) {
+                    _cycleOf[j] = cycles.size();
+                    cycle.appendCodePoint(alphabet.toCodePoint(j));
+                }
+                cycles.add(cycle.toString());
+            }
+        }
+        _cycles = cycles.toArray(new String[0]);
     }
 
     /** Return the value of P modulo SIZE. */
@@ -37,62 +76,37 @@ class Permutation {
     /** Return the result of applying this permutation to P modulo the
      *  alphabet size. */
     int permute(int p) {
-        int index = wrap(p, size());
-        String cycle = getCycle(index);
-        int result = index;
-
-        if (!cycle.equals("")) {
-            char ch = _alphabet.toChar(index);
-            int chIndex = cycle.indexOf(ch);
-            int desiredIndex = wrap(chIndex + 1, cycle.length());
-            char desiredChar = cycle.charAt(desiredIndex);
-            result = _alphabet.toInt(desiredChar);
-        }
-        return result;
+        return _forward[wrap(p, size())];
     }
 
     /** Return the result of applying the inverse of this permutation
      *  to  C modulo the alphabet size. */
     int invert(int c) {
-        int index = wrap(c, size());
-        String cycle = getCycle(index);
-        int result = index;
+        return _backward[wrap(c, size())];
+    }
 
-        if (!cycle.equals("")) {
-            char ch = _alphabet.toChar(index);
-            int chIndex = cycle.indexOf(ch);
-            int desiredIndex = wrap(chIndex - 1, cycle.length());
-            char desiredChar = cycle.charAt(desiredIndex);
-            result = _alphabet.toInt(desiredChar);
-        }
-        return result;
+    /** Return the result of applying this permutation to P, which must be
+     *  in the range 0..size()-1. Unlike permute, this does no wrapping. */
+    int permuteIndex(int p) {
+        return _forward[p];
+    }
+
+    /** Return the result of applying the inverse of this permutation to
+     *  C, which must be in the range 0..size()-1. Unlike invert, this does
+     *  no wrapping. */
+    int invertIndex(int c) {
+        return _backward[c];
     }
 
     /** Return the result of applying this permutation to the index of P
      *  in ALPHABET, and converting the result to a character of ALPHABET. */
     char permute(char p) {
-        String cycle = getCycle(p);
-        char result = p;
-
-        if (!cycle.equals("")) {
-            int pIndex = cycle.indexOf(p);
-            int desiredIndex = wrap(pIndex + 1, cycle.length());
-            result = cycle.charAt(desiredIndex);
-        }
-        return result;
+        return _alphabet.toChar(_forward[_alphabet.toInt(p)]);
     }
 
     /** Return the result of applying the inverse of this permutation to C. */
     char invert(char c) {
-        String cycle = getCycle(c);
-        char result = c;
-
-        if (!cycle.equals("")) {
-            int cIndex = cycle.indexOf(c);
-            int desiredIndex = wrap(cIndex - 1, cycle.length());
-            result = cycle.charAt(desiredIndex);
-        }
-        return result;
+        return _alphabet.toChar(_backward[_alphabet.toInt(c)]);
     }
 
     /** Return the alphabet used to initialize this Permutation. */
@@ -103,16 +117,89 @@ class Permutation {
     /** Return true iff this permutation is a derangement (i.e., a
      *  permutation for which no value maps to itself). */
     boolean derangement() {
-        boolean result = true;
         for (int i = 0; i < size(); i += 1) {
-            String cycle = getCycle(i);
-            if (cycle.equals("") || cycle.length() == 1) {
-                result = false;
+            if (_forward[i] == i) {
+                return false;
             }
         }
+        return true;
+    }
+
+    /** Return my cycles in a normal form, so that two permutations of
+     *  equal alphabets are equal iff their normal forms are: cycles of
+     *  one character are left out, each cycle starts with its character
+     *  that comes first in the alphabet, and the cycles are in the order
+     *  of those characters, with no whitespace. */
+    String normalized() {
+        StringBuilder result = new StringBuilder();
+        boolean[] seen = new boolean[size()];
+        for (int k = 0; k < size(); k += 1) {
+            if (!seen[k] && _forward[k] != k) {
+                result.append('(');
+                for (int j = k; !seen[j]; j = _forward[j]) {
+                    seen[j] = true;
+                    result.appendCodePoint(_alphabet.toCodePoint(j));
+                }
+                result.append(')');
+            }
+        }
+        return result.toString();
+    }
+
+    /** Return the lengths of my cycles in decreasing order, counting each
+     *  character that is in no cycle as a cycle of length 1. */
+    int[] cycleStructure() {
+        int[] result = new int[size()];
+        int count = 0;
+        int covered = 0;
+        for (String cycle : _cycles) {
+            int len = cycle.codePointCount(0, cycle.length());
+            result[count] = len;
+            covered += len;
+            count += 1;
+        }
+        while (covered < size()) {
+            result[count] = 1;
+            covered += 1;
+            count += 1;
+        }
+        result = Arrays.copyOf(result, count);
+        sortDecreasing(result, count);
         return result;
     }
 
+    /** Store in LENGTHS the lengths of the cycles of the permutation that
+     *  maps K to MAP[K] for 0 <= K < MAP.length, in decreasing order, and
+     *  return their number. SEEN is scratch space at least as long as
+     *  MAP. */
+    static int cycleStructure(int[] map, boolean[] seen, int[] lengths) {
+        int count = 0;
+        Arrays.fill(seen, 0, map.length, false);
+        for (int k = 0; k < map.length; k += 1) {
+            if (!seen[k]) {
+                int len = 0;
+                for (int j = k; !seen[j]; j = map[j]) {
+                    seen[j] = true;
+                    len += 1;
+                }
+                lengths[count] = len;
+                count += 1;
+            }
+        }
+        sortDecreasing(lengths, count);
+        return count;
+    }
+
+    /** Sort the first COUNT entries of A into decreasing order. */
+    private static void sortDecreasing(int[] a, int count) {
+        Arrays.sort(a, 0, count);
+        for (int i = 0, j = count - 1; i < j; i += 1, j -= 1) {
+            int x = a[i];
+            a[i] = a[j];
+            a[j] = x;
+        }
+    }
+
     /** Throws an EnigmaException if CYCLES and ALPHABET form an invalid
      *  permutation, which can be due to an empty cycle (), opening a
      *  parenthesis before closing a prior open parenthesis, using a close
@@ -125,9 +212,12 @@ class Permutation {
 
         boolean open = false;
         int openParen = 0, closeParen = 0;
+        boolean[] seen = new boolean[alphabet.size()];
 
-        for (int i = 0; i < cycles.length(); i += 1) {
-            char c1 = cycles.charAt(i);
+        int i = 0;
+        while (i < cycles.length()) {
+            int c1 = cycles.codePointAt(i);
+            i += charCount(c1);
             if (!isValidChar(c1)) {
                 if (c1 == '(') {
                     if (open) {
@@ -150,15 +240,18 @@ class Permutation {
                 }
             } else {
                 if (!alphabet.contains(c1)) {
-                    throw error(c1 + " in cycles must be in the alphabet.");
+                    throw error(Alphabet.show(c1)
+                                + " in cycles must be in the alphabet.");
                 } else if (!open) {
-                    throw error(c1 + " must be inside parentheses.");
+                    throw error(Alphabet.show(c1)
+                                + " must be inside parentheses.");
                 }
-            }
-
-            for (int j = i + 1; j < cycles.length(); j += 1) {
-                char c2 = cycles.charAt(j);
-                checkEqualChars(c1, c2);
+                int index = alphabet.toInt(c1);
+                if (seen[index]) {
+                    throw error(Alphabet.show(c1)
+                                + " is repeated in cycles.");
+                }
+                seen[index] = true;
             }
         }
         if (openParen != closeParen) {
@@ -174,17 +267,9 @@ class Permutation {
         }
     }
 
-    /** Throws an EnigmaException if C1 is the same
-     *  character as C2 and C2 is a valid character. */
-    private static void checkEqualChars(char c1, char c2) {
-        if (c1 == c2 && isValidChar(c2)) {
-            throw error(c1 + " is repeated in cycles.");
-        }
-    }
-
     /** Returns true if C is not a whitespace character,
      *  '*', '(', or ')'. Otherwise false. */
-    private static boolean isValidChar(char c) {
+    private static boolean isValidChar(int c) {
         return !isWhitespace(c) && c != '*' && c != '(' && c != ')';
     }
 
@@ -192,17 +277,8 @@ class Permutation {
      *  given by CYCLES. Each String in this array represents
      *  the characters in the corresponding cycle. */
     private static String[] initCycles(String cycles) {
-        String[] result;
-        int len = 0;
-        for (int i = 0; i < cycles.length(); i += 1) {
-            char c = cycles.charAt(i);
-            if (c == '(') {
-                len += 1;
-            }
-        }
-        result = new String[len];
-
-        int currIndex = 0;
+        ArrayList<String> result = new ArrayList<>();
+        StringBuilder cycle = new StringBuilder();
         for (int i = 0; i < cycles.length(); i += 1) {
             char c = cycles.charAt(i);
             if (Character.isWhitespace(c)) {
@@ -210,14 +286,37 @@ class Permutation {
             }
 
             if (c == '(') {
-                result[currIndex] = "";
+                cycle.setLength(0);
             } else if (c == ')') {
-                currIndex += 1;
+                result.add(cycle.toString());
             } else {
-                result[currIndex] += c;
+                cycle.append(c);
+            }
+        }
+        return result.toArray(new String[0]);
+    }
+
+    /** Fill in _forward, _backward, and _cycleOf from _cycles. */
+    private void initTables() {
+        int size = size();
+        _forward = new int[size];
+        _backward = new int[size];
+        _cycleOf = new int[size];
+        for (int k = 0; k < size; k += 1) {
+            _forward[k] = k;
+            _backward[k] = k;
+            _cycleOf[k] = -1;
+        }
+        for (int i = 0; i < _cycles.length; i += 1) {
+            int[] cycle = _cycles[i].codePoints().toArray();
+            for (int j = 0; j < cycle.length; j += 1) {
+                int from = _alphabet.toInt(cycle[j]);
+                int to = _alphabet.toInt(cycle[(j + 1) % cycle.length]);
+                _forward[from] = to;
+                _backward[to] = from;
+                _cycleOf[from] = i;
             }
         }
-        return result;
     }
 
     /** Return the cycle that contains the character at index
@@ -227,8 +326,7 @@ class Permutation {
             throw error(index
                     + " is an invalid index to access in the alphabet.");
         }
-        char ch = _alphabet.toChar(index);
-        return getCycle(ch);
+        return _cycleOf[index] < 0 ? "" : _cycles[_cycleOf[index]];
     }
 
     /** Return the cycle that contains the character
@@ -237,14 +335,7 @@ class Permutation {
         if (!_alphabet.contains(c)) {
             throw error(c + " must be in the permutation's alphabet.");
         }
-        String result = "";
-        for (int i = 0; i < _cycles.length; i += 1) {
-            String cycle = _cycles[i];
-            if (cycle.indexOf(c) >= 0) {
-                result = cycle;
-            }
-        }
-        return result;
+        return getCycle(_alphabet.toInt(c));
     }
 
     /** Alphabet of this permutation. */
@@ -252,4 +343,15 @@ class Permutation {
 
     /** String array of cycles of this permutation. */
     private String[] _cycles;
+
+    /** Entry K is the result of applying this permutation to K. */
+    private int[] _forward;
+
+    /** Entry K is the result of applying the inverse of this permutation
+     *  to K. */
+    private int[] _backward;
+
+    /** Entry K is the index in _cycles of the cycle containing K, or -1 if
+     *  K is in no cycle. */
+    private int[] _cycleOf;
 }
@@ -0,0 +1,127 @@
+package enigma;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static enigma.EnigmaException.*;
+
+/** A pool of Permutations, so that every permutation with the same
+ *  wiring over equal alphabets is represented by one shared object, and
+ *  a cycle string seen before costs a lookup rather than a new
+ *  Permutation and its tables. Permutations are immutable, so sharing
+ *  them is safe.
+ *
+ *  Permutations are found first by their cycle strings exactly as given,
+ *  and failing that by their normalized cycles (see
+ *  Permutation.normalized), so that "(BA) (DC)" and "(AB)(CD)" share one
+ *  Permutation. Each of the two tables keeps at most a fixed number of
+ *  entries, dropping the least recently used.
+ *  @author Henry Chiong
+ */
+final class PermutationPool {
+
+    /** A pool keeping at most CAPACITY cycle strings of each kind. */
+    PermutationPool(int capacity) {
+        if (capacity <= 0) {
+            throw error("Pool capacity must be positive.");
+        }
+        _given = new Bounded(capacity);
+        _normal = new Bounded(capacity);
+    }
+
+    /** Return the permutation of ALPHABET given by CYCLES, as for
+     *  new Permutation(CYCLES, ALPHABET), shared with every other
+     *  permutation in this pool having the same wiring. */
+    synchronized Permutation get(String cycles, Alphabet alphabet) {
+        Key given = new Key(cycles, alphabet);
+        Permutation result = _given.get(given);
+        if (result == null) {
+            result = new Permutation(cycles, alphabet);
+            Key normal = new Key(result.normalized(), alphabet);
+            Permutation shared = _normal.get(normal);
+            if (shared == null) {
+                _normal.put(normal, result);
+            } else {
+                result = shared;
+            }
+            _given.put(given, result);
+        }
+        return result;
+    }
+
+    /** Return the permutation of ALPHABET mapping index K to FORWARD[K],
+     *  as for new Permutation(FORWARD, ALPHABET), shared with every other
+     *  permutation in this pool having the same wiring. */
+    synchronized Permutation get(int[] forward, Alphabet alphabet) {
+        Permutation result = new Permutation(forward, alphabet);
+        Key normal = new Key(result.normalized(), alphabet);
+        Permutation shared = _normal.get(normal);
+        if (shared != null) {
+            return shared;
+        }
+        _normal.put(normal, result);
+        return result;
+    }
+
+    /** Return the number of distinct wirings held. */
+    synchronized int size() {
+        return _normal.size();
+    }
+
+    /** A cycle string and the alphabet of its characters. */
+    private static final class Key {
+
+        /** The key for CYCLES over ALPHABET. */
+        Key(String cycles, Alphabet alphabet) {
+            _cycles = cycles;
+            _alphabet = alphabet;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return _cycles.equals(other._cycles)
+                && _alphabet.equals(other._alphabet);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * _cycles.hashCode() + _alphabet.hashCode();
+        }
+
+        /** The cycle string. */
+        private final String _cycles;
+
+        /** The alphabet of _cycles. */
+        private final Alphabet _alphabet;
+    }
+
+    /** A map that drops its least recently used entry when it grows past
+     *  a fixed size. */
+    private static final class Bounded
+        extends LinkedHashMap<Key, Permutation> {
+
+        /** A map holding at most CAPACITY entries. */
+        Bounded(int capacity) {
+            super(16, 0.75f, true);
+            _capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Permutation> e) {
+            return size() > _capacity;
+        }
+
+        /** Largest number of entries held. */
+        private final int _capacity;
+    }
+
+    /** Permutations by the cycle strings given for them. */
+    private final Bounded _given;
+
+    /** Permutations by their normalized cycle strings. */
+    private final Bounded _normal;
+}
@@ -0,0 +1,58 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the PermutationPool class.
+ *  @author Henry Chiong
+ */
+public class PermutationPoolTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSharing() {
+        PermutationPool pool = new PermutationPool(8);
+        Permutation p = pool.get("(AQ) (EX)", UPPER);
+        assertSame(p, pool.get("(AQ) (EX)", UPPER));
+        assertSame(p, pool.get("(XE)(QA)", new Alphabet()));
+        assertNotSame(p, pool.get("(AQ) (EY)", UPPER));
+        assertNotSame(p, pool.get("(AQ) (EX)", new Alphabet("AQEXZ")));
+        assertEquals(3, pool.size());
+        assertEquals('Q', p.permute('A'));
+    }
+
+    @Test
+    public void testRotorWirings() {
+        PermutationPool pool = new PermutationPool(8);
+        Permutation p = pool.get(NAVALA.get("I"), UPPER);
+        assertSame(p, pool.get(NAVALA.get("I").replace(" ", ""), UPPER));
+    }
+
+    @Test
+    public void testBounded() {
+        PermutationPool pool = new PermutationPool(4);
+        Permutation first = pool.get("(AB)", UPPER);
+        for (int k = 2; k < 26; k += 1) {
+            pool.get("(A" + UPPER.toChar(k) + ")", UPPER);
+            assertTrue(pool.size() <= 4);
+        }
+        Permutation again = pool.get("(AB)", UPPER);
+        assertNotSame(first, again);
+        assertEquals(first.normalized(), again.normalized());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadCycles() {
+        new PermutationPool(4).get("(AB", UPPER);
+    }
+}
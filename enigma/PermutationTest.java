@@ -213,6 +213,53 @@ public class PermutationTest {
         Permutation p = new Permutation("(h)", new Alphabet());
     }
 
+    @Test
+    public void testCycleStructure() {
+        Permutation p = new Permutation("(ABC) (DE)", new Alphabet("ABCDEFG"));
+        assertArrayEquals(new int[] {3, 2, 1, 1}, p.cycleStructure());
+        int[] lengths = new int[5];
+        int count = Permutation.cycleStructure(new int[] {1, 0, 2, 4, 3},
+                                               new boolean[5], lengths);
+        assertEquals(3, count);
+        assertArrayEquals(new int[] {2, 2, 1, 0, 0}, lengths);
+    }
+
+    @Test
+    public void testNormalized() {
+        Alphabet a = new Alphabet("ABCDEFG");
+        assertEquals("(AC)(BGD)",
+                     new Permutation(" (DBG) (F) (CA)", a).normalized());
+        assertEquals("", new Permutation("", a).normalized());
+    }
+
+    @Test
+    public void testSupplementaryCycles() {
+        Alphabet a = new Alphabet("AB\uD83D\uDE00C");
+        Permutation p = new Permutation("(A\uD83D\uDE00) (BC)", a);
+        assertEquals(2, p.permute(0));
+        assertEquals(0, p.invert(2));
+        assertEquals(3, p.permute(1));
+        assertEquals("A\uD83D\uDE00", p.getCycle(2));
+        assertArrayEquals(new int[] {2, 2}, p.cycleStructure());
+        assertTrue(p.derangement());
+    }
+
+    @Test
+    public void testLargePermutation() {
+        StringBuilder chars = new StringBuilder();
+        for (int c = 0x4E00; c < 0x4E00 + 20000; c += 1) {
+            chars.append((char) c);
+        }
+        Alphabet a = new Alphabet(chars.toString());
+        Permutation p = new Permutation("(" + chars + ")", a);
+        assertEquals(1, p.permute(0));
+        assertEquals(0, p.permute(19999));
+        assertEquals(19999, p.invert(0));
+        assertTrue(p.derangement());
+        assertEquals(20000, new CompiledRotor(new MovingRotor("I", p, "\u4E00"))
+                     .size());
+    }
+
     @Test(expected = EnigmaException.class)
     public void testNoParenCycle() {
         Permutation p = new Permutation("NOPAREN", new Alphabet());
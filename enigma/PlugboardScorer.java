@@ -0,0 +1,310 @@
+package enigma;
+
+import java.util.Arrays;
+
+import static enigma.EnigmaException.*;
+
+/** Scores the decryptions of a ciphertext under one rotor setting and a
+ *  changing plugboard, for hill-climbing the plugboard. The plugboard must
+ *  always be its own inverse (a set of swapped pairs), so the decryption of
+ *  ciphertext character C at position T is P(core_T(P(C))), where P is the
+ *  plugboard and core_T is the substitution made by the rotors at T.
+ *
+ *  The core substitutions for every position are computed once per rotor
+ *  setting. Changing the plugboard then affects only the positions whose
+ *  ciphertext character, or whose core output, is one of the few
+ *  characters whose plugging changed, so only the n-grams overlapping those
+ *  positions are rescored. Positions are kept in lists indexed by their
+ *  ciphertext character and by their current core output to find them
+ *  quickly.
+ *  @author Henry Chiong
+ */
+final class PlugboardScorer {
+
+    /** A scorer for CIPHERTEXT (as alphabet indices) using the n-gram
+     *  table MODEL. Use setKey before scoring. */
+    PlugboardScorer(int[] ciphertext, NGrams model) {
+        int n = ciphertext.length;
+        _size = model.alphabet().size();
+        _model = model;
+        _ciphertext = ciphertext.clone();
+        _core = new int[n * _size];
+        _mid = new int[n];
+        _plain = new int[n];
+        _plugboard = new int[_size];
+        _midHead = new int[_size];
+        _midNext = new int[n];
+        _midPrev = new int[n];
+        _stamps = new int[n];
+        _windowStamps = new int[n];
+        _affected = new int[n];
+
+        _inputStart = new int[_size + 1];
+        for (int c : _ciphertext) {
+            if (c < 0 || c >= _size) {
+                throw error("Ciphertext must be in the alphabet.");
+            }
+            _inputStart[c + 1] += 1;
+        }
+        for (int x = 0; x < _size; x += 1) {
+            _inputStart[x + 1] += _inputStart[x];
+        }
+        _inputPosns = new int[n];
+        int[] fill = Arrays.copyOf(_inputStart, _size);
+        for (int t = 0; t < n; t += 1) {
+            _inputPosns[fill[_ciphertext[t]]++] = t;
+        }
+    }
+
+    /** Compute the core substitutions of the rotors of KEY, starting from
+     *  positions START, and reset the plugboard to the identity. KEY's own
+     *  plugboard is ignored. */
+    void setKey(CompiledKey key, int[] start) {
+        if (key.size() != _size) {
+            throw error("Key does not match the alphabet.");
+        }
+        CompiledKey core = key.withPlugboard(CompiledKey.identity(_size));
+        int[] posns = start.clone();
+        for (int t = 0; t < _ciphertext.length; t += 1) {
+            core.step(posns);
+            for (int x = 0; x < _size; x += 1) {
+                _core[t * _size + x] = core.convertAt(x, posns);
+            }
+        }
+        for (int x = 0; x < _size; x += 1) {
+            _plugboard[x] = x;
+        }
+        Arrays.fill(_midHead, -1);
+        for (int t = 0; t < _ciphertext.length; t += 1) {
+            _mid[t] = _core[t * _size + _ciphertext[t]];
+            _plain[t] = _mid[t];
+            link(t);
+        }
+        _undoCount = 0;
+        rescore();
+    }
+
+    /** Return the n-gram score of the current decryption. */
+    double score() {
+        return _score;
+    }
+
+    /** Recompute the score of the current decryption from scratch,
+     *  discarding accumulated rounding error, and return it. */
+    double rescore() {
+        _score = _model.score(_plain, _plain.length);
+        return _score;
+    }
+
+    /** Return a copy of the current plugboard. */
+    int[] plugboard() {
+        return _plugboard.clone();
+    }
+
+    /** Return the current decryption. */
+    int[] plaintext() {
+        return _plain.clone();
+    }
+
+    /** Change the plugboard so that A and B are swapped with each other,
+     *  first unplugging them from any other characters, or unplug them if
+     *  they are already swapped with each other. Return the new score. */
+    double swap(int a, int b) {
+        int pa = _plugboard[a], pb = _plugboard[b];
+        int count = 0;
+        if (pa == b) {
+            count = record(count, a, a);
+            count = record(count, b, b);
+        } else {
+            count = record(count, pa, pa);
+            count = record(count, pb, pb);
+            count = record(count, a, b);
+            count = record(count, b, a);
+        }
+        for (int i = 0; i < count; i += 1) {
+            _oldValues[i] = _plugboard[_changed[i]];
+        }
+        _undoScore = _score;
+        apply(count, _newValues);
+        _undoCount = count;
+        return _score;
+    }
+
+    /** Undo the effect of the last swap, if it has not been undone. */
+    void undo() {
+        if (_undoCount > 0) {
+            apply(_undoCount, _oldValues);
+            _score = _undoScore;
+            _undoCount = 0;
+        }
+    }
+
+    /** Record that X is to be plugged to VALUE in the change list, which
+     *  has COUNT entries, replacing any earlier entry for X. Return the new
+     *  number of entries. */
+    private int record(int count, int x, int value) {
+        for (int i = 0; i < count; i += 1) {
+            if (_changed[i] == x) {
+                _newValues[i] = value;
+                return count;
+            }
+        }
+        _changed[count] = x;
+        _newValues[count] = value;
+        return count + 1;
+    }
+
+    /** Plug each of the first COUNT characters in the change list to the
+     *  corresponding entry of VALUES, updating the decryption and score
+     *  incrementally. */
+    private void apply(int count, int[] values) {
+        _stamp += 1;
+        int affected = 0;
+        for (int i = 0; i < count; i += 1) {
+            int x = _changed[i];
+            for (int j = _inputStart[x]; j < _inputStart[x + 1]; j += 1) {
+                affected = mark(_inputPosns[j], affected);
+            }
+            for (int t = _midHead[x]; t >= 0; t = _midNext[t]) {
+                affected = mark(t, affected);
+            }
+        }
+
+        _windowStamp += 1;
+        double old = windowScores(affected);
+        for (int i = 0; i < count; i += 1) {
+            _plugboard[_changed[i]] = values[i];
+        }
+        for (int i = 0; i < affected; i += 1) {
+            int t = _affected[i];
+            int mid = _core[t * _size + _plugboard[_ciphertext[t]]];
+            if (mid != _mid[t]) {
+                unlink(t);
+                _mid[t] = mid;
+                link(t);
+            }
+            _plain[t] = _plugboard[mid];
+        }
+        _windowStamp += 1;
+        _score += windowScores(affected) - old;
+    }
+
+    /** Add position T to the affected list, which has COUNT entries, if it
+     *  is not already there. Return the new number of entries. */
+    private int mark(int t, int count) {
+        if (_stamps[t] == _stamp) {
+            return count;
+        }
+        _stamps[t] = _stamp;
+        _affected[count] = t;
+        return count + 1;
+    }
+
+    /** Return the sum of the scores of the n-grams overlapping the first
+     *  COUNT affected positions, counting each n-gram once. */
+    private double windowScores(int count) {
+        int n = _model.n();
+        int last = _plain.length - n;
+        double result = 0;
+        for (int i = 0; i < count; i += 1) {
+            int t = _affected[i];
+            for (int s = Math.max(0, t - n + 1); s <= t && s <= last;
+                 s += 1) {
+                if (_windowStamps[s] != _windowStamp) {
+                    _windowStamps[s] = _windowStamp;
+                    result += _model.score(_plain, s, s + n);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Add position T to the list of positions with its core output. */
+    private void link(int t) {
+        int head = _midHead[_mid[t]];
+        _midPrev[t] = -1;
+        _midNext[t] = head;
+        if (head >= 0) {
+            _midPrev[head] = t;
+        }
+        _midHead[_mid[t]] = t;
+    }
+
+    /** Remove position T from the list of positions with its core
+     *  output. */
+    private void unlink(int t) {
+        int prev = _midPrev[t], next = _midNext[t];
+        if (prev >= 0) {
+            _midNext[prev] = next;
+        } else {
+            _midHead[_mid[t]] = next;
+        }
+        if (next >= 0) {
+            _midPrev[next] = prev;
+        }
+    }
+
+    /** Most plugboard entries changed by one swap. */
+    private static final int CHANGES = 4;
+
+    /** Size of the alphabet. */
+    private final int _size;
+
+    /** Table used for scoring. */
+    private final NGrams _model;
+
+    /** The ciphertext. */
+    private final int[] _ciphertext;
+
+    /** Entry T * size + X is the core substitution of X at position T. */
+    private final int[] _core;
+
+    /** Core output at each position under the current plugboard. */
+    private final int[] _mid;
+
+    /** Decryption under the current plugboard. */
+    private final int[] _plain;
+
+    /** The current plugboard. */
+    private final int[] _plugboard;
+
+    /** Positions with ciphertext character X are
+     *  _inputPosns[_inputStart[X] .. _inputStart[X + 1] - 1]. */
+    private final int[] _inputStart, _inputPosns;
+
+    /** First position whose core output is X, for each X, or -1. */
+    private final int[] _midHead;
+
+    /** Next and previous positions with the same core output, or -1. */
+    private final int[] _midNext, _midPrev;
+
+    /** Marks positions already affected by the current change. */
+    private final int[] _stamps;
+
+    /** Marks n-grams already scored for the current change. */
+    private final int[] _windowStamps;
+
+    /** Positions affected by the current change. */
+    private final int[] _affected;
+
+    /** Characters whose plugging is changed by the last swap. */
+    private final int[] _changed = new int[CHANGES];
+
+    /** Pluggings of the characters in _changed after the last swap. */
+    private final int[] _newValues = new int[CHANGES];
+
+    /** Pluggings of the characters in _changed before the last swap. */
+    private final int[] _oldValues = new int[CHANGES];
+
+    /** Current values of the stamps in _stamps and _windowStamps. */
+    private int _stamp, _windowStamp;
+
+    /** Score of the current decryption. */
+    private double _score;
+
+    /** Score before the last swap. */
+    private double _undoScore;
+
+    /** Number of changes undone by undo, or 0 if there are none. */
+    private int _undoCount;
+}
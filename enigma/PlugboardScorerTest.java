@@ -0,0 +1,103 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the PlugboardScorer class.
+ *  @author Henry Chiong
+ */
+public class PlugboardScorerTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return a table of trigrams with random log-probabilities from
+     *  RANDOM. */
+    private NGrams randomModel(Random random) {
+        float[] logProbs = new float[26 * 26 * 26];
+        for (int k = 0; k < logProbs.length; k += 1) {
+            logProbs[k] = -random.nextFloat() * 10;
+        }
+        return new NGrams(UPPER, 3, logProbs);
+    }
+
+    /** Return the decryption of CIPHERTEXT by KEY from positions START
+     *  through PLUGBOARD. */
+    private int[] decrypt(CompiledKey key, int[] start, int[] plugboard,
+                          int[] ciphertext) {
+        int[] result = new int[ciphertext.length];
+        key.withPlugboard(plugboard).convert(ciphertext, result,
+                                             result.length, start.clone());
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMatchesFullDecryption() {
+        Random random = new Random(61);
+        NGrams model = randomModel(random);
+        CompiledKey key = CompiledKeyTest.navalMachine()
+            .compile(new String[] {"B", "Beta", "III", "IV", "I"});
+        int[] start = positions(key, "AXLE", UPPER);
+        int[] ciphertext = CiphertextAttack.indices(
+                CompiledKeyTest.randomString(random, 300), UPPER);
+        PlugboardScorer scorer = new PlugboardScorer(ciphertext, model);
+        scorer.setKey(key, start);
+        assertArrayEquals(decrypt(key, start, CompiledKey.identity(26),
+                                  ciphertext),
+                          scorer.plaintext());
+        for (int trial = 0; trial < 200; trial += 1) {
+            int a = random.nextInt(26), b = random.nextInt(26);
+            if (a == b) {
+                continue;
+            }
+            double before = scorer.score();
+            int[] plugboard = scorer.plugboard();
+            double score = scorer.swap(a, b);
+            int[] plain = decrypt(key, start, scorer.plugboard(),
+                                  ciphertext);
+            assertArrayEquals(plain, scorer.plaintext());
+            assertEquals(model.score(plain, plain.length), score, 1e-6);
+            if (random.nextBoolean()) {
+                scorer.undo();
+                assertArrayEquals(plugboard, scorer.plugboard());
+                assertEquals(before, scorer.score(), 0);
+            }
+        }
+        double score = scorer.score();
+        assertEquals(score, scorer.rescore(), 1e-6);
+    }
+
+    @Test
+    public void testSwapAndUnplug() {
+        Random random = new Random(7);
+        CompiledKey key = CompiledKeyTest.navalMachine()
+            .compile(new String[] {"B", "Beta", "I", "II", "III"});
+        PlugboardScorer scorer =
+            new PlugboardScorer(new int[] {0, 1, 2, 3}, randomModel(random));
+        scorer.setKey(key, positions(key, "AAAA", UPPER));
+        scorer.swap(0, 1);
+        assertEquals(1, scorer.plugboard()[0]);
+        scorer.swap(1, 2);
+        assertEquals(0, scorer.plugboard()[0]);
+        assertEquals(2, scorer.plugboard()[1]);
+        scorer.swap(2, 1);
+        assertArrayEquals(CompiledKey.identity(26), scorer.plugboard());
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadCiphertext() {
+        new PlugboardScorer(new int[] {26}, randomModel(new Random(1)));
+    }
+}
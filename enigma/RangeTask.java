@@ -0,0 +1,36 @@
+package enigma;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/** A ForkJoin task that applies an action to each integer in a range,
+ *  splitting the range in halves so that idle workers of a work-stealing
+ *  pool can steal parts of it.
+ *  @author Henry Chiong
+ */
+class RangeTask extends RecursiveAction {
+
+    /** A task applying LEAF to each of LO..HI-1. */
+    RangeTask(int lo, int hi, IntConsumer leaf) {
+        _lo = lo;
+        _hi = hi;
+        _leaf = leaf;
+    }
+
+    @Override
+    protected void compute() {
+        if (_hi - _lo == 1) {
+            _leaf.accept(_lo);
+        } else if (_hi > _lo) {
+            int mid = (_lo + _hi) >>> 1;
+            invokeAll(new RangeTask(_lo, mid, _leaf),
+                      new RangeTask(mid, _hi, _leaf));
+        }
+    }
+
+    /** Bounds of my range. */
+    private final int _lo, _hi;
+
+    /** Applied to each integer of my range. */
+    private final IntConsumer _leaf;
+}
@@ -0,0 +1,61 @@
+package enigma;
+
+/** The engine that runs a Machine itself, rotor object by rotor object.
+ *  It is the standard against which the other engines are checked.
+ *  @author Henry Chiong
+ */
+final class ReferenceEngine implements Engine {
+
+    /** An engine running MACHINE. */
+    ReferenceEngine(Machine machine) {
+        _machine = machine;
+    }
+
+    @Override
+    public Alphabet alphabet() {
+        return _machine.alphabet();
+    }
+
+    @Override
+    public int numRotors() {
+        return _machine.numRotors();
+    }
+
+    @Override
+    public void configure(String[] rotors) {
+        _machine.insertRotors(rotors);
+    }
+
+    @Override
+    public void setRotors(String setting) {
+        _machine.setRotors(setting);
+    }
+
+    @Override
+    public void setRings(String setting) {
+        _machine.setRingRotors(setting);
+    }
+
+    @Override
+    public void setPlugboard(Permutation plugboard) {
+        _machine.setPlugboard(plugboard);
+    }
+
+    @Override
+    public void convert(int[] indices, int len) {
+        _machine.convertTrusted(indices, len);
+    }
+
+    @Override
+    public int[] positions() {
+        return _machine.positions();
+    }
+
+    @Override
+    public String toString() {
+        return "reference";
+    }
+
+    /** The machine I run. */
+    private final Machine _machine;
+}
@@ -19,6 +19,11 @@ class Reflector extends FixedRotor {
         return true;
     }
 
+    @Override
+    Rotor copy() {
+        return new Reflector(name(), permutation());
+    }
+
     @Override
     public String toString() {
         return "Reflector " + name();
@@ -64,6 +64,12 @@ class Rotor {
         _setting = posn;
     }
 
+    /** Set setting() to POSN, which is known to be in the range
+     *  0..size()-1. */
+    final void setTrusted(int posn) {
+        _setting = posn;
+    }
+
     /** Set setting() to character CPOSN. */
     void set(char cposn) {
         _setting = alphabet().toInt(cposn);
@@ -86,23 +92,50 @@ class Rotor {
     /** Return the conversion of P (an integer in the range 0..size()-1)
      *  according to my permutation. */
     int convertForward(int p) {
-        Permutation perm = _permutation;
         if (p < 0 || p >= size()) {
             throw error(p + " is an invalid input to convert forward.");
         }
-        int newSetting = setting() - ring();
-        return perm.wrap(perm.permute(p + newSetting) - newSetting, size());
+        return forward(p);
     }
 
     /** Return the conversion of E (an integer in the range 0..size()-1)
      *  according to the inverse of my permutation. */
     int convertBackward(int e) {
-        Permutation perm = _permutation;
         if (e < 0 || e >= size()) {
             throw error(e + " is an invalid input to convert backward.");
         }
-        int newSetting = setting() - ring();
-        return perm.wrap(perm.invert(e + newSetting) - newSetting, size());
+        return backward(e);
+    }
+
+    /** Return convertForward(P) for P known to be in the range
+     *  0..size()-1, without checking it. */
+    final int forward(int p) {
+        int shift = _setting - _ring;
+        return wrap(_permutation.permuteIndex(wrap(p + shift)) - shift);
+    }
+
+    /** Return convertBackward(E) for E known to be in the range
+     *  0..size()-1, without checking it. */
+    final int backward(int e) {
+        int shift = _setting - _ring;
+        return wrap(_permutation.invertIndex(wrap(e + shift)) - shift);
+    }
+
+    /** Return X modulo size(), where -size() <= X < 2 * size(). */
+    private int wrap(int x) {
+        int size = size();
+        if (x >= size) {
+            return x - size;
+        } else if (x < 0) {
+            return x + size;
+        }
+        return x;
+    }
+
+    /** Return the characters of my alphabet at which I have notches. By
+     *  default, I have none. */
+    String notches() {
+        return "";
     }
 
     /** Returns true iff I am positioned to allow the rotor to my left
@@ -115,6 +148,11 @@ class Rotor {
     void advance() {
     }
 
+    /** Return a new rotor like me, in its 0 settings. */
+    Rotor copy() {
+        return new Rotor(_name, _permutation);
+    }
+
     @Override
     public String toString() {
         return "Rotor " + _name;
@@ -0,0 +1,333 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static enigma.EnigmaException.*;
+
+/** Coordinates a known-plaintext key search spread across SearchWorker
+ *  processes. The coordinator divides the units of a KeySpace into
+ *  ranges and serves them over a line-based TCP protocol on the loopback
+ *  interface. On connecting, a worker receives the job:
+ *
+ *      ENIGMA-SEARCH 1
+ *      CONFIG <number of lines>
+ *      <the lines of the configuration file>
+ *      PLAIN <known plaintext>
+ *      CIPHER <ciphertext>
+ *      SPACE <fingerprint of the key space>
+ *
+ *  after which it repeatedly sends NEXT and is answered with either
+ *  "RANGE <range> <first unit> <end unit>" or DONE. After searching a
+ *  range, it sends "HIT <settings line>" for each key found and then
+ *  "FINISHED <range>".
+ *
+ *  A range held by a worker whose connection closes is put back to be
+ *  handed out again. A range held longer than the lease time is handed
+ *  out again as well, once no unassigned ranges remain, so that a slow
+ *  or hung worker cannot hold up the search; whichever copy finishes
+ *  first counts.
+ *  @author Henry Chiong
+ */
+final class SearchCoordinator {
+
+    /** Run a search of the machine configured by the file ARGS[0] for the
+     *  keys enciphering the text in the file ARGS[1] to the start of the
+     *  text in the file ARGS[2], listening on port ARGS[3], and print the
+     *  settings line of each key found. If ARGS[4] is present, start that
+     *  many local SearchWorker processes. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 4 || args.length > 5) {
+                throw error("Usage: CONFIG PLAINTEXT CIPHERTEXT PORT"
+                            + " [WORKERS]");
+            }
+            SearchCoordinator coordinator =
+                new SearchCoordinator(CiphertextAttack.readFile(args[0]),
+                                      CiphertextAttack.readFile(args[1]),
+                                      CiphertextAttack.readFile(args[2]),
+                                      DEFAULT_CHUNK, DEFAULT_LEASE);
+            int port = coordinator.start(Integer.parseInt(args[3]));
+            List<Process> workers = new ArrayList<>();
+            int count = args.length > 4 ? Integer.parseInt(args[4]) : 0;
+            for (int i = 0; i < count; i += 1) {
+                workers.add(startWorker(port));
+            }
+            for (String hit : coordinator.await()) {
+                System.out.println(hit);
+            }
+            for (Process worker : workers) {
+                worker.waitFor();
+            }
+            return;
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad number%n");
+        } catch (InterruptedException excp) {
+            System.err.printf("Error: interrupted%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A coordinator for a search of the machine configured by CONFIG for
+     *  the keys enciphering PLAIN to the start of CIPHER, handing out
+     *  ranges of CHUNK units and leasing them for LEASE milliseconds. */
+    SearchCoordinator(String config, String plain, String cipher,
+                      int chunk, long lease) {
+        Machine machine = Main.parseConfig(config);
+        _space = new KeySpace(machine);
+        /* Check the texts as each worker will. */
+        new CribSearch(CiphertextAttack.indices(plain, machine.alphabet()),
+                       CiphertextAttack.indices(cipher,
+                                                machine.alphabet()));
+        if (chunk <= 0 || lease <= 0) {
+            throw error("Chunk size and lease time must be positive.");
+        }
+        _config = config.split("\\R");
+        _plain = oneLine(plain);
+        _cipher = oneLine(cipher);
+        _chunk = chunk;
+        _lease = lease;
+        _ranges = (_space.units() + chunk - 1) / chunk;
+        _deadlines = new long[_ranges];
+        for (int r = 0; r < _ranges; r += 1) {
+            _pending.add(r);
+        }
+    }
+
+    /** Start listening for workers on PORT of the loopback interface, or
+     *  on any free port if PORT is 0. Return the port. */
+    int start(int port) {
+        try {
+            _server = new ServerSocket(port, 0,
+                                       InetAddress.getLoopbackAddress());
+        } catch (IOException excp) {
+            throw error("could not listen on port %d", port);
+        }
+        Thread acceptor = new Thread(this::acceptWorkers, "coordinator");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return _server.getLocalPort();
+    }
+
+    /** Wait until every range is finished, stop listening, and return the
+     *  settings lines of the keys found, in sorted order. */
+    Set<String> await() {
+        synchronized (this) {
+            while (_finished.cardinality() < _ranges) {
+                try {
+                    wait();
+                } catch (InterruptedException excp) {
+                    throw error("interrupted");
+                }
+            }
+        }
+        close();
+        synchronized (this) {
+            return new TreeSet<>(_hits);
+        }
+    }
+
+    /** Stop listening for workers. */
+    void close() {
+        try {
+            if (_server != null) {
+                _server.close();
+            }
+        } catch (IOException excp) {
+            /* Ignore errors on closing. */
+        }
+    }
+
+    /** Accept workers until closed, serving each on its own thread. */
+    private void acceptWorkers() {
+        while (!_server.isClosed()) {
+            try {
+                Socket socket = _server.accept();
+                Thread handler = new Thread(() -> serve(socket), "worker");
+                handler.setDaemon(true);
+                handler.start();
+            } catch (IOException excp) {
+                return;
+            }
+        }
+    }
+
+    /** Serve the worker connected to SOCKET until it disconnects or the
+     *  search is done, putting back any range it leaves unfinished. */
+    private void serve(Socket socket) {
+        int current = -1;
+        try (Socket s = socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                 s.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                 s.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            out.println(GREETING);
+            out.println("CONFIG " + _config.length);
+            for (String line : _config) {
+                out.println(line);
+            }
+            out.println("PLAIN " + _plain);
+            out.println("CIPHER " + _cipher);
+            out.println("SPACE " + _space.fingerprint());
+            String line;
+            while ((line = in.readLine()) != null) {
+                if (line.equals("NEXT")) {
+                    current = assign();
+                    if (current < 0) {
+                        out.println("DONE");
+                        return;
+                    }
+                    int lo = current * _chunk;
+                    int hi = Math.min(lo + _chunk, _space.units());
+                    out.println("RANGE " + current + " " + lo + " " + hi);
+                } else if (line.startsWith("HIT ")) {
+                    hit(line.substring(4));
+                } else if (line.startsWith("FINISHED ")) {
+                    finish(Integer.parseInt(line.substring(9).trim()));
+                    current = -1;
+                } else {
+                    return;
+                }
+            }
+        } catch (IOException | NumberFormatException excp) {
+            /* Treat a broken connection like a closed one. */
+        } finally {
+            if (current >= 0) {
+                release(current);
+            }
+        }
+    }
+
+    /** Return a range to hand to a worker, waiting until one is
+     *  available, or -1 if the search is done. */
+    private synchronized int assign() {
+        while (true) {
+            if (_finished.cardinality() == _ranges) {
+                return -1;
+            }
+            long now = System.currentTimeMillis();
+            Integer next = _pending.poll();
+            if (next != null) {
+                _deadlines[next] = now + _lease;
+                return next;
+            }
+            long wake = Long.MAX_VALUE;
+            for (int r = _finished.nextClearBit(0); r < _ranges;
+                 r = _finished.nextClearBit(r + 1)) {
+                if (_deadlines[r] <= now) {
+                    _deadlines[r] = now + _lease;
+                    return r;
+                }
+                wake = Math.min(wake, _deadlines[r]);
+            }
+            try {
+                wait(Math.max(1, wake - now));
+            } catch (InterruptedException excp) {
+                return -1;
+            }
+        }
+    }
+
+    /** Put back RANGE, which its worker left unfinished. */
+    private synchronized void release(int range) {
+        if (!_finished.get(range) && !_pending.contains(range)) {
+            _pending.addFirst(range);
+            notifyAll();
+        }
+    }
+
+    /** Record that RANGE is finished. */
+    private synchronized void finish(int range) {
+        if (range >= 0 && range < _ranges) {
+            _finished.set(range);
+            _pending.remove(range);
+            notifyAll();
+        }
+    }
+
+    /** Record the settings line HIT of a key found. */
+    private synchronized void hit(String hit) {
+        _hits.add(hit);
+    }
+
+    /** Return TEXT with its line breaks and surrounding whitespace
+     *  removed. */
+    private static String oneLine(String text) {
+        return text.replaceAll("\\R", " ").trim();
+    }
+
+    /** Return a new local SearchWorker process connecting to PORT. */
+    private static Process startWorker(int port) {
+        String java = System.getProperty("java.home") + File.separator
+            + "bin" + File.separator + "java";
+        ProcessBuilder builder =
+            new ProcessBuilder(java, "-cp",
+                               System.getProperty("java.class.path"),
+                               "enigma.SearchWorker", "localhost",
+                               Integer.toString(port));
+        builder.inheritIO();
+        try {
+            return builder.start();
+        } catch (IOException excp) {
+            throw error("could not start a worker");
+        }
+    }
+
+    /** First line sent to each worker. */
+    static final String GREETING = "ENIGMA-SEARCH 1";
+
+    /** Default number of units in each range. */
+    private static final int DEFAULT_CHUNK = 64;
+
+    /** Default milliseconds a worker may hold a range. */
+    private static final long DEFAULT_LEASE = 600000;
+
+    /** The key space searched. */
+    private final KeySpace _space;
+
+    /** Lines of the configuration file. */
+    private final String[] _config;
+
+    /** The known plaintext and the ciphertext. */
+    private final String _plain, _cipher;
+
+    /** Number of units in each range. */
+    private final int _chunk;
+
+    /** Milliseconds a worker may hold a range. */
+    private final long _lease;
+
+    /** Number of ranges. */
+    private final int _ranges;
+
+    /** Ranges not handed to any worker. */
+    private final ArrayDeque<Integer> _pending = new ArrayDeque<>();
+
+    /** Time at which the lease on each range expires. */
+    private final long[] _deadlines;
+
+    /** Finished ranges. */
+    private final BitSet _finished = new BitSet();
+
+    /** Settings lines of the keys found. */
+    private final Set<String> _hits = new TreeSet<>();
+
+    /** Socket on which workers connect. */
+    private ServerSocket _server;
+}
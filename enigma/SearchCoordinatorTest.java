@@ -0,0 +1,146 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the SearchCoordinator and
+ *  SearchWorker classes.
+ *  @author Henry Chiong
+ */
+public class SearchCoordinatorTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(20);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Configuration of a small machine. */
+    static final String CONFIG =
+        "ABCDEFGHIJKLMNOPQRSTUVWXYZ\n 3 2\n"
+        + " I MQ (AELTPHQXRU) (BKNW) (CMOY) (DFG) (IV) (JZ) (S)\n"
+        + " II ME (FIXVYOMW) (CDKLHUP) (ESZ) (BJ) (GR) (NT) (A) (Q)\n"
+        + " III MV (ABDHPEJT) (CFLVMZOYQIRWUKXSG) (N)\n"
+        + " B R (AE) (BN) (CK) (DQ) (FU) (GY) (HW) (IJ) (LO) (MP)\n"
+        + "     (RX) (SZ) (TV)\n";
+
+    /** Return the encryption of MSG by CONFIG at SETTINGS. */
+    private String encrypt(String settings, String msg) {
+        Machine machine = Main.parseConfig(CONFIG);
+        String[] fields = settings.split(" ");
+        machine.insertRotors(new String[] {fields[1], fields[2], fields[3]});
+        machine.setRotors(fields[4]);
+        machine.setRingRotors(fields[5]);
+        return machine.convert(msg);
+    }
+
+    /** Start a thread running a SearchWorker for the coordinator on
+     *  PORT, and return it. */
+    private Thread startWorker(int port) {
+        Thread result = new Thread(() ->
+            new SearchWorker("localhost", port, new ForkJoinPool(2)).run());
+        result.start();
+        return result;
+    }
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSearch() throws InterruptedException {
+        String settings = "* B II III QT AF";
+        SearchCoordinator coordinator =
+            new SearchCoordinator(CONFIG, "HELLOWORLD",
+                                  encrypt(settings, "HELLOWORLDAGAIN"),
+                                  7, 60000);
+        int port = coordinator.start(0);
+        Thread first = startWorker(port), second = startWorker(port);
+        Set<String> hits = coordinator.await();
+        assertTrue(hits.contains(settings));
+        first.join();
+        second.join();
+    }
+
+    @Test
+    public void testDeadWorker() throws IOException {
+        String settings = "* B III I AZ AP";
+        SearchCoordinator coordinator =
+            new SearchCoordinator(CONFIG, "ATTACKATDAWN",
+                                  encrypt(settings, "ATTACKATDAWN"), 10,
+                                  60000);
+        int port = coordinator.start(0);
+        try (Socket socket = new Socket("localhost", port)) {
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream()));
+            PrintWriter out =
+                new PrintWriter(socket.getOutputStream(), true);
+            assertEquals(SearchCoordinator.GREETING, in.readLine());
+            out.println("NEXT");
+            String line;
+            while (!(line = in.readLine()).startsWith("RANGE")) {
+                continue;
+            }
+            assertEquals("RANGE 0 0 10", line);
+        }
+        startWorker(port);
+        assertTrue(coordinator.await().contains(settings));
+    }
+
+    @Test
+    public void testSlowWorker() throws IOException {
+        String settings = "* B I II AA AA";
+        SearchCoordinator coordinator =
+            new SearchCoordinator(CONFIG, "ATTACKATDAWN",
+                                  encrypt(settings, "ATTACKATDAWN"), 200,
+                                  100);
+        int port = coordinator.start(0);
+        try (Socket socket = new Socket("localhost", port)) {
+            BufferedReader in = new BufferedReader(
+                new InputStreamReader(socket.getInputStream()));
+            PrintWriter out =
+                new PrintWriter(socket.getOutputStream(), true);
+            out.println("NEXT");
+            String line;
+            while (!(line = in.readLine()).startsWith("RANGE")) {
+                continue;
+            }
+            startWorker(port);
+            assertTrue(coordinator.await().contains(settings));
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNotACoordinator() throws IOException {
+        try (ServerSocket server =
+             new ServerSocket(0, 0, InetAddress.getLoopbackAddress())) {
+            Thread talker = new Thread(() -> {
+                try (Socket s = server.accept()) {
+                    new PrintWriter(s.getOutputStream(), true)
+                        .println("HELLO");
+                } catch (IOException excp) {
+                    return;
+                }
+            });
+            talker.start();
+            new SearchWorker("localhost", server.getLocalPort(),
+                             new ForkJoinPool(1)).run();
+        }
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadConfig() {
+        new SearchCoordinator("AB\n 3", "A", "B", 1, 1);
+    }
+}
@@ -0,0 +1,130 @@
+package enigma;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** A worker process of a search run by a SearchCoordinator. It receives
+ *  the job from the coordinator, builds the machine and key space itself,
+ *  and searches the ranges it is handed on all of its processors,
+ *  reporting the keys found. See SearchCoordinator for the protocol.
+ *  @author Henry Chiong
+ */
+final class SearchWorker {
+
+    /** Work for the coordinator at host ARGS[0] and port ARGS[1] until
+     *  the search is done. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length != 2) {
+                throw error("Usage: HOST PORT");
+            }
+            new SearchWorker(args[0], Integer.parseInt(args[1]),
+                             ForkJoinPool.commonPool()).run();
+            return;
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad port%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** A worker for the coordinator at HOST and PORT, searching on
+     *  POOL. */
+    SearchWorker(String host, int port, ForkJoinPool pool) {
+        _host = host;
+        _port = port;
+        _pool = pool;
+    }
+
+    /** Connect to my coordinator and search the ranges it hands me until
+     *  it reports that the search is done. Return the number of ranges I
+     *  finished. */
+    int run() {
+        try (Socket socket = new Socket(_host, _port);
+             BufferedReader in = new BufferedReader(new InputStreamReader(
+                 socket.getInputStream(), StandardCharsets.UTF_8));
+             PrintWriter out = new PrintWriter(new OutputStreamWriter(
+                 socket.getOutputStream(), StandardCharsets.UTF_8), true)) {
+            if (!SearchCoordinator.GREETING.equals(in.readLine())) {
+                throw error("not a search coordinator");
+            }
+            StringBuilder config = new StringBuilder();
+            int lines = Integer.parseInt(field(in.readLine(), "CONFIG"));
+            for (int i = 0; i < lines; i += 1) {
+                config.append(expect(in.readLine())).append('\n');
+            }
+            Machine machine = Main.parseConfig(config.toString());
+            Alphabet alphabet = machine.alphabet();
+            CribSearch search = new CribSearch(
+                CiphertextAttack.indices(field(in.readLine(), "PLAIN"),
+                                         alphabet),
+                CiphertextAttack.indices(field(in.readLine(), "CIPHER"),
+                                         alphabet));
+            KeySpace space = new KeySpace(machine);
+            if (Long.parseLong(field(in.readLine(), "SPACE"))
+                != space.fingerprint()) {
+                throw error("key space does not match the coordinator's");
+            }
+
+            int finished = 0;
+            while (true) {
+                out.println("NEXT");
+                String line = expect(in.readLine());
+                if (line.equals("DONE")) {
+                    return finished;
+                }
+                String[] range = field(line, "RANGE").split(" ");
+                ConcurrentLinkedQueue<String> hits =
+                    new ConcurrentLinkedQueue<>();
+                _pool.invoke(new RangeTask(Integer.parseInt(range[1]),
+                                           Integer.parseInt(range[2]),
+                    unit -> search.search(space, unit, hits::add)));
+                for (String hit : hits) {
+                    out.println("HIT " + hit);
+                }
+                out.println("FINISHED " + range[0]);
+                finished += 1;
+            }
+        } catch (IOException excp) {
+            throw error("lost connection to %s:%d", _host, _port);
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException excp) {
+            throw error("bad message from coordinator");
+        }
+    }
+
+    /** Return the rest of LINE, which must start with KEYWORD and a
+     *  space. */
+    private static String field(String line, String keyword) {
+        if (!expect(line).startsWith(keyword + " ")) {
+            throw error("expected %s from coordinator", keyword);
+        }
+        return line.substring(keyword.length() + 1);
+    }
+
+    /** Return LINE, which must not be null. */
+    private static String expect(String line) {
+        if (line == null) {
+            throw error("coordinator closed the connection");
+        }
+        return line;
+    }
+
+    /** Host and port of the coordinator. */
+    private final String _host;
+
+    /** Port of the coordinator. */
+    private final int _port;
+
+    /** Pool on which I search. */
+    private final ForkJoinPool _pool;
+}
@@ -0,0 +1,249 @@
+package enigma;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.function.LongSupplier;
+
+import static enigma.EnigmaException.*;
+
+/** Long-lived encryption streams ("sessions"), each keyed by a session ID
+ *  and carrying its rotor positions from one request to the next. A session
+ *  holds only a reference to a CompiledKey, which any number of sessions
+ *  may share, and its rotor positions packed into a long, so that it takes
+ *  some tens of bytes rather than a Machine with rotor objects of its own.
+ *
+ *  Sessions live in a ConcurrentHashMap. A conversion unpacks a session's
+ *  positions, converts, and installs the new positions with a
+ *  compare-and-set; if another request on the same session got there
+ *  first, the conversion is redone from the new positions, so concurrent
+ *  requests on one session act as if done one after the other. A session
+ *  idle for longer than the idle time is dropped when it is next used, or
+ *  by evictIdle, and when there are more sessions than the maximum, the
+ *  least recently used are dropped.
+ *  @author Henry Chiong
+ */
+final class SessionStore {
+
+    /** A store of sessions over ALPHABET, holding at most MAXSESSIONS and
+     *  dropping any idle for IDLEMILLIS milliseconds. */
+    SessionStore(Alphabet alphabet, int maxSessions, long idleMillis) {
+        this(alphabet, maxSessions, idleMillis, System::currentTimeMillis);
+    }
+
+    /** A store of sessions over ALPHABET, holding at most MAXSESSIONS and
+     *  dropping any idle for IDLEMILLIS milliseconds as measured by
+     *  CLOCK. */
+    SessionStore(Alphabet alphabet, int maxSessions, long idleMillis,
+                 LongSupplier clock) {
+        if (maxSessions <= 0 || idleMillis <= 0) {
+            throw error("Session limits must be positive.");
+        }
+        _alphabet = alphabet;
+        _bits = Math.max(1, Integer.SIZE
+                         - Integer.numberOfLeadingZeros(alphabet.size() - 1));
+        _maxSessions = maxSessions;
+        _idleMillis = idleMillis;
+        _clock = clock;
+    }
+
+    /** Start the session ID, replacing any session with that ID, running
+     *  KEY from the rotor positions POSNS. */
+    void open(String id, CompiledKey key, int[] posns) {
+        if (key.size() != _alphabet.size()) {
+            throw error("Key must match the alphabet of the sessions.");
+        } else if ((long) (key.numRotors() - 1) * _bits > Long.SIZE) {
+            throw error("Too many rotors to pack into a session.");
+        } else if (posns.length != key.numRotors()) {
+            throw error("Positions must match the rotors.");
+        }
+        for (int posn : posns) {
+            if (posn < 0 || posn >= key.size()) {
+                throw error("Position out of range.");
+            }
+        }
+        long now = _clock.getAsLong();
+        _sessions.put(id, new Session(key, pack(posns), now));
+        if (_sessions.size() > _maxSessions) {
+            evict(now);
+        }
+    }
+
+    /** End the session ID. Return true iff there was such a session. */
+    boolean close(String id) {
+        return _sessions.remove(id) != null;
+    }
+
+    /** Return true iff the session ID is open. */
+    boolean contains(String id) {
+        return _sessions.containsKey(id);
+    }
+
+    /** Return the number of open sessions. */
+    int size() {
+        return _sessions.size();
+    }
+
+    /** Return the current rotor positions of session ID, as for
+     *  CompiledKey. */
+    int[] positions(String id) {
+        Session session = session(id, _clock.getAsLong());
+        int[] posns = new int[session.key.numRotors()];
+        unpack(session.posns, posns);
+        return posns;
+    }
+
+    /** Convert the first LEN indices of IN into OUT with session ID,
+     *  advancing its rotors before each. IN and OUT must not be the same
+     *  array. */
+    void convert(String id, int[] in, int[] out, int len) {
+        long now = _clock.getAsLong();
+        Session session = session(id, now);
+        session.lastUsed = now;
+        CompiledKey key = session.key;
+        int[] posns = new int[key.numRotors()];
+        while (true) {
+            long before = session.posns;
+            unpack(before, posns);
+            key.convert(in, out, len, posns);
+            if (POSNS.compareAndSet(session, before, pack(posns))) {
+                return;
+            }
+        }
+    }
+
+    /** Return the conversion of MSG, whose characters must be in my
+     *  alphabet, by session ID. */
+    String convert(String id, String msg) {
+        int[] in = Machine.indices(msg, _alphabet);
+        int[] out = new int[in.length];
+        convert(id, in, out, in.length);
+        return _alphabet.toString(out, out.length);
+    }
+
+    /** Drop the sessions idle for longer than the idle time, as of now.
+     *  Return the number dropped. */
+    int evictIdle() {
+        int before = _sessions.size();
+        long cutoff = _clock.getAsLong() - _idleMillis;
+        _sessions.values().removeIf(s -> s.lastUsed < cutoff);
+        return before - _sessions.size();
+    }
+
+    /** Drop the sessions idle for longer than the idle time as of NOW and,
+     *  if there are still too many, the least recently used, leaving room
+     *  to add some before this must be done again. */
+    private synchronized void evict(long now) {
+        if (_sessions.size() <= _maxSessions) {
+            return;
+        }
+        long cutoff = now - _idleMillis;
+        _sessions.values().removeIf(s -> s.lastUsed < cutoff);
+        int target = _maxSessions - _maxSessions / EVICTION_SLACK;
+        int excess = _sessions.size() - target;
+        if (excess <= 0) {
+            return;
+        }
+        long[] times = new long[_sessions.size()];
+        int n = 0;
+        for (Session s : _sessions.values()) {
+            if (n == times.length) {
+                break;
+            }
+            times[n] = s.lastUsed;
+            n += 1;
+        }
+        Arrays.sort(times, 0, n);
+        long oldest = times[Math.min(excess, n) - 1];
+        for (Map.Entry<String, Session> e : _sessions.entrySet()) {
+            if (excess > 0 && e.getValue().lastUsed <= oldest
+                && _sessions.remove(e.getKey(), e.getValue())) {
+                excess -= 1;
+            }
+        }
+    }
+
+    /** Return the session ID, which must be open and, as of NOW, not idle
+     *  for longer than the idle time. An idle session is dropped. */
+    private Session session(String id, long now) {
+        Session session = _sessions.get(id);
+        if (session != null && session.lastUsed < now - _idleMillis) {
+            _sessions.remove(id, session);
+            session = null;
+        }
+        if (session == null) {
+            throw error("no session %s", id);
+        }
+        return session;
+    }
+
+    /** Return the positions POSNS, apart from the reflector's, packed into
+     *  a long. */
+    private long pack(int[] posns) {
+        long result = 0;
+        for (int k = posns.length - 1; k >= 1; k -= 1) {
+            result = (result << _bits) | posns[k];
+        }
+        return result;
+    }
+
+    /** Unpack PACKED into POSNS, whose length gives the number of
+     *  rotors. */
+    private void unpack(long packed, int[] posns) {
+        long mask = (1L << _bits) - 1;
+        posns[0] = 0;
+        for (int k = 1; k < posns.length; k += 1) {
+            posns[k] = (int) (packed & mask);
+            packed >>>= _bits;
+        }
+    }
+
+    /** The state of one session. */
+    private static final class Session {
+
+        /** A session running KEY from the packed positions POSNS, last
+         *  used at time LASTUSED. */
+        Session(CompiledKey key, long posns, long lastUsed) {
+            this.key = key;
+            this.posns = posns;
+            this.lastUsed = lastUsed;
+        }
+
+        /** The key run by this session. */
+        private final CompiledKey key;
+
+        /** Packed rotor positions. */
+        private volatile long posns;
+
+        /** Time of the last conversion. */
+        private volatile long lastUsed;
+    }
+
+    /** Updates Session.posns atomically. */
+    private static final AtomicLongFieldUpdater<Session> POSNS =
+        AtomicLongFieldUpdater.newUpdater(Session.class, "posns");
+
+    /** One over the fraction of the maximum number of sessions freed when
+     *  there are too many. */
+    private static final int EVICTION_SLACK = 16;
+
+    /** Alphabet of every session. */
+    private final Alphabet _alphabet;
+
+    /** Bits used for each rotor position. */
+    private final int _bits;
+
+    /** Maximum number of sessions. */
+    private final int _maxSessions;
+
+    /** Milliseconds after which an unused session is dropped. */
+    private final long _idleMillis;
+
+    /** Source of the time, in milliseconds. */
+    private final LongSupplier _clock;
+
+    /** The open sessions, by ID. */
+    private final ConcurrentHashMap<String, Session> _sessions =
+        new ConcurrentHashMap<>();
+}
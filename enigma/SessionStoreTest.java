@@ -0,0 +1,152 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the SessionStore class.
+ *  @author Henry Chiong
+ */
+public class SessionStoreTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTING UTILITIES ***** */
+
+    /** Return the key of the naval machine with rotors B Beta III IV I. */
+    private static CompiledKey navalKey() {
+        return CompiledKeyTest.navalMachine().compile(
+            new String[] {"B", "Beta", "III", "IV", "I"});
+    }
+
+    /** The time seen by stores under test, in milliseconds. */
+    private long _now;
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testSplitRequests() {
+        CompiledKey key = navalKey();
+        SessionStore store = new SessionStore(UPPER, 10, 1000);
+        Random random = new Random(61);
+        String msg = CompiledKeyTest.randomString(random, 500);
+        int[] posns = positions(key, "AXLE", UPPER);
+        store.open("a", key, posns.clone());
+        store.open("b", key, positions(key, "QZEJ", UPPER));
+
+        int[] expected = CiphertextAttack.indices(msg, UPPER);
+        key.convert(expected, expected, expected.length, posns);
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < msg.length(); i += 50) {
+            result.append(store.convert("a", msg.substring(i, i + 50)));
+            store.convert("b", "INTERLEAVED");
+        }
+        assertEquals(UPPER.toString(expected, expected.length),
+                     result.toString());
+        assertArrayEquals(posns, store.positions("a"));
+    }
+
+    @Test
+    public void testConcurrentRequests() throws InterruptedException {
+        CompiledKey key = navalKey();
+        SessionStore store = new SessionStore(UPPER, 10, 1000);
+        store.open("s", key, positions(key, "AAAA", UPPER));
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t += 1) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i += 1) {
+                    store.convert("s", "HELLO");
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        int[] expected = positions(key, "AAAA", UPPER);
+        for (int i = 0; i < threads.length * 500 * 5; i += 1) {
+            key.step(expected);
+        }
+        assertArrayEquals(expected, store.positions("s"));
+    }
+
+    @Test
+    public void testIdleEviction() {
+        CompiledKey key = navalKey();
+        SessionStore store = new SessionStore(UPPER, 10, 1000, () -> _now);
+        int[] posns = positions(key, "AAAA", UPPER);
+        store.open("old", key, posns);
+        _now = 600;
+        store.open("new", key, posns);
+        _now = 1200;
+        assertEquals(1, store.evictIdle());
+        assertFalse(store.contains("old"));
+        store.convert("new", "A");
+        _now = 2100;
+        assertEquals(0, store.evictIdle());
+        assertTrue(store.contains("new"));
+        assertTrue(store.close("new"));
+        assertFalse(store.close("new"));
+        assertEquals(0, store.size());
+    }
+
+    @Test
+    public void testIdleUse() {
+        CompiledKey key = navalKey();
+        SessionStore store = new SessionStore(UPPER, 10, 1000, () -> _now);
+        store.open("s", key, positions(key, "AAAA", UPPER));
+        _now = 1000;
+        store.convert("s", "A");
+        _now = 2001;
+        try {
+            store.convert("s", "A");
+            fail("idle session was used");
+        } catch (EnigmaException excp) {
+            assertFalse(store.contains("s"));
+        }
+        store.open("s", key, positions(key, "AAAA", UPPER));
+        _now = 3002;
+        try {
+            store.positions("s");
+            fail("idle session was read");
+        } catch (EnigmaException excp) {
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    public void testSizeBound() {
+        CompiledKey key = navalKey();
+        SessionStore store = new SessionStore(UPPER, 32, 1000000,
+                                              () -> _now);
+        int[] posns = positions(key, "AAAA", UPPER);
+        for (int i = 0; i < 100; i += 1) {
+            _now = i;
+            store.open("s" + i, key, posns);
+            store.convert("s0", "A");
+            assertTrue(store.size() <= 32);
+        }
+        assertTrue(store.contains("s99"));
+        assertTrue(store.contains("s0"));
+        assertFalse(store.contains("s1"));
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testNoSession() {
+        new SessionStore(UPPER, 10, 1000).convert("missing", "A");
+    }
+
+    @Test(expected = EnigmaException.class)
+    public void testBadPositions() {
+        CompiledKey key = navalKey();
+        new SessionStore(UPPER, 10, 1000).open("s", key, new int[3]);
+    }
+}
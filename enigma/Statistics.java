@@ -0,0 +1,139 @@
+package enigma;
+
+import java.util.Arrays;
+
+/** Letter counts of converted text, kept for the current message and for
+ *  all messages so far, from which the index of coincidence and the
+ *  chi-squared statistic against a uniform distribution are computed.
+ *  Good ciphertext has an index of coincidence near 1/size and a
+ *  chi-squared statistic near size-1. Counts are added as the text is
+ *  converted, so no second pass over it is needed.
+ *  @author Henry Chiong
+ */
+final class Statistics {
+
+    /** Statistics over an alphabet of SIZE characters. */
+    Statistics(int size) {
+        _message = new long[size];
+        _total = new long[size];
+    }
+
+    /** Count the first LEN entries of INDICES, which must be valid
+     *  indices into the alphabet, as part of the current message. */
+    void add(int[] indices, int len) {
+        long[] counts = _message;
+        for (int i = 0; i < len; i += 1) {
+            counts[indices[i]] += 1;
+        }
+        _messageLength += len;
+    }
+
+    /** End the current message, adding its counts to the totals and
+     *  starting a new one. */
+    void endMessage() {
+        for (int k = 0; k < _total.length; k += 1) {
+            _total[k] += _message[k];
+        }
+        Arrays.fill(_message, 0);
+        _totalLength += _messageLength;
+        _messageLength = 0;
+        _messages += 1;
+    }
+
+    /** Return the number of messages ended. */
+    long messages() {
+        return _messages;
+    }
+
+    /** Return the number of characters in the current message. */
+    long messageLength() {
+        return _messageLength;
+    }
+
+    /** Return the index of coincidence of the current message. */
+    double messageIoC() {
+        return indexOfCoincidence(_message, _messageLength);
+    }
+
+    /** Return the chi-squared statistic of the current message. */
+    double messageChiSquared() {
+        return chiSquared(_message, _messageLength);
+    }
+
+    /** Return the number of characters in the messages ended. */
+    long totalLength() {
+        return _totalLength;
+    }
+
+    /** Return the index of coincidence of the messages ended. */
+    double totalIoC() {
+        return indexOfCoincidence(_total, _totalLength);
+    }
+
+    /** Return the chi-squared statistic of the messages ended. */
+    double totalChiSquared() {
+        return chiSquared(_total, _totalLength);
+    }
+
+    /** Return a line describing the current message, numbered as the
+     *  next to be ended. */
+    String messageSummary() {
+        return summary("message " + (_messages + 1), _messageLength,
+                       messageIoC(), messageChiSquared());
+    }
+
+    /** Return a line describing the messages ended. */
+    String totalSummary() {
+        return summary("total", _totalLength, totalIoC(),
+                       totalChiSquared());
+    }
+
+    /** Return the index of coincidence of text of N characters with the
+     *  character counts COUNTS, or NaN if N < 2. */
+    static double indexOfCoincidence(long[] counts, long n) {
+        if (n < 2) {
+            return Double.NaN;
+        }
+        double sum = 0;
+        for (long count : counts) {
+            sum += (double) count * (count - 1);
+        }
+        return sum / ((double) n * (n - 1));
+    }
+
+    /** Return the chi-squared statistic of text of N characters with the
+     *  character counts COUNTS against the uniform distribution, or NaN
+     *  if N is 0. */
+    static double chiSquared(long[] counts, long n) {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        double expected = (double) n / counts.length;
+        double sum = 0;
+        for (long count : counts) {
+            double diff = count - expected;
+            sum += diff * diff;
+        }
+        return sum / expected;
+    }
+
+    /** Return a line labeled LABEL describing text of N characters with
+     *  the index of coincidence IOC and chi-squared statistic CHI. */
+    private static String summary(String label, long n, double ioc,
+                                  double chi) {
+        return String.format("%s: %d characters, IoC %.5f,"
+                             + " chi-squared %.2f", label, n, ioc, chi);
+    }
+
+    /** Counts of each character in the current message. */
+    private final long[] _message;
+
+    /** Counts of each character in the messages ended. */
+    private final long[] _total;
+
+    /** Characters in the current message and in the messages ended. */
+    private long _messageLength, _totalLength;
+
+    /** Number of messages ended. */
+    private long _messages;
+}
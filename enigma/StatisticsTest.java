@@ -0,0 +1,50 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import static org.junit.Assert.*;
+
+/** The suite of all JUnit tests for the Statistics class.
+ *  @author Henry Chiong
+ */
+public class StatisticsTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(5);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testMessageAndTotal() {
+        Statistics stats = new Statistics(4);
+        stats.add(new int[] {0, 0, 1, 2, 9}, 4);
+        assertEquals(4, stats.messageLength());
+        assertEquals(2.0 / 12, stats.messageIoC(), 1e-12);
+        assertEquals((1 + 0 + 0 + 1) / 1.0, stats.messageChiSquared(),
+                     1e-12);
+        assertTrue(stats.messageSummary().startsWith("message 1: 4 "));
+        stats.endMessage();
+        assertEquals(0, stats.messageLength());
+        assertTrue(Double.isNaN(stats.messageIoC()));
+
+        stats.add(new int[] {3, 3, 3, 3}, 4);
+        assertEquals(1.0, stats.messageIoC(), 1e-12);
+        assertEquals(12.0, stats.messageChiSquared(), 1e-12);
+        stats.endMessage();
+        assertEquals(2, stats.messages());
+        assertEquals(8, stats.totalLength());
+        assertEquals((2.0 + 12) / 56, stats.totalIoC(), 1e-12);
+        assertTrue(stats.totalSummary().startsWith("total: 8 characters"));
+    }
+
+    @Test
+    public void testUniform() {
+        long[] counts = {5, 5, 5, 5};
+        assertEquals(0.0, Statistics.chiSquared(counts, 20), 1e-12);
+        assertEquals(4.0 * 20 / (20 * 19),
+                     Statistics.indexOfCoincidence(counts, 20), 1e-12);
+    }
+}
@@ -0,0 +1,273 @@
+package enigma;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static enigma.EnigmaException.*;
+
+/** An analysis of how the moving rotors of a rotor order step. Only the
+ *  moving rotors' positions change from one character to the next, so
+ *  the stepping is a function on their joint positions ("states"), which
+ *  are packed into ints. The analysis builds that function in full with
+ *  CompiledKey.step and walks it once to find its cycles: every start
+ *  position leads, perhaps after a few steps, into one of them, and the
+ *  length of that cycle is the period of the keystream. It also finds the
+ *  states on those cycles whose step is a double step, in which a rotor
+ *  advances on its own notch rather than by a carry from its right.
+ *
+ *  The reflector and the fixed rotors play no part, so rotor orders
+ *  sharing their moving rotors share an analysis.
+ *  @author Henry Chiong
+ */
+final class StepAnalysis {
+
+    /** Print the analysis of every sequence of moving rotors of the
+     *  machine configured by the file ARGS[0]. If ARGS[1] is "-d", also
+     *  print the positions of the moving rotors before each double step.
+     *  Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 1 || args.length > 2
+                || args.length == 2 && !args[1].equals("-d")) {
+                throw error("Usage: CONFIG [-d]");
+            }
+            Machine machine = Main.readConfig(args[0]);
+            for (StepAnalysis analysis
+                     : analyze(machine, ForkJoinPool.commonPool())) {
+                System.out.println(analysis);
+                if (args.length == 2) {
+                    for (String setting : analysis.doubleStepSettings()) {
+                        System.out.println("    " + setting);
+                    }
+                }
+            }
+            return;
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Return the analyses of each distinct sequence of moving rotors in
+     *  the rotor orders of MACHINE, computed on POOL, in the order in
+     *  which the sequences first appear. */
+    static List<StepAnalysis> analyze(Machine machine, ForkJoinPool pool) {
+        int fixed = machine.numRotors() - machine.numPawls();
+        LinkedHashMap<String, String[]> orders = new LinkedHashMap<>();
+        for (String[] order : machine.rotorOrders()) {
+            String moving = String.join(" ",
+                Arrays.copyOfRange(order, fixed, order.length));
+            orders.putIfAbsent(moving, order);
+        }
+        List<String[]> distinct = new ArrayList<>(orders.values());
+        StepAnalysis[] result = new StepAnalysis[distinct.size()];
+        pool.invoke(new RangeTask(0, result.length,
+            i -> result[i] = new StepAnalysis(
+                machine.compile(distinct.get(i)), machine.alphabet())));
+        return Arrays.asList(result);
+    }
+
+    /** The analysis of the stepping of KEY, whose alphabet is
+     *  ALPHABET. */
+    StepAnalysis(CompiledKey key, Alphabet alphabet) {
+        _alphabet = alphabet;
+        _size = key.size();
+        _numRotors = key.numRotors();
+        _first = key.numRotors() - key.numPawls();
+        String[] names = new String[key.numPawls()];
+        for (int k = _first; k < key.numRotors(); k += 1) {
+            names[k - _first] = key.rotor(k).name();
+        }
+        _names = String.join(" ", names);
+        long states = 1;
+        for (int i = 0; i < key.numPawls(); i += 1) {
+            states *= _size;
+            if (states > MAX_STATES) {
+                throw error("Too many rotor positions to analyze %s.",
+                            _names);
+            }
+        }
+        _states = (int) states;
+
+        int[] next = new int[_states];
+        BitSet doubles = new BitSet(_states);
+        BitSet image = new BitSet(_states);
+        int[] before = new int[key.numRotors()];
+        int[] after = new int[key.numRotors()];
+        for (int s = 0; s < _states; s += 1) {
+            unpack(s, before);
+            System.arraycopy(before, 0, after, 0, before.length);
+            key.step(after);
+            next[s] = pack(after);
+            image.set(next[s]);
+            if (doubleStep(key, before, after)) {
+                doubles.set(s);
+            }
+        }
+        _reachable = image.cardinality();
+
+        int[] walk = new int[_states];
+        BitSet recurrent = new BitSet(_states);
+        List<Integer> cycles = new ArrayList<>();
+        for (int s = 0; s < _states; s += 1) {
+            int x = s;
+            while (walk[x] == 0) {
+                walk[x] = s + 1;
+                x = next[x];
+            }
+            if (walk[x] == s + 1) {
+                int length = 0;
+                do {
+                    recurrent.set(x);
+                    x = next[x];
+                    length += 1;
+                } while (!recurrent.get(x));
+                cycles.add(length);
+            }
+        }
+        _recurrent = recurrent.cardinality();
+        _cycles = new int[cycles.size()];
+        for (int i = 0; i < _cycles.length; i += 1) {
+            _cycles[i] = cycles.get(i);
+        }
+        Arrays.sort(_cycles);
+        doubles.and(recurrent);
+        _doubleSteps = doubles.stream().toArray();
+    }
+
+    /** Return the names of the moving rotors analyzed, leftmost first. */
+    String names() {
+        return _names;
+    }
+
+    /** Return the number of joint positions of the moving rotors. */
+    int states() {
+        return _states;
+    }
+
+    /** Return the number of positions that the moving rotors can be in
+     *  after stepping at least once. */
+    int reachable() {
+        return _reachable;
+    }
+
+    /** Return the number of positions that recur, that is, that lie on
+     *  a cycle. */
+    int recurrent() {
+        return _recurrent;
+    }
+
+    /** Return the lengths of the cycles of positions, in increasing
+     *  order. Each is the keystream period from the start positions
+     *  leading into that cycle. */
+    int[] cycles() {
+        return _cycles.clone();
+    }
+
+    /** Return the number of recurrent positions from which the next step
+     *  is a double step. */
+    int doubleSteps() {
+        return _doubleSteps.length;
+    }
+
+    /** Return the positions of the moving rotors, leftmost first, from
+     *  which the next step is a double step, among the recurrent
+     *  positions. */
+    List<String> doubleStepSettings() {
+        List<String> result = new ArrayList<>();
+        int[] posns = new int[_numRotors];
+        for (int s : _doubleSteps) {
+            unpack(s, posns);
+            StringBuilder setting = new StringBuilder();
+            for (int k = _first; k < posns.length; k += 1) {
+                setting.appendCodePoint(_alphabet.toCodePoint(posns[k]));
+            }
+            result.add(setting.toString());
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder periods = new StringBuilder();
+        for (int i = 0; i < _cycles.length; i += 1) {
+            if (i == 0 || _cycles[i] != _cycles[i - 1]) {
+                periods.append(periods.length() == 0 ? "" : ", ")
+                    .append(_cycles[i]);
+            }
+        }
+        return String.format("%s: period %s; %d cycles; %d of %d positions"
+                             + " reachable, %d recurrent; %d double steps",
+                             _names, periods, _cycles.length, _reachable,
+                             _states, _recurrent, _doubleSteps.length);
+    }
+
+    /** Return true iff some moving rotor of KEY other than the rightmost
+     *  advanced from the positions BEFORE to AFTER without a carry from
+     *  the rotor to its right. */
+    private boolean doubleStep(CompiledKey key, int[] before, int[] after) {
+        for (int k = _first; k < before.length - 1; k += 1) {
+            boolean carry = after[k + 1] != before[k + 1]
+                && key.rotor(k + 1).atNotch(before[k + 1]);
+            if (after[k] != before[k] && !carry) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Return the state of the moving rotors at POSNS. */
+    private int pack(int[] posns) {
+        int result = 0;
+        for (int k = _first; k < posns.length; k += 1) {
+            result = result * _size + posns[k];
+        }
+        return result;
+    }
+
+    /** Set the moving rotors of POSNS to STATE. */
+    private void unpack(int state, int[] posns) {
+        for (int k = posns.length - 1; k >= _first; k -= 1) {
+            posns[k] = state % _size;
+            state /= _size;
+        }
+    }
+
+    /** Largest number of positions analyzed. */
+    private static final int MAX_STATES = 1 << 24;
+
+    /** The alphabet of the rotors. */
+    private final Alphabet _alphabet;
+
+    /** Size of _alphabet. */
+    private final int _size;
+
+    /** Number of rotor slots. */
+    private final int _numRotors;
+
+    /** Slot of the leftmost moving rotor. */
+    private final int _first;
+
+    /** Names of the moving rotors. */
+    private final String _names;
+
+    /** Number of joint positions of the moving rotors. */
+    private final int _states;
+
+    /** Number of positions in the image of the stepping. */
+    private final int _reachable;
+
+    /** Number of positions on cycles. */
+    private final int _recurrent;
+
+    /** Lengths of the cycles, in increasing order. */
+    private final int[] _cycles;
+
+    /** Recurrent states followed by a double step, in increasing
+     *  order. */
+    private final int[] _doubleSteps;
+}
@@ -0,0 +1,78 @@
+package enigma;
+
+import org.junit.Test;
+import org.junit.Rule;
+import org.junit.rules.Timeout;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+import static enigma.TestUtils.*;
+
+/** The suite of all JUnit tests for the StepAnalysis class.
+ *  @author Henry Chiong
+ */
+public class StepAnalysisTest {
+
+    /** Testing time limit. */
+    @Rule
+    public Timeout globalTimeout = Timeout.seconds(10);
+
+    /* ***** TESTS ***** */
+
+    @Test
+    public void testNavalRotors() {
+        CompiledKey key = CompiledKeyTest.navalMachine().compile(
+            new String[] {"B", "Beta", "I", "II", "III"});
+        StepAnalysis analysis = new StepAnalysis(key, UPPER);
+        assertEquals("I II III", analysis.names());
+        assertEquals(26 * 26 * 26, analysis.states());
+        assertArrayEquals(new int[] {26 * 25 * 26}, analysis.cycles());
+        assertEquals(26 * 25 * 26, analysis.recurrent());
+        assertTrue(analysis.doubleStepSettings().contains("AEW"));
+        assertFalse(analysis.doubleStepSettings().contains("ADV"));
+    }
+
+    @Test
+    public void testMatchesWalk() {
+        CompiledKey key = CompiledKeyTest.navalMachine().compile(
+            new String[] {"C", "Gamma", "V", "IV", "II"});
+        StepAnalysis analysis = new StepAnalysis(key, UPPER);
+        int[] posns = positions(key, "AQZJ", UPPER);
+        HashMap<String, Integer> seen = new HashMap<>();
+        int time = 0;
+        while (!seen.containsKey(UPPER.toString(posns, posns.length))) {
+            seen.put(UPPER.toString(posns, posns.length), time);
+            key.step(posns);
+            time += 1;
+        }
+        int period = time - seen.get(UPPER.toString(posns, posns.length));
+        assertEquals(period, analysis.cycles()[0]);
+
+        int doubles = 0;
+        for (int i = 0; i < period; i += 1) {
+            int middle = posns[3];
+            boolean carry = key.rotor(4).atNotch(posns[4]);
+            key.step(posns);
+            if (middle != posns[3] && !carry) {
+                doubles += 1;
+            }
+        }
+        assertEquals(doubles, analysis.doubleSteps());
+    }
+
+    @Test
+    public void testAllOrders() {
+        List<StepAnalysis> analyses =
+            StepAnalysis.analyze(CompiledKeyTest.navalMachine(),
+                                 ForkJoinPool.commonPool());
+        assertEquals(5 * 4 * 3, analyses.size());
+        for (StepAnalysis analysis : analyses) {
+            assertTrue(analysis.reachable() < analysis.states());
+            assertTrue(analysis.recurrent() <= analysis.reachable());
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package enigma;
+
+import java.util.Random;
+
+import static enigma.EnigmaException.*;
+
+/** Times a BatchEngine for the first key of a machine's key space with its
+ *  expanded rotor tables stored at each width that can hold them, to show
+ *  the effect of the tables' size on the processor's caches. Since the JIT
+ *  specializes IndexTable.get for the widths it has seen, each width is
+ *  best timed in a fresh JVM.
+ *  @author Henry Chiong
+ */
+final class TableBenchmark {
+
+    /** Time the machine configured by the file ARGS[0] with tables of
+     *  ARGS[1] bytes per entry (default 0, meaning every width in turn), in
+     *  ARGS[2] lanes (default 1024) for ARGS[3] characters (default 20000),
+     *  printing the size of the tables and the nanoseconds taken per
+     *  character per lane. Exits with code 1 on errors. */
+    public static void main(String... args) {
+        try {
+            if (args.length < 1 || args.length > 4) {
+                throw error("Usage: CONFIG [WIDTH [LANES [CHARACTERS]]]");
+            }
+            Machine machine = Main.readConfig(args[0]);
+            int only = args.length > 1 ? Integer.parseInt(args[1]) : 0;
+            int lanes =
+                args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_LANES;
+            int chars =
+                args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_CHARS;
+            CompiledKey key = new KeySpace(machine).key(0);
+            int size = key.size();
+            System.out.printf("alphabet: %d characters, %d rotors, "
+                              + "%d lanes%n", size, key.numRotors(), lanes);
+            for (int width = only > 0 ? only : IndexTable.widthFor(size);
+                 width <= (only > 0 ? only : Integer.BYTES); width *= 2) {
+                BatchEngine engine = new BatchEngine(key, lanes, width);
+                long bytes = 2L * key.numRotors()
+                    * CompiledRotor.arrayBytes((long) size * size, width);
+                time(engine, chars);
+                double nanos = time(engine, chars);
+                System.out.printf("%d-byte tables (%d bytes): %.2f ns%n",
+                                  width, bytes, nanos);
+            }
+            return;
+        } catch (NumberFormatException excp) {
+            System.err.printf("Error: bad number%n");
+        } catch (EnigmaException excp) {
+            System.err.printf("Error: %s%n", excp.getMessage());
+        }
+        System.exit(1);
+    }
+
+    /** Return the nanoseconds per character per lane taken by ENGINE to
+     *  convert CHARS random characters in every lane, starting from random
+     *  positions. */
+    static double time(BatchEngine engine, int chars) {
+        CompiledKey key = engine.key();
+        Random random = new Random(SEED);
+        int[] posns = new int[key.numRotors()];
+        for (int lane = 0; lane < engine.lanes(); lane += 1) {
+            for (int k = 0; k < posns.length; k += 1) {
+                posns[k] = random.nextInt(key.size());
+            }
+            engine.setPositions(lane, posns);
+        }
+        int[] column = new int[engine.lanes()];
+        for (int lane = 0; lane < column.length; lane += 1) {
+            column[lane] = random.nextInt(key.size());
+        }
+        long start = System.nanoTime();
+        for (int t = 0; t < chars; t += 1) {
+            engine.convert(column, column);
+        }
+        long elapsed = System.nanoTime() - start;
+        return (double) elapsed / chars / engine.lanes();
+    }
+
+    /** Default number of lanes. */
+    private static final int DEFAULT_LANES = 1024;
+
+    /** Default number of characters converted in each lane. */
+    private static final int DEFAULT_CHARS = 20000;
+
+    /** Seed for the random positions and characters. */
+    private static final long SEED = 61;
+}
@@ -0,0 +1,106 @@
+package enigma;
+
+/** An engine converting with the CompiledKey of a Machine's current
+ *  rotors, ring settings, and plugboard, keeping the rotor positions in a
+ *  plain int array. The Machine checks every setting; the key is compiled
+ *  again only when the rotors, rings, or plugboard change.
+ *
+ *  This engine is not faster than the ReferenceEngine, and "auto" never
+ *  chooses it. It is a second implementation of the conversion, over the
+ *  compiled tables that BatchEngine and the attacks also use, which
+ *  Fuzzer and EngineChecker compare with the reference; it is also the
+ *  base of ExpandedEngine.
+ *  @author Henry Chiong
+ */
+class TableEngine implements Engine {
+
+    /** An engine set up through MACHINE. */
+    TableEngine(Machine machine) {
+        _machine = machine;
+    }
+
+    @Override
+    public Alphabet alphabet() {
+        return _machine.alphabet();
+    }
+
+    @Override
+    public int numRotors() {
+        return _machine.numRotors();
+    }
+
+    @Override
+    public void configure(String[] rotors) {
+        _machine.insertRotors(rotors);
+        _key = null;
+        _posns = null;
+    }
+
+    @Override
+    public void setRotors(String setting) {
+        _machine.setRotors(setting);
+        _posns = null;
+    }
+
+    @Override
+    public void setRings(String setting) {
+        _machine.setRingRotors(setting);
+        _key = null;
+    }
+
+    @Override
+    public void setPlugboard(Permutation plugboard) {
+        _machine.setPlugboard(plugboard);
+        _key = null;
+    }
+
+    @Override
+    public void convert(int[] indices, int len) {
+        update();
+        _key.convert(indices, indices, len, _posns);
+    }
+
+    @Override
+    public int[] positions() {
+        return _posns == null ? _machine.positions() : _posns.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "table";
+    }
+
+    /** Compile my key and fetch my positions from my machine if either
+     *  has changed there. Return true iff the key was compiled again. */
+    boolean update() {
+        boolean compiled = false;
+        if (_key == null) {
+            _key = _machine.compile();
+            compiled = true;
+        }
+        if (_posns == null) {
+            _posns = _machine.positions();
+        }
+        return compiled;
+    }
+
+    /** Return my key, as of the last update. */
+    CompiledKey key() {
+        return _key;
+    }
+
+    /** Return my current positions, which I alone change. */
+    int[] currentPositions() {
+        return _posns;
+    }
+
+    /** The machine through which I am set up. */
+    private final Machine _machine;
+
+    /** My compiled key, or null if it must be compiled again. */
+    private CompiledKey _key;
+
+    /** My rotor positions, or null if they must be fetched from
+     *  _machine. */
+    private int[] _posns;
+}
@@ -18,6 +18,20 @@ class TestUtils {
         return testId + " (" + String.format(msgFormat, args) + ")";
     }
 
+    /** Return the positions of KEY described by SETTING, a string of
+     *  KEY.numRotors()-1 characters of ALPHABET, as for
+     *  Machine.setRotors. */
+    static int[] positions(CompiledKey key, String setting,
+                           Alphabet alphabet) {
+        int[] indices = Machine.indices(setting, alphabet);
+        if (indices.length != key.numRotors() - 1) {
+            throw EnigmaException.error("bad setting %s", setting);
+        }
+        int[] result = new int[key.numRotors()];
+        System.arraycopy(indices, 0, result, 1, indices.length);
+        return result;
+    }
+
     /** The naval rotors in the A (0) setting. */
     static final HashMap<String, String> NAVALA = new HashMap<>();
     static {
@@ -10,9 +10,21 @@ public class UnitTest {
     /** Run the JUnit tests in this package. Add xxxTest.class entries to
      *  the arguments of runClasses to run other JUnit tests. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(AlphabetTest.class, FixedRotorTest.class,
-                MachineTest.class, MainTest.class, MovingRotorTest.class,
-                PermutationTest.class, ReflectorTest.class, RotorTest.class));
+        System.exit(textui.runClasses(AlphabetTest.class,
+                BatchConverterTest.class, BatchEngineTest.class,
+                ByteMachineTest.class, ChunkReaderTest.class,
+                ChunkWriterTest.class, CiphertextAttackTest.class,
+                CompiledKeyTest.class, ConfigParserTest.class,
+                CribFinderTest.class, CribSearchTest.class,
+                CycleCatalogTest.class, EngineTest.class, FixedRotorTest.class,
+                FuzzerTest.class, GroupedWriterTest.class, IndexTableTest.class,
+                KeySpaceSchedulerTest.class, KeySpaceTest.class,
+                LineInputTest.class, MachineTest.class, MainTest.class,
+                MovingRotorTest.class, NGramsTest.class,
+                PermutationPoolTest.class, PermutationTest.class,
+                PlugboardScorerTest.class, ReflectorTest.class, RotorTest.class,
+                SearchCoordinatorTest.class, SessionStoreTest.class,
+                StatisticsTest.class, StepAnalysisTest.class));
     }
 }
 